@@ -1,5 +1,7 @@
 package eu.javaspecialists.twitch.broadcast1;
 
+import java.util.NoSuchElementException;
+import java.util.Objects;
 import java.util.function.BiConsumer;
 import java.util.function.UnaryOperator;
 
@@ -21,6 +23,12 @@ public class AVLBinaryTree<T extends Comparable<T>> extends AbstractBinaryTree<T
         return root;
     }
 
+    @Override
+    public Footprint footprint() {
+        // root, and the value, left, right and height of each node
+        return footprint(1, 0, ObjectLayout.objectSize(3, Integer.BYTES));
+    }
+
     private static class Node<E extends Comparable<E>>
             implements AbstractBinaryTree.Node<E> {
         private E value;
@@ -93,6 +101,7 @@ public class AVLBinaryTree<T extends Comparable<T>> extends AbstractBinaryTree<T
 
         newRootSetter.accept(newRoot, node);
         nodeSetter.accept(node, subtree);
+        rotated();
 
         node.height = Math.max(height(node.left), height(node.right)) + 1;
         newRoot.height = Math.max(height(newRoot.left), height(newRoot.right)) + 1;
@@ -104,6 +113,7 @@ public class AVLBinaryTree<T extends Comparable<T>> extends AbstractBinaryTree<T
     public void add(T key) {
         this.root = add(root, key);
         modCount++;
+        added();
     }
 
     // Insert a value into a node
@@ -111,7 +121,7 @@ public class AVLBinaryTree<T extends Comparable<T>> extends AbstractBinaryTree<T
         if (node == null) {
             return new Node<>(key);
         }
-        int cmp = key.compareTo(node.value);
+        int cmp = compare(key, node.value);
         if (cmp < 0) {
             node.left = add(node.left, key);
         } else if (cmp > 0) {
@@ -126,23 +136,23 @@ public class AVLBinaryTree<T extends Comparable<T>> extends AbstractBinaryTree<T
         int balance = getBalance(node);
 
         // Left Left Case
-        if (balance > 1 && key.compareTo(node.left.value) < 0) {
+        if (balance > 1 && compare(key, node.left.value) < 0) {
             return rotateRight(node);
         }
 
         // Right Right Case
-        if (balance < -1 && key.compareTo(node.right.value) > 0) {
+        if (balance < -1 && compare(key, node.right.value) > 0) {
             return rotateLeft(node);
         }
 
         // Left Right Case
-        if (balance > 1 && key.compareTo(node.left.value) > 0) {
+        if (balance > 1 && compare(key, node.left.value) > 0) {
             node.left = rotateLeft(node.left);
             return rotateRight(node);
         }
 
         // Right Left Case
-        if (balance < -1 && key.compareTo(node.right.value) < 0) {
+        if (balance < -1 && compare(key, node.right.value) < 0) {
             node.right = rotateRight(node.right);
             return rotateLeft(node);
         }
@@ -154,6 +164,7 @@ public class AVLBinaryTree<T extends Comparable<T>> extends AbstractBinaryTree<T
     public void remove(T key) {
         this.root = remove(root, key);
         modCount++;
+        removed();
     }
 
     // Remove a value from a node
@@ -162,7 +173,7 @@ public class AVLBinaryTree<T extends Comparable<T>> extends AbstractBinaryTree<T
             return node;
         }
 
-        int cmp = key.compareTo(node.value);
+        int cmp = compare(key, node.value);
 
         if (cmp < 0) {
             node.left = remove(node.left, key);
@@ -218,6 +229,128 @@ public class AVLBinaryTree<T extends Comparable<T>> extends AbstractBinaryTree<T
         return node;
     }
 
+    /**
+     * @return a cursor that can also insert and remove, rebalancing only
+     * along the path from its position
+     */
+    @Override
+    public BinaryTreeCursor<T> cursor() {
+        return new Cursor();
+    }
+
+    private class Cursor extends TreeCursor {
+        @Override
+        public void insert(T value) {
+            Objects.requireNonNull(value, "value");
+            checkForComodification();
+            if (root == null) {
+                root = new Node<>(value);
+                push(root, null, null);
+            } else {
+                int cmp = descend(value);
+                if (cmp != 0) {
+                    var parent = (Node<T>) top();
+                    var leaf = new Node<>(value);
+                    if (cmp < 0) {
+                        parent.left = leaf;
+                    } else {
+                        parent.right = leaf;
+                    }
+                    pushChild(leaf);
+                    rebalancePath(depth - 2);
+                    descend(value);
+                }
+            }
+            expectedModCount = ++modCount;
+            added();
+        }
+
+        @Override
+        public void remove() {
+            checkForComodification();
+            if (depth == 0) throw new NoSuchElementException();
+            var node = (Node<T>) top();
+            T removed = node.value;
+            if (node.left != null && node.right != null) {
+                // move the successor up into this node and remove its old node instead
+                int level = depth;
+                pushChild(node.right);
+                pushLeftmost();
+                node.value = top().value();
+                for (int i = level; i < depth; i++) {
+                    if (lower[i] == removed) {
+                        lower[i] = node.value;
+                    }
+                }
+            }
+            var target = (Node<T>) top();
+            var child = target.left != null ? target.left : target.right;
+            truncate(depth - 1);
+            replaceChild(depth == 0 ? null : (Node<T>) top(), target, child);
+            if (depth > 0) {
+                rebalancePath(depth - 1);
+            }
+            expectedModCount = ++modCount;
+            if (root != null) {
+                // the element after the removed one
+                if (descend(removed) > 0) {
+                    next();
+                }
+            }
+            removed();
+        }
+
+        /**
+         * Updates the heights and rebalances from the level up to the root,
+         * stopping as soon as a subtree keeps its height.  If that subtree
+         * was rotated, the path is cut back to its new root.
+         */
+        private void rebalancePath(int level) {
+            for (int i = level; i >= 0; i--) {
+                var node = (Node<T>) path[i];
+                int oldHeight = node.height;
+                var newNode = rebalance(node);
+                if (newNode != node) {
+                    replaceChild(i == 0 ? null : (Node<T>) path[i - 1], node, newNode);
+                    truncate(i + 1);
+                    path[i] = newNode;
+                }
+                if (newNode.height == oldHeight) {
+                    return;
+                }
+            }
+        }
+
+        private void replaceChild(Node<T> parent, Node<T> oldChild, Node<T> newChild) {
+            if (parent == null) {
+                root = newChild;
+            } else if (parent.left == oldChild) {
+                parent.left = newChild;
+            } else {
+                parent.right = newChild;
+            }
+        }
+    }
+
+    // Update the height and restore the balance of a single node
+    private Node<T> rebalance(Node<T> node) {
+        node.height = Math.max(height(node.left), height(node.right)) + 1;
+        int balance = getBalance(node);
+        if (balance > 1) {
+            if (getBalance(node.left) < 0) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (getBalance(node.right) > 0) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
     private Node<T> minValueNode(Node<T> node) {
         Node<T> current = node;
 
@@ -0,0 +1,132 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import java.util.function.Function;
+
+/**
+ * A BinaryTreeMap balanced as an AVL tree, like AVLBinaryTree.  The meta
+ * field of each node holds its height, and after every insertion or removal,
+ * we rebalance each node on the path back up to the root.
+ *
+ * @param <K> the type of keys, which must implement Comparable
+ * @param <V> the type of values
+ */
+public class AVLBinaryTreeMap<K extends Comparable<K>, V> extends AbstractBinaryTreeMap<K, V> {
+    private Node<K, V> root;
+    // results of the recursive insert() and delete()
+    private Node<K, V> found;
+    private V removed;
+
+    @Override
+    Node<K, V> root() {
+        return root;
+    }
+
+    @Override
+    Footprint footprint(int references, int primitiveBytes, long nodeSize) {
+        // root, found and removed
+        return super.footprint(references + 3, primitiveBytes, nodeSize);
+    }
+
+    private static int height(Node<?, ?> node) {
+        return node == null ? 0 : node.meta;
+    }
+
+    private static int getBalance(Node<?, ?> node) {
+        return node == null ? 0 : height(node.left) - height(node.right);
+    }
+
+    @Override
+    void update(Node<K, V> node) {
+        node.meta = 1 + Math.max(height(node.left), height(node.right));
+    }
+
+    @Override
+    Node<K, V> insert(K key, Function<? super K, ? extends V> valueFunction) {
+        found = null;
+        root = insert(root, key, valueFunction);
+        return found;
+    }
+
+    private Node<K, V> insert(Node<K, V> node, K key,
+                              Function<? super K, ? extends V> valueFunction) {
+        if (node == null) {
+            V value = valueFunction.apply(key);
+            if (value == null) {
+                return null;
+            }
+            found = newNode(key, value);
+            update(found);
+            return found;
+        }
+        int cmp = key.compareTo(node.key);
+        if (cmp < 0) {
+            node.left = insert(node.left, key, valueFunction);
+        } else if (cmp > 0) {
+            node.right = insert(node.right, key, valueFunction);
+        } else {
+            found = node;
+            existing(node);
+            return node;
+        }
+        return rebalance(node);
+    }
+
+    private Node<K, V> rebalance(Node<K, V> node) {
+        update(node);
+        int balance = getBalance(node);
+        if (balance > 1) {
+            if (getBalance(node.left) < 0) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balance < -1) {
+            if (getBalance(node.right) > 0) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    @Override
+    V delete(K key) {
+        removed = null;
+        root = delete(root, key);
+        return removed;
+    }
+
+    private Node<K, V> delete(Node<K, V> node, K key) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = key.compareTo(node.key);
+        if (cmp < 0) {
+            node.left = delete(node.left, key);
+        } else if (cmp > 0) {
+            node.right = delete(node.right, key);
+        } else {
+            removed = node.value;
+            size--;
+            modCount++;
+            if (node.left == null || node.right == null) {
+                return node.left == null ? node.right : node.left;
+            }
+            Node<K, V> successor = node.right;
+            while (successor.left != null) {
+                successor = successor.left;
+            }
+            node.copyEntry(successor);
+            node.right = deleteMin(node.right);
+        }
+        return rebalance(node);
+    }
+
+    private Node<K, V> deleteMin(Node<K, V> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        node.left = deleteMin(node.left);
+        return rebalance(node);
+    }
+}
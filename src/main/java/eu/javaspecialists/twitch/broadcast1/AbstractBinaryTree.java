@@ -8,21 +8,130 @@ abstract class AbstractBinaryTree<T extends Comparable<T>> implements BinaryTree
 
     int modCount = 0;
 
-    @Override
-    public final boolean contains(T value) {
-        return contains(root(), value);
+    // instrumentation, see RebalanceEvent and OperationCounters
+    private OperationCounters counters;
+    // begun at the first rotation or red move of the current add() or remove()
+    private RebalanceEvent rebalance;
+    private int rotations = 0;
+    private int redMoves = 0;
+
+    /**
+     * Starts counting the operations on this tree, from now on.
+     */
+    public OperationCounters enableCounters() {
+        if (counters == null) {
+            counters = new OperationCounters();
+        }
+        return counters;
     }
 
-    private boolean contains(Node<T> current, T value) {
-        if (current == null) {
-            return false;
+    /**
+     * All comparisons go through here, so that we can count them.
+     */
+    final int compare(T value, T other) {
+        OperationCounters counters = this.counters;
+        if (counters != null) {
+            counters.comparisons.increment();
+        }
+        return value.compareTo(other);
+    }
+
+    /**
+     * Called by the subclasses for every rotation.  The RebalanceEvent is
+     * only allocated and begun here, and only if a recording has it enabled,
+     * so that add() and remove() pay nothing for it otherwise.
+     */
+    final void rotated() {
+        beginRebalance();
+        rotations++;
+    }
+
+    /**
+     * Called by the red-black trees for every moveRedLeft() and moveRedRight().
+     */
+    final void movedRed() {
+        beginRebalance();
+        redMoves++;
+    }
+
+    private void beginRebalance() {
+        if (rebalance == null && RebalanceEvent.isTypeEnabled()) {
+            rebalance = new RebalanceEvent();
+            rebalance.begin();
+        }
+    }
+
+    /**
+     * Called at the end of add().
+     */
+    final void added() {
+        if (counters != null) {
+            counters.adds.increment();
         }
-        if (value.compareTo(current.value()) == 0) {
-            return true;
+        commit("add");
+    }
+
+    /**
+     * Called at the end of remove().
+     */
+    final void removed() {
+        if (counters != null) {
+            counters.removes.increment();
         }
-        return value.compareTo(current.value()) < 0
-                ? contains(current.left(), value)
-                : contains(current.right(), value);
+        commit("remove");
+    }
+
+    private void commit(String operation) {
+        if (rotations != 0 || redMoves != 0) {
+            if (counters != null) {
+                counters.rotations.add(rotations);
+            }
+            RebalanceEvent event = rebalance;
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.treeClass = getClass().getName();
+                    event.operation = operation;
+                    event.rotations = rotations;
+                    event.redMoves = redMoves;
+                    event.commit();
+                }
+                rebalance = null;
+            }
+            rotations = 0;
+            redMoves = 0;
+        }
+    }
+
+    /**
+     * Every node is an object of its own, so there are size() of them, which
+     * takes a walk through the tree.
+     *
+     * @param references     the reference fields of the subclass
+     * @param primitiveBytes the size of the primitive fields of the subclass
+     * @param nodeSize       the size of a node, see ObjectLayout.objectSize()
+     */
+    final Footprint footprint(int references, int primitiveBytes, long nodeSize) {
+        // counters and rebalance, and modCount, rotations and redMoves
+        return new Footprint(ObjectLayout.objectSize(references + 2,
+                primitiveBytes + 3 * Integer.BYTES), size(), nodeSize, 0);
+    }
+
+    @Override
+    public final boolean contains(T value) {
+        if (counters != null) {
+            counters.lookups.increment();
+        }
+        // iterative, since unbalanced trees can be deeper than the stack
+        Node<T> current = root();
+        while (current != null) {
+            int cmp = compare(value, current.value());
+            if (cmp == 0) {
+                return true;
+            }
+            current = cmp < 0 ? current.left() : current.right();
+        }
+        return false;
     }
 
     interface Node<E extends Comparable<E>> {
@@ -42,8 +151,14 @@ abstract class AbstractBinaryTree<T extends Comparable<T>> implements BinaryTree
     private class BinaryTreeIterator implements Iterator<T> {
         private final int initialModCount = modCount;
         private final Deque<Node<T>> nodeStack = new ArrayDeque<>();
+        private LongIterationEvent event =
+                LongIterationEvent.isTypeEnabled() ? new LongIterationEvent() : null;
+        private long elements = 0;
 
         {
+            if (event != null) {
+                event.begin();
+            }
             if (root() != null) {
                 pushLeftSubtree(root());
             }
@@ -58,7 +173,19 @@ abstract class AbstractBinaryTree<T extends Comparable<T>> implements BinaryTree
 
         @Override
         public boolean hasNext() {
-            return !nodeStack.isEmpty();
+            if (!nodeStack.isEmpty()) {
+                return true;
+            }
+            if (event != null) {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.collectionClass = AbstractBinaryTree.this.getClass().getName();
+                    event.elements = elements;
+                    event.commit();
+                }
+                event = null;
+            }
+            return false;
         }
 
         @Override
@@ -68,6 +195,7 @@ abstract class AbstractBinaryTree<T extends Comparable<T>> implements BinaryTree
 
             Node<T> nextNode = nodeStack.pop();
             pushLeftSubtree(nextNode.right());
+            elements++;
 
             return nextNode.value();
         }
@@ -79,6 +207,211 @@ abstract class AbstractBinaryTree<T extends Comparable<T>> implements BinaryTree
     }
 
 
+    /**
+     * @return a cursor that is not at an element yet, so start with seek()
+     */
+    public BinaryTreeCursor<T> cursor() {
+        return new TreeCursor();
+    }
+
+    /**
+     * A cursor that moves around the tree along the path, but modifies it with
+     * add() and remove(), which start from the root, and then finds its place
+     * again.  Subclasses that can rebalance along the path override insert()
+     * and remove().
+     */
+    class TreeCursor implements BinaryTreeCursor<T> {
+        int expectedModCount = modCount;
+        // path[0] is the root and path[depth - 1] the element at the cursor
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        Node<T>[] path = new Node[16];
+        // the exclusive bounds of the subtree at each level, null if there is none
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        T[] lower = (T[]) new Comparable[16];
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        T[] upper = (T[]) new Comparable[16];
+        int depth = 0;
+
+        final void checkForComodification() {
+            if (modCount != expectedModCount)
+                throw new ConcurrentModificationException();
+        }
+
+        final Node<T> top() {
+            return path[depth - 1];
+        }
+
+        final void push(Node<T> node, T lowerBound, T upperBound) {
+            if (depth == path.length) {
+                path = Arrays.copyOf(path, depth * 2);
+                lower = Arrays.copyOf(lower, depth * 2);
+                upper = Arrays.copyOf(upper, depth * 2);
+            }
+            path[depth] = node;
+            lower[depth] = lowerBound;
+            upper[depth] = upperBound;
+            depth++;
+        }
+
+        /**
+         * Pushes a child of the node at the top of the path.
+         */
+        final void pushChild(Node<T> child) {
+            Node<T> parent = top();
+            if (child == parent.left()) {
+                push(child, lower[depth - 1], parent.value());
+            } else {
+                push(child, parent.value(), upper[depth - 1]);
+            }
+        }
+
+        final void pushLeftmost() {
+            while (top().left() != null) {
+                pushChild(top().left());
+            }
+        }
+
+        final void pushRightmost() {
+            while (top().right() != null) {
+                pushChild(top().right());
+            }
+        }
+
+        final void truncate(int newDepth) {
+            Arrays.fill(path, newDepth, depth, null);
+            Arrays.fill(lower, newDepth, depth, null);
+            Arrays.fill(upper, newDepth, depth, null);
+            depth = newDepth;
+        }
+
+        private boolean inBounds(int level, T value) {
+            return (lower[level] == null || compare(value, lower[level]) > 0)
+                    && (upper[level] == null || compare(value, upper[level]) < 0);
+        }
+
+        /**
+         * Climbs to the smallest subtree on the path that can contain the
+         * value, and descends from there, until it finds the value or runs out
+         * of nodes.  The tree must not be empty.
+         *
+         * @return 0 if the value is at the top of the path, otherwise whether
+         * it belongs to the left (negative) or right (positive) of it
+         */
+        final int descend(T value) {
+            while (depth > 1 && !inBounds(depth - 1, value)) {
+                truncate(depth - 1);
+            }
+            if (depth == 0) {
+                push(root(), null, null);
+            }
+            while (true) {
+                Node<T> node = top();
+                int cmp = compare(value, node.value());
+                if (cmp == 0) {
+                    return 0;
+                }
+                Node<T> child = cmp < 0 ? node.left() : node.right();
+                if (child == null) {
+                    return cmp;
+                }
+                pushChild(child);
+            }
+        }
+
+        @Override
+        public boolean seek(T value) {
+            Objects.requireNonNull(value, "value");
+            checkForComodification();
+            if (root() == null) {
+                return false;
+            }
+            int cmp = descend(value);
+            if (cmp > 0) {
+                next();
+            }
+            return cmp == 0;
+        }
+
+        @Override
+        public void insert(T value) {
+            Objects.requireNonNull(value, "value");
+            checkForComodification();
+            add(value);
+            expectedModCount = modCount;
+            truncate(0);
+            seek(value);
+        }
+
+        @Override
+        public void remove() {
+            checkForComodification();
+            if (depth == 0) throw new NoSuchElementException();
+            T removed = top().value();
+            AbstractBinaryTree.this.remove(removed);
+            expectedModCount = modCount;
+            truncate(0);
+            // the element after the removed one
+            seek(removed);
+        }
+
+        @Override
+        public T get() {
+            checkForComodification();
+            if (depth == 0) throw new NoSuchElementException();
+            return top().value();
+        }
+
+        @Override
+        public boolean isValid() {
+            return depth > 0;
+        }
+
+        @Override
+        public boolean next() {
+            checkForComodification();
+            if (depth == 0) {
+                return false;
+            }
+            if (top().right() != null) {
+                pushChild(top().right());
+                pushLeftmost();
+                return true;
+            }
+            // climb until we come up from a left child
+            while (depth > 1) {
+                Node<T> child = top();
+                truncate(depth - 1);
+                if (top().left() == child) {
+                    return true;
+                }
+            }
+            truncate(0);
+            return false;
+        }
+
+        @Override
+        public boolean previous() {
+            checkForComodification();
+            if (depth == 0) {
+                return false;
+            }
+            if (top().left() != null) {
+                pushChild(top().left());
+                pushRightmost();
+                return true;
+            }
+            while (depth > 1) {
+                Node<T> child = top();
+                truncate(depth - 1);
+                if (top().right() == child) {
+                    return true;
+                }
+            }
+            truncate(0);
+            return false;
+        }
+    }
+
     /**
      * Method to measure the maxDepth of the tree.
      */
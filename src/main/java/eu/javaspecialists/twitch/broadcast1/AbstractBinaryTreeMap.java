@@ -0,0 +1,365 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import java.util.ArrayDeque;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * The parts of a BinaryTreeMap that do not depend on how the tree is
+ * balanced: lookups, navigation, iteration and the rotations.  Subclasses
+ * implement insert() and delete(), and keep their balancing information in
+ * the meta field of the Node.  Whenever the children of a node change, they
+ * call update(node), which subclasses can override to maintain additional
+ * per-subtree information, such as the height of an AVL tree.
+ */
+abstract class AbstractBinaryTreeMap<K extends Comparable<K>, V>
+        implements BinaryTreeMap<K, V> {
+    static class Node<K, V> implements Map.Entry<K, V> {
+        K key;
+        V value;
+        Node<K, V> left;
+        Node<K, V> right;
+        // height for AVL, color for red-black
+        int meta;
+
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        /**
+         * Takes over the entry of the other node, when deletion moves the
+         * successor into this node.  Nodes with additional per-entry fields
+         * copy those too.
+         */
+        void copyEntry(Node<K, V> other) {
+            key = other.key;
+            value = other.value;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            V oldValue = this.value;
+            this.value = Objects.requireNonNull(value, "value");
+            return oldValue;
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    // key, value, left, right and meta
+    static final long NODE_SIZE = ObjectLayout.objectSize(4, Integer.BYTES);
+
+    int size = 0;
+    int modCount = 0;
+    // set by newNode(), so that put() and friends know that insert() created the node
+    private boolean inserted;
+
+    abstract Node<K, V> root();
+
+    /**
+     * Every entry is a node of its own, like in AbstractBinaryTree.
+     *
+     * @param references     the reference fields of the subclasses
+     * @param primitiveBytes the size of the primitive fields of the subclasses
+     * @param nodeSize       the size of the nodes that createNode() makes,
+     *                       which is NODE_SIZE unless they have more fields
+     */
+    Footprint footprint(int references, int primitiveBytes, long nodeSize) {
+        // size, modCount and inserted
+        return new Footprint(ObjectLayout.objectSize(references,
+                primitiveBytes + 2 * Integer.BYTES + 1), size, nodeSize, 0);
+    }
+
+    /**
+     * Finds the node for the key in a single descent.  If the key is absent,
+     * the function computes the value, and unless that is null, a node is
+     * created with newNode() and the tree rebalanced.
+     *
+     * @return the node for the key, or null if it is still absent
+     */
+    abstract Node<K, V> insert(K key, Function<? super K, ? extends V> valueFunction);
+
+    /**
+     * Removes the node for the key.
+     *
+     * @return the removed value, or null if the key was absent
+     */
+    abstract V delete(K key);
+
+    /**
+     * Creates the node for insert() and counts it towards the size.
+     */
+    final Node<K, V> newNode(K key, V value) {
+        inserted = true;
+        size++;
+        modCount++;
+        return createNode(key, value);
+    }
+
+    /**
+     * Factory for new nodes, which subclasses may override to return nodes
+     * with additional fields.
+     */
+    Node<K, V> createNode(K key, V value) {
+        return new Node<>(key, value);
+    }
+
+    /**
+     * Called by insert() when it finds that the key is already there, before
+     * the nodes on the path back up to the root are updated.
+     */
+    void existing(Node<K, V> node) {
+    }
+
+    /**
+     * Called whenever the children of the node may have changed.
+     */
+    void update(Node<K, V> node) {
+    }
+
+    Node<K, V> rotateLeft(Node<K, V> node) {
+        Node<K, V> newRoot = node.right;
+        node.right = newRoot.left;
+        newRoot.left = node;
+        update(node);
+        update(newRoot);
+        return newRoot;
+    }
+
+    Node<K, V> rotateRight(Node<K, V> node) {
+        Node<K, V> newRoot = node.left;
+        node.left = newRoot.right;
+        newRoot.right = node;
+        update(node);
+        update(newRoot);
+        return newRoot;
+    }
+
+    Node<K, V> getNode(K key) {
+        Objects.requireNonNull(key, "key");
+        Node<K, V> node = root();
+        while (node != null) {
+            int cmp = key.compareTo(node.key);
+            if (cmp == 0) {
+                return node;
+            }
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    @Override
+    public V get(K key) {
+        Node<K, V> node = getNode(key);
+        return node == null ? null : node.value;
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return getNode(key) != null;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        Objects.requireNonNull(value, "value");
+        Node<K, V> node = insertNode(key, k -> value);
+        if (inserted) {
+            return null;
+        }
+        return node.setValue(value);
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        Objects.requireNonNull(mappingFunction, "mappingFunction");
+        // the function runs in the middle of the descent, so if it modifies
+        // this map, the path that insert() is on is stale, like in TreeMap
+        int expectedModCount = modCount;
+        Node<K, V> node = insertNode(key, k -> {
+            V value = mappingFunction.apply(k);
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            return value;
+        });
+        return node == null ? null : node.value;
+    }
+
+    @Override
+    public V merge(K key, V value,
+                   BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(value, "value");
+        Objects.requireNonNull(remappingFunction, "remappingFunction");
+        Node<K, V> node = insertNode(key, k -> value);
+        if (inserted) {
+            return value;
+        }
+        V newValue = remappingFunction.apply(node.value, value);
+        if (newValue == null) {
+            delete(key);
+        } else {
+            node.value = newValue;
+        }
+        return newValue;
+    }
+
+    private Node<K, V> insertNode(K key, Function<? super K, ? extends V> valueFunction) {
+        Objects.requireNonNull(key, "key");
+        inserted = false;
+        return insert(key, valueFunction);
+    }
+
+    @Override
+    public V remove(K key) {
+        Objects.requireNonNull(key, "key");
+        return delete(key);
+    }
+
+    @Override
+    public K firstKey() {
+        Node<K, V> node = root();
+        if (node == null) {
+            throw new NoSuchElementException();
+        }
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node.key;
+    }
+
+    @Override
+    public K lastKey() {
+        Node<K, V> node = root();
+        if (node == null) {
+            throw new NoSuchElementException();
+        }
+        while (node.right != null) {
+            node = node.right;
+        }
+        return node.key;
+    }
+
+    @Override
+    public K floorKey(K key) {
+        return lowerOrFloor(key, true);
+    }
+
+    @Override
+    public K lowerKey(K key) {
+        return lowerOrFloor(key, false);
+    }
+
+    @Override
+    public K ceilingKey(K key) {
+        return higherOrCeiling(key, true);
+    }
+
+    @Override
+    public K higherKey(K key) {
+        return higherOrCeiling(key, false);
+    }
+
+    private K lowerOrFloor(K key, boolean inclusive) {
+        Objects.requireNonNull(key, "key");
+        K result = null;
+        for (Node<K, V> node = root(); node != null; ) {
+            int cmp = key.compareTo(node.key);
+            if (cmp == 0 && inclusive) {
+                return node.key;
+            }
+            if (cmp > 0) {
+                result = node.key;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return result;
+    }
+
+    private K higherOrCeiling(K key, boolean inclusive) {
+        Objects.requireNonNull(key, "key");
+        K result = null;
+        for (Node<K, V> node = root(); node != null; ) {
+            int cmp = key.compareTo(node.key);
+            if (cmp == 0 && inclusive) {
+                return node.key;
+            }
+            if (cmp < 0) {
+                result = node.key;
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public int maxDepth() {
+        return depth(root());
+    }
+
+    private int depth(Node<K, V> node) {
+        return node == null ? 0 : 1 + Math.max(depth(node.left), depth(node.right));
+    }
+
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator() {
+        return new Iterator<>() {
+            private final int initialModCount = modCount;
+            private final Deque<Node<K, V>> nodeStack = new ArrayDeque<>();
+
+            {
+                pushLeftSubtree(root());
+            }
+
+            private void pushLeftSubtree(Node<K, V> node) {
+                while (node != null) {
+                    nodeStack.push(node);
+                    node = node.left;
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return !nodeStack.isEmpty();
+            }
+
+            @Override
+            public Map.Entry<K, V> next() {
+                if (modCount != initialModCount)
+                    throw new ConcurrentModificationException();
+                if (!hasNext()) throw new NoSuchElementException();
+                Node<K, V> nextNode = nodeStack.pop();
+                pushLeftSubtree(nextNode.right);
+                return nextNode;
+            }
+        };
+    }
+}
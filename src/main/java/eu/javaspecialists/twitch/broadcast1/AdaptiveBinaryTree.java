@@ -0,0 +1,272 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import java.util.ConcurrentModificationException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A BinaryTree that picks its representation from the workload that it
+ * observes, for when we cannot know in advance whether a set will be small,
+ * read-mostly or write-heavy.  Every SAMPLE_SIZE operations it looks at the
+ * size and at the mix of reads and writes in that window:
+ * <ul>
+ * <li>up to a few hundred elements, a SortedArrayBinaryTree, which has no
+ * nodes at all;</li>
+ * <li>read-mostly, an AVLBinaryTree, which is shallower;</li>
+ * <li>write-heavy, a RedBlackBinaryTree, which rebalances less strictly.</li>
+ * </ul>
+ * The thresholds overlap, so that a workload on the boundary does not make
+ * the tree switch back and forth.
+ * <p>
+ * Switching does not copy everything at once.  The old representation is
+ * frozen and every subsequent operation moves the next MIGRATION_STEP
+ * elements from it, in sorted order, into the new one, so the pause per
+ * operation is bounded.  While migrating, elements up to the last migrated
+ * one live in the new representation, as do elements added that were not in
+ * the old one.  Removing an element that has not been migrated yet records
+ * a tombstone instead of changing the frozen tree.  maxDepth() and
+ * iterator() first complete the migration.
+ * <p>
+ * The trees do not know their size in O(1), nor report whether add() and
+ * remove() changed anything, so we look the value up first and count here.
+ *
+ * @param <T> the type of elements stored in the tree
+ */
+public class AdaptiveBinaryTree<T extends Comparable<T>> implements BinaryTree<T> {
+    public enum Representation {
+        SORTED_ARRAY {
+            @Override
+            <T extends Comparable<T>> BinaryTree<T> create() {
+                return new SortedArrayBinaryTree<>();
+            }
+        },
+        AVL {
+            @Override
+            <T extends Comparable<T>> BinaryTree<T> create() {
+                return new AVLBinaryTree<>();
+            }
+        },
+        RED_BLACK {
+            @Override
+            <T extends Comparable<T>> BinaryTree<T> create() {
+                return new RedBlackBinaryTree<>();
+            }
+        };
+
+        abstract <T extends Comparable<T>> BinaryTree<T> create();
+    }
+
+    static final int SAMPLE_SIZE = 1024;
+    static final int MIGRATION_STEP = 64;
+    // a tree shrinks back into an array below SMALL, an array grows into a tree above LARGE
+    static final int SMALL = 64;
+    static final int LARGE = 256;
+
+    private Representation representation = Representation.SORTED_ARRAY;
+    private BinaryTree<T> current = representation.create();
+    private int size = 0;
+    private int modCount = 0;
+    private int reads = 0;
+    private int writes = 0;
+    private int migrations = 0;
+
+    // the frozen old representation while we are migrating, otherwise null
+    private BinaryTree<T> source;
+    private Iterator<T> sourceIterator;
+    private T lastMigrated;
+    private final Set<T> tombstones = new HashSet<>();
+
+    @Override
+    public void add(T value) {
+        Objects.requireNonNull(value, "value");
+        writes++;
+        beforeOperation();
+        if (inSource(value)) {
+            if (tombstones.remove(value)) {
+                size++;
+                modCount++;
+            }
+        } else if (!current.contains(value)) {
+            current.add(value);
+            size++;
+            modCount++;
+        }
+    }
+
+    @Override
+    public boolean contains(T value) {
+        Objects.requireNonNull(value, "value");
+        reads++;
+        beforeOperation();
+        if (inSource(value)) {
+            return !tombstones.contains(value);
+        }
+        return current.contains(value);
+    }
+
+    @Override
+    public void remove(T value) {
+        Objects.requireNonNull(value, "value");
+        writes++;
+        beforeOperation();
+        if (inSource(value)) {
+            if (tombstones.add(value)) {
+                size--;
+                modCount++;
+            }
+        } else if (current.contains(value)) {
+            current.remove(value);
+            size--;
+            modCount++;
+        }
+    }
+
+    /**
+     * @return true if the value is in the old representation and has not
+     * been migrated yet, whether or not it has a tombstone
+     */
+    private boolean inSource(T value) {
+        return source != null
+                && (lastMigrated == null || value.compareTo(lastMigrated) > 0)
+                && source.contains(value);
+    }
+
+    private void beforeOperation() {
+        if (source != null) {
+            migrateStep();
+        }
+        if (reads + writes == SAMPLE_SIZE) {
+            Representation next = choose();
+            reads = writes = 0;
+            if (next != representation && source == null) {
+                startMigration(next);
+            }
+        }
+    }
+
+    private Representation choose() {
+        int size = size();
+        if (representation == Representation.SORTED_ARRAY) {
+            if (size <= LARGE) {
+                return Representation.SORTED_ARRAY;
+            }
+            return writes * 2 > SAMPLE_SIZE ? Representation.RED_BLACK : Representation.AVL;
+        }
+        if (size < SMALL) {
+            return Representation.SORTED_ARRAY;
+        }
+        if (representation == Representation.AVL && writes * 10 > SAMPLE_SIZE * 6) {
+            return Representation.RED_BLACK;
+        }
+        if (representation == Representation.RED_BLACK && writes * 10 < SAMPLE_SIZE * 4) {
+            return Representation.AVL;
+        }
+        return representation;
+    }
+
+    private void startMigration(Representation next) {
+        source = current;
+        sourceIterator = source.iterator();
+        current = next.create();
+        representation = next;
+        migrations++;
+    }
+
+    private void migrateStep() {
+        for (int i = 0; i < MIGRATION_STEP && sourceIterator.hasNext(); i++) {
+            T value = sourceIterator.next();
+            lastMigrated = value;
+            if (!tombstones.remove(value)) {
+                current.add(value);
+            }
+        }
+        if (!sourceIterator.hasNext()) {
+            assert tombstones.isEmpty();
+            source = null;
+            sourceIterator = null;
+            lastMigrated = null;
+        }
+    }
+
+    private void completeMigration() {
+        while (source != null) {
+            migrateStep();
+        }
+    }
+
+    public Representation representation() {
+        return representation;
+    }
+
+    public boolean isMigrating() {
+        return source != null;
+    }
+
+    /**
+     * @return how often the tree has switched to another representation
+     */
+    public int migrations() {
+        return migrations;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * While we are migrating, this includes the frozen old representation
+     * and the tombstones.  We do not know the capacity of the HashSet, so we
+     * estimate it from its size.
+     */
+    @Override
+    public Footprint footprint() {
+        // representation, current, source, sourceIterator, lastMigrated,
+        // tombstones and five ints, plus the HashSet and its HashMap
+        long fixed = ObjectLayout.objectSize(6, 5 * Integer.BYTES)
+                + ObjectLayout.objectSize(1, 0) + ObjectLayout.objectSize(4, 4 * Integer.BYTES);
+        var footprint = current.footprint().plus(new Footprint(fixed, 0, 0, 0));
+        if (source != null) {
+            footprint = footprint.plus(source.footprint());
+        }
+        if (!tombstones.isEmpty()) {
+            // the hash, key, value and next of each entry
+            int table = Math.max(16, Integer.highestOneBit((int) (tombstones.size() / 0.75f)) << 1);
+            footprint = footprint.plus(new Footprint(0, tombstones.size(),
+                    ObjectLayout.objectSize(3, Integer.BYTES),
+                    ObjectLayout.arraySize(table, ObjectLayout.REFERENCE_SIZE)));
+        }
+        return footprint;
+    }
+
+    @Override
+    public int maxDepth() {
+        completeMigration();
+        return current.maxDepth();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        completeMigration();
+        Iterator<T> delegate = current.iterator();
+        return new Iterator<>() {
+            private final int initialModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return delegate.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (modCount != initialModCount)
+                    throw new ConcurrentModificationException();
+                if (!hasNext()) throw new NoSuchElementException();
+                return delegate.next();
+            }
+        };
+    }
+}
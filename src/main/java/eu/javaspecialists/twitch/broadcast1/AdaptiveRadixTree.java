@@ -0,0 +1,619 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * An adaptive radix tree (ART) of Strings.  Instead of comparing the whole
+ * key at every node, like the other trees do with String.compareTo(), each
+ * node looks at one byte of the key, so a lookup touches every byte of the
+ * key at most once, no matter how long the prefixes are that the keys share.
+ * <p>
+ * The keys are encoded into bytes so that the unsigned byte order is the
+ * same as the String order: chars up to 0x7E become a single byte c + 1, all
+ * others three bytes starting with 0x80 or above, and a 0 byte terminates the
+ * key, so that no key is a prefix of another.
+ * <p>
+ * Inner nodes come in four sizes, for up to 4, 16, 48 and 256 children, and
+ * grow and shrink as children are added and removed, so that sparse nodes
+ * stay small.  Chains of nodes with only one child are collapsed into the
+ * prefix of the next node (path compression), and a key is stored as soon as
+ * it is the only one left in a subtree (lazy expansion), which is why we
+ * compare the key once more when we find it.  The keys themselves are the
+ * leaves; there is no separate leaf node.
+ */
+public class AdaptiveRadixTree implements BinaryTree<String> {
+    // shared by all the nodes without a prefix, which are most of them
+    private static final byte[] NO_PREFIX = {};
+
+    private abstract static class Node {
+        // the bytes that all the keys below this node share, after those of its parent
+        byte[] prefix;
+        int count;
+
+        Node(byte[] prefix) {
+            this.prefix = prefix;
+        }
+
+        abstract Object findChild(int key);
+
+        /**
+         * Replaces the child for a key that is already there.
+         */
+        abstract void setChild(int key, Object child);
+
+        /**
+         * @return this node, or a larger one if this one was full
+         */
+        abstract Node addChild(int key, Object child);
+
+        /**
+         * @return this node, or a smaller one if this one became sparse
+         */
+        abstract Node removeChild(int key);
+
+        /**
+         * @return the smallest key greater than or equal to from, or -1
+         */
+        abstract int nextKey(int from);
+    }
+
+    /**
+     * Node4 and Node16 keep their keys sorted, with the children at the same
+     * index, and find them with a linear scan.
+     */
+    private static class SortedNode extends Node {
+        final byte[] keys;
+        final Object[] children;
+
+        SortedNode(byte[] prefix, int capacity) {
+            super(prefix);
+            keys = new byte[capacity];
+            children = new Object[capacity];
+        }
+
+        private int indexOf(int key) {
+            for (int i = 0; i < count; i++) {
+                if (Byte.toUnsignedInt(keys[i]) == key) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object findChild(int key) {
+            int index = indexOf(key);
+            return index < 0 ? null : children[index];
+        }
+
+        @Override
+        void setChild(int key, Object child) {
+            children[indexOf(key)] = child;
+        }
+
+        @Override
+        Node addChild(int key, Object child) {
+            if (count == keys.length) {
+                Node grown = count == 4 ? new SortedNode(prefix, 16) : new Node48(prefix);
+                for (int i = 0; i < count; i++) {
+                    grown.addChild(Byte.toUnsignedInt(keys[i]), children[i]);
+                }
+                return grown.addChild(key, child);
+            }
+            int index = count;
+            while (index > 0 && Byte.toUnsignedInt(keys[index - 1]) > key) {
+                keys[index] = keys[index - 1];
+                children[index] = children[index - 1];
+                index--;
+            }
+            keys[index] = (byte) key;
+            children[index] = child;
+            count++;
+            return this;
+        }
+
+        @Override
+        Node removeChild(int key) {
+            int index = indexOf(key);
+            int numMoved = count - index - 1;
+            System.arraycopy(keys, index + 1, keys, index, numMoved);
+            System.arraycopy(children, index + 1, children, index, numMoved);
+            children[--count] = null;
+            if (keys.length == 16 && count <= 3) {
+                Node shrunk = new SortedNode(prefix, 4);
+                for (int i = 0; i < count; i++) {
+                    shrunk.addChild(Byte.toUnsignedInt(keys[i]), children[i]);
+                }
+                return shrunk;
+            }
+            return this;
+        }
+
+        @Override
+        int nextKey(int from) {
+            for (int i = 0; i < count; i++) {
+                int key = Byte.toUnsignedInt(keys[i]);
+                if (key >= from) {
+                    return key;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Maps each byte to a slot in an array of 48 children.
+     */
+    private static class Node48 extends Node {
+        // slot + 1 of the child for each key, 0 if there is none
+        final byte[] index = new byte[256];
+        final Object[] children = new Object[48];
+
+        Node48(byte[] prefix) {
+            super(prefix);
+        }
+
+        @Override
+        Object findChild(int key) {
+            int slot = index[key];
+            return slot == 0 ? null : children[slot - 1];
+        }
+
+        @Override
+        void setChild(int key, Object child) {
+            children[index[key] - 1] = child;
+        }
+
+        @Override
+        Node addChild(int key, Object child) {
+            if (count == children.length) {
+                Node256 grown = new Node256(prefix);
+                for (int i = 0; i < 256; i++) {
+                    if (index[i] != 0) {
+                        grown.addChild(i, children[index[i] - 1]);
+                    }
+                }
+                return grown.addChild(key, child);
+            }
+            int slot = 0;
+            while (children[slot] != null) {
+                slot++;
+            }
+            children[slot] = child;
+            index[key] = (byte) (slot + 1);
+            count++;
+            return this;
+        }
+
+        @Override
+        Node removeChild(int key) {
+            children[index[key] - 1] = null;
+            index[key] = 0;
+            count--;
+            if (count <= 12) {
+                Node shrunk = new SortedNode(prefix, 16);
+                for (int i = 0; i < 256; i++) {
+                    if (index[i] != 0) {
+                        shrunk.addChild(i, children[index[i] - 1]);
+                    }
+                }
+                return shrunk;
+            }
+            return this;
+        }
+
+        @Override
+        int nextKey(int from) {
+            for (int i = from; i < 256; i++) {
+                if (index[i] != 0) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static class Node256 extends Node {
+        final Object[] children = new Object[256];
+
+        Node256(byte[] prefix) {
+            super(prefix);
+        }
+
+        @Override
+        Object findChild(int key) {
+            return children[key];
+        }
+
+        @Override
+        void setChild(int key, Object child) {
+            children[key] = child;
+        }
+
+        @Override
+        Node addChild(int key, Object child) {
+            children[key] = child;
+            count++;
+            return this;
+        }
+
+        @Override
+        Node removeChild(int key) {
+            children[key] = null;
+            count--;
+            if (count <= 40) {
+                Node shrunk = new Node48(prefix);
+                for (int i = 0; i < 256; i++) {
+                    if (children[i] != null) {
+                        shrunk.addChild(i, children[i]);
+                    }
+                }
+                return shrunk;
+            }
+            return this;
+        }
+
+        @Override
+        int nextKey(int from) {
+            for (int i = from; i < 256; i++) {
+                if (children[i] != null) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+
+    // null, a String or a Node
+    private Object root;
+    private int size = 0;
+    private int modCount = 0;
+    // set by insert() and delete() when they changed the tree
+    private boolean changed;
+
+    /**
+     * @return the order-preserving encoding of the key, terminated with a 0
+     */
+    static byte[] encode(CharSequence key) {
+        return encode(key, true);
+    }
+
+    private static byte[] encode(CharSequence key, boolean terminated) {
+        int length = key.length();
+        int encodedLength = terminated ? 1 : 0;
+        for (int i = 0; i < length; i++) {
+            encodedLength += key.charAt(i) < 0x7F ? 1 : 3;
+        }
+        byte[] bytes = new byte[encodedLength];
+        int pos = 0;
+        for (int i = 0; i < length; i++) {
+            char c = key.charAt(i);
+            if (c < 0x7F) {
+                bytes[pos++] = (byte) (c + 1);
+            } else {
+                bytes[pos++] = (byte) (0x80 | c >>> 14);
+                bytes[pos++] = (byte) (0x80 | (c >>> 7) & 0x7F);
+                bytes[pos++] = (byte) (0x80 | c & 0x7F);
+            }
+        }
+        return bytes;
+    }
+
+    private static byte[] slice(byte[] bytes, int from, int to) {
+        return from == to ? NO_PREFIX : Arrays.copyOfRange(bytes, from, to);
+    }
+
+    /**
+     * @return the number of bytes of the prefix of the node that match the
+     * key from the depth onwards
+     */
+    private static int matchPrefix(Node node, byte[] key, int depth) {
+        byte[] prefix = node.prefix;
+        int max = Math.min(prefix.length, key.length - depth);
+        int i = 0;
+        while (i < max && prefix[i] == key[depth + i]) {
+            i++;
+        }
+        return i;
+    }
+
+    @Override
+    public void add(String value) {
+        Objects.requireNonNull(value, "value");
+        changed = false;
+        root = insert(root, encode(value), 0, value);
+        if (changed) {
+            size++;
+            modCount++;
+        }
+    }
+
+    /**
+     * @return the node or key that replaces the given one in its parent
+     */
+    private Object insert(Object node, byte[] key, int depth, String value) {
+        if (node == null) {
+            changed = true;
+            return value;
+        }
+        if (node instanceof String existing) {
+            if (existing.equals(value)) {
+                return existing;
+            }
+            byte[] existingKey = encode(existing);
+            int mismatch = depth;
+            while (existingKey[mismatch] == key[mismatch]) {
+                mismatch++;
+            }
+            changed = true;
+            Node split = new SortedNode(slice(key, depth, mismatch), 4);
+            split.addChild(Byte.toUnsignedInt(existingKey[mismatch]), existing);
+            split.addChild(Byte.toUnsignedInt(key[mismatch]), value);
+            return split;
+        }
+        Node inner = (Node) node;
+        int matched = matchPrefix(inner, key, depth);
+        if (matched < inner.prefix.length) {
+            // the key leaves the compressed path, so we split it
+            changed = true;
+            byte[] prefix = inner.prefix;
+            Node split = new SortedNode(slice(prefix, 0, matched), 4);
+            inner.prefix = slice(prefix, matched + 1, prefix.length);
+            split.addChild(Byte.toUnsignedInt(prefix[matched]), inner);
+            split.addChild(Byte.toUnsignedInt(key[depth + matched]), value);
+            return split;
+        }
+        depth += matched;
+        int keyByte = Byte.toUnsignedInt(key[depth]);
+        Object child = inner.findChild(keyByte);
+        if (child == null) {
+            changed = true;
+            return inner.addChild(keyByte, value);
+        }
+        Object newChild = insert(child, key, depth + 1, value);
+        if (newChild != child) {
+            inner.setChild(keyByte, newChild);
+        }
+        return inner;
+    }
+
+    @Override
+    public boolean contains(String value) {
+        Objects.requireNonNull(value, "value");
+        byte[] key = encode(value);
+        Object node = root;
+        int depth = 0;
+        while (node instanceof Node inner) {
+            int matched = matchPrefix(inner, key, depth);
+            if (matched < inner.prefix.length) {
+                return false;
+            }
+            depth += matched;
+            node = inner.findChild(Byte.toUnsignedInt(key[depth++]));
+        }
+        // lazy expansion stored the key before we had looked at all its bytes
+        return value.equals(node);
+    }
+
+    @Override
+    public void remove(String value) {
+        Objects.requireNonNull(value, "value");
+        changed = false;
+        root = delete(root, encode(value), 0, value);
+        if (changed) {
+            size--;
+            modCount++;
+        }
+    }
+
+    private Object delete(Object node, byte[] key, int depth, String value) {
+        if (node == null) {
+            return null;
+        }
+        if (node instanceof String existing) {
+            if (existing.equals(value)) {
+                changed = true;
+                return null;
+            }
+            return existing;
+        }
+        Node inner = (Node) node;
+        int matched = matchPrefix(inner, key, depth);
+        if (matched < inner.prefix.length) {
+            return inner;
+        }
+        depth += matched;
+        int keyByte = Byte.toUnsignedInt(key[depth]);
+        Object child = inner.findChild(keyByte);
+        if (child == null) {
+            return inner;
+        }
+        Object newChild = delete(child, key, depth + 1, value);
+        if (newChild == child) {
+            return inner;
+        }
+        if (newChild != null) {
+            inner.setChild(keyByte, newChild);
+            return inner;
+        }
+        inner = inner.removeChild(keyByte);
+        if (inner.count > 1) {
+            return inner;
+        }
+        // only one child left, so we merge this node into it
+        int onlyKey = inner.nextKey(0);
+        Object onlyChild = inner.findChild(onlyKey);
+        if (onlyChild instanceof Node only) {
+            byte[] prefix = Arrays.copyOf(inner.prefix,
+                    inner.prefix.length + 1 + only.prefix.length);
+            prefix[inner.prefix.length] = (byte) onlyKey;
+            System.arraycopy(only.prefix, 0, prefix, inner.prefix.length + 1,
+                    only.prefix.length);
+            only.prefix = prefix;
+        }
+        return onlyChild;
+    }
+
+    /**
+     * @return the keys that start with the prefix, in sorted order
+     */
+    public Iterable<String> withPrefix(CharSequence prefix) {
+        Objects.requireNonNull(prefix, "prefix");
+        return () -> new KeyIterator(findPrefix(prefix));
+    }
+
+    /**
+     * @return the node or key under which all the keys with the prefix are,
+     * or null if there are none
+     */
+    private Object findPrefix(CharSequence prefix) {
+        byte[] key = encode(prefix, false);
+        Object node = root;
+        int depth = 0;
+        while (node instanceof Node inner && depth < key.length) {
+            int matched = matchPrefix(inner, key, depth);
+            depth += matched;
+            if (depth == key.length) {
+                break;
+            }
+            if (matched < inner.prefix.length) {
+                return null;
+            }
+            node = inner.findChild(Byte.toUnsignedInt(key[depth++]));
+        }
+        if (node instanceof String existing && !existing.startsWith(prefix.toString())) {
+            return null;
+        }
+        return node;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The Strings are the leaves, so the nodes are only the inner nodes,
+     * with their key, children and prefix arrays.  They come in four sizes,
+     * so we count them with their average size, and it takes a walk through
+     * the tree.
+     */
+    @Override
+    public Footprint footprint() {
+        long[] nodesAndBytes = new long[2];
+        addNodeBytes(root, nodesAndBytes);
+        // root, size, modCount and changed
+        return Footprint.ofUnevenNodes(ObjectLayout.objectSize(1, 2 * Integer.BYTES + 1),
+                nodesAndBytes[0], nodesAndBytes[1], 0);
+    }
+
+    private static void addNodeBytes(Object node, long[] nodesAndBytes) {
+        if (!(node instanceof Node inner)) {
+            return;
+        }
+        // prefix and count, and the arrays
+        long bytes = switch (inner) {
+            case SortedNode sorted -> ObjectLayout.objectSize(3, Integer.BYTES)
+                    + ObjectLayout.arraySize(sorted.keys.length, 1)
+                    + ObjectLayout.arraySize(sorted.children.length, ObjectLayout.REFERENCE_SIZE);
+            case Node48 node48 -> ObjectLayout.objectSize(3, Integer.BYTES)
+                    + ObjectLayout.arraySize(node48.index.length, 1)
+                    + ObjectLayout.arraySize(node48.children.length, ObjectLayout.REFERENCE_SIZE);
+            case Node256 node256 -> ObjectLayout.objectSize(2, Integer.BYTES)
+                    + ObjectLayout.arraySize(node256.children.length, ObjectLayout.REFERENCE_SIZE);
+            default -> throw new IllegalStateException("Unknown node " + inner);
+        };
+        if (inner.prefix != NO_PREFIX) {
+            bytes += ObjectLayout.arraySize(inner.prefix.length, 1);
+        }
+        nodesAndBytes[0]++;
+        nodesAndBytes[1] += bytes;
+        for (int key = inner.nextKey(0); key >= 0; key = inner.nextKey(key + 1)) {
+            addNodeBytes(inner.findChild(key), nodesAndBytes);
+        }
+    }
+
+    @Override
+    public int maxDepth() {
+        return depth(root);
+    }
+
+    private static int depth(Object node) {
+        if (!(node instanceof Node inner)) {
+            return node == null ? 0 : 1;
+        }
+        int max = 0;
+        for (int key = inner.nextKey(0); key >= 0; key = inner.nextKey(key + 1)) {
+            max = Math.max(max, depth(inner.findChild(key)));
+        }
+        return 1 + max;
+    }
+
+    @Override
+    public Iterator<String> iterator() {
+        return new KeyIterator(root);
+    }
+
+    /**
+     * Walks the subtree in order of the child keys, which is the String order.
+     */
+    private class KeyIterator implements Iterator<String> {
+        private final int initialModCount = modCount;
+        private final Deque<Node> nodeStack = new ArrayDeque<>();
+        // the next key to visit in each node on the stack
+        private final Deque<Integer> nextKeys = new ArrayDeque<>();
+        private String next;
+
+        KeyIterator(Object start) {
+            if (start instanceof Node inner) {
+                nodeStack.push(inner);
+                nextKeys.push(0);
+                advance();
+            } else {
+                next = (String) start;
+            }
+        }
+
+        private void advance() {
+            next = null;
+            while (!nodeStack.isEmpty()) {
+                Node node = nodeStack.peek();
+                int key = node.nextKey(nextKeys.pop());
+                if (key < 0) {
+                    nodeStack.pop();
+                    continue;
+                }
+                nextKeys.push(key + 1);
+                Object child = node.findChild(key);
+                if (child instanceof Node inner) {
+                    nodeStack.push(inner);
+                    nextKeys.push(0);
+                } else {
+                    next = (String) child;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public String next() {
+            if (modCount != initialModCount)
+                throw new ConcurrentModificationException();
+            if (!hasNext()) throw new NoSuchElementException();
+            String result = next;
+            advance();
+            return result;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Recorded whenever an array-backed list copies its elements into a new
+ * array.  Disabled by default.
+ */
+@Name("eu.javaspecialists.twitch.ArrayResize")
+@Label("Array Resize")
+@Category({"JavaSpecialists", "Lists"})
+@Description("A list grew or shrank its backing array")
+@Enabled(false)
+final class ArrayResizeEvent extends jdk.jfr.Event {
+    @Label("List Class")
+    String listClass;
+
+    @Label("Old Capacity")
+    int oldCapacity;
+
+    @Label("New Capacity")
+    int newCapacity;
+
+    @Label("Copied Bytes")
+    @DataAmount
+    long copiedBytes;
+}
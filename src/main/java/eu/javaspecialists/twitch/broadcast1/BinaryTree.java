@@ -16,4 +16,14 @@ public interface BinaryTree<T extends Comparable<T>> extends Iterable<T> {
     }
 
     int maxDepth();
+
+    /**
+     * @return an estimate of the memory this tree retains, not counting its
+     * elements, see Footprint
+     */
+    Footprint footprint();
+
+    default long estimatedRetainedBytes() {
+        return footprint().totalBytes();
+    }
 }
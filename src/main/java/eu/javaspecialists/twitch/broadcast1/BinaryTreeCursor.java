@@ -0,0 +1,66 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A position in a BinaryTree that remembers the path from the root, so that
+ * operations near the previous position start from there, rather than from
+ * the root.  Seeking a value climbs only as far as the smallest subtree on
+ * the path that can contain it, and then descends again, which for keys that
+ * are close to each other is typically O(log d), where d is the number of
+ * elements between the old and the new position.
+ * <p>
+ * The cursor is fail-fast: if the tree is modified other than through the
+ * cursor, the next operation throws ConcurrentModificationException.
+ *
+ * @param <T> the type of elements stored in the tree
+ */
+public interface BinaryTreeCursor<T extends Comparable<T>> {
+    /**
+     * Moves to the smallest element greater than or equal to the value.
+     *
+     * @return true if the value is in the tree
+     */
+    boolean seek(T value);
+
+    /**
+     * @return the element at the cursor
+     * @throws NoSuchElementException if the cursor is not at an element,
+     *                                because the tree is empty, or because
+     *                                it moved past either end
+     */
+    T get();
+
+    /**
+     * @return true if the cursor is at an element
+     */
+    boolean isValid();
+
+    /**
+     * Moves to the next larger element.
+     *
+     * @return false if there is none, in which case the cursor is no longer
+     * valid
+     */
+    boolean next();
+
+    /**
+     * Moves to the next smaller element.
+     *
+     * @return false if there is none, in which case the cursor is no longer
+     * valid
+     */
+    boolean previous();
+
+    /**
+     * Adds the value, if it is absent, and moves the cursor to it.
+     */
+    void insert(T value);
+
+    /**
+     * Removes the element at the cursor and moves to the next larger one.
+     *
+     * @throws NoSuchElementException if the cursor is not at an element
+     */
+    void remove();
+}
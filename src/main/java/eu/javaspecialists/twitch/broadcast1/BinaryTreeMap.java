@@ -0,0 +1,94 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A sorted map, where each node of the tree carries its value next to the
+ * key, so that we need a single descent to find both.  Null keys and values
+ * are not allowed, so that a null return always means "absent".
+ *
+ * @param <K> the type of keys, which must implement Comparable
+ * @param <V> the type of values
+ */
+public interface BinaryTreeMap<K extends Comparable<K>, V> extends Iterable<Map.Entry<K, V>> {
+    /**
+     * @return the value for the key, or null if the key is absent
+     */
+    V get(K key);
+
+    default V getOrDefault(K key, V defaultValue) {
+        V value = get(key);
+        return value == null ? defaultValue : value;
+    }
+
+    boolean containsKey(K key);
+
+    /**
+     * @return the previous value for the key, or null if there was none
+     */
+    V put(K key, V value);
+
+    /**
+     * @return the value that was removed, or null if the key was absent
+     */
+    V remove(K key);
+
+    /**
+     * Returns the value for the key, or if the key is absent, inserts the
+     * value computed by the function, unless it returns null.
+     *
+     * @throws java.util.ConcurrentModificationException if the function
+     *                                                   modified this map
+     */
+    V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction);
+
+    /**
+     * Inserts the value if the key is absent, otherwise replaces the value
+     * with the result of the function applied to the old and given value.
+     * If the function returns null, the key is removed.
+     *
+     * @return the new value, or null if the key was removed
+     */
+    V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction);
+
+    /**
+     * @throws NoSuchElementException if the map is empty
+     */
+    K firstKey();
+
+    /**
+     * @throws NoSuchElementException if the map is empty
+     */
+    K lastKey();
+
+    /**
+     * @return the greatest key less than or equal to the key, or null
+     */
+    K floorKey(K key);
+
+    /**
+     * @return the least key greater than or equal to the key, or null
+     */
+    K ceilingKey(K key);
+
+    /**
+     * @return the greatest key strictly less than the key, or null
+     */
+    K lowerKey(K key);
+
+    /**
+     * @return the least key strictly greater than the key, or null
+     */
+    K higherKey(K key);
+
+    int size();
+
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    int maxDepth();
+}
@@ -0,0 +1,93 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+/**
+ * A minimal Bloom filter over the hashCode() of the elements.  It never
+ * reports a false negative, but may report a false positive with roughly the
+ * probability that it was sized for.  The number of bits is rounded up to a
+ * power of two, so that we can mask instead of doing a modulo per probe.
+ *
+ * @param <T> the type of elements, whose hashCode() must be consistent with
+ *            the equality used by the structure that the filter guards
+ */
+final class BloomFilter<T> {
+    private final long[] bits;
+    private final long mask;
+    private final int numberOfHashes;
+
+    BloomFilter(int expectedInsertions, double falsePositiveRate) {
+        if (expectedInsertions < 1) {
+            throw new IllegalArgumentException(
+                    "expectedInsertions=" + expectedInsertions);
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException(
+                    "falsePositiveRate=" + falsePositiveRate);
+        }
+        // m = -n ln(p) / (ln 2)^2, rounded up to a power of two
+        double optimalBits = -expectedInsertions * Math.log(falsePositiveRate)
+                / (Math.log(2) * Math.log(2));
+        long numberOfBits = Math.max(64, Long.highestOneBit(
+                (long) Math.ceil(optimalBits) - 1) << 1);
+        this.bits = new long[(int) (numberOfBits >>> 6)];
+        this.mask = numberOfBits - 1;
+        // k = m / n ln 2
+        this.numberOfHashes = Math.max(1, (int) Math.round(
+                (double) numberOfBits / expectedInsertions * Math.log(2)));
+    }
+
+    void add(T element) {
+        long hash = mix(element.hashCode());
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < numberOfHashes; i++) {
+            long bit = (h1 + (long) i * h2) & mask;
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    boolean mightContain(T element) {
+        long hash = mix(element.hashCode());
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < numberOfHashes; i++) {
+            long bit = (h1 + (long) i * h2) & mask;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The false positive rate we expect after the given number of distinct
+     * insertions: (1 - e^(-kn/m))^k
+     */
+    double expectedFalsePositiveRate(long insertions) {
+        double numberOfBits = mask + 1.0;
+        return Math.pow(1 - Math.exp(-numberOfHashes * insertions / numberOfBits),
+                numberOfHashes);
+    }
+
+    long memoryBytes() {
+        return (long) bits.length * Long.BYTES;
+    }
+
+    Footprint footprint() {
+        // bits, mask and numberOfHashes
+        return new Footprint(ObjectLayout.objectSize(1, Long.BYTES + Integer.BYTES), 0, 0,
+                ObjectLayout.arraySize(bits.length, Long.BYTES));
+    }
+
+    int numberOfHashes() {
+        return numberOfHashes;
+    }
+
+    // Stafford variant 13 of the murmur3 finalizer, so that weak hashCode()
+    // functions such as Integer's still spread over all the bits
+    private static long mix(int hashCode) {
+        long z = hashCode * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
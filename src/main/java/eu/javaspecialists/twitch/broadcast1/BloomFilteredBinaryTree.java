@@ -0,0 +1,147 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import java.util.Iterator;
+
+/**
+ * A BinaryTree decorator that keeps a Bloom filter in front of the tree, so
+ * that contains() for absent keys can usually return false without descending
+ * the tree and calling compareTo() log n times.
+ * <p>
+ * The filter is updated on every add().  Bloom filters cannot forget, so a
+ * remove() only marks the filter as stale; once enough elements have been
+ * removed, the next contains() rebuilds the filter from the tree.  The filter
+ * also grows by rebuilding when the tree outgrows its expected size.
+ *
+ * @param <T> the type of elements in the tree, whose hashCode() must be
+ *            consistent with compareTo()
+ */
+public class BloomFilteredBinaryTree<T extends Comparable<T>> implements BinaryTree<T> {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final double DEFAULT_FALSE_POSITIVE_RATE = 0.01;
+
+    private final BinaryTree<T> tree;
+    private final double falsePositiveRate;
+    private BloomFilter<T> filter;
+    private int capacity;
+    private long insertions;
+    private long removals;
+
+    private long lookups;
+    private long filterRejections;
+    private long falsePositives;
+
+    public BloomFilteredBinaryTree(BinaryTree<T> tree) {
+        this(tree, DEFAULT_FALSE_POSITIVE_RATE);
+    }
+
+    public BloomFilteredBinaryTree(BinaryTree<T> tree, double falsePositiveRate) {
+        this.tree = tree;
+        this.falsePositiveRate = falsePositiveRate;
+        this.capacity = INITIAL_CAPACITY;
+        rebuild();
+    }
+
+    @Override
+    public void add(T value) {
+        tree.add(value);
+        filter.add(value);
+        if (++insertions > capacity) {
+            rebuild();
+        }
+    }
+
+    @Override
+    public boolean contains(T value) {
+        if (removals > insertions / 2) {
+            rebuild();
+        }
+        lookups++;
+        if (!filter.mightContain(value)) {
+            filterRejections++;
+            return false;
+        }
+        if (tree.contains(value)) {
+            return true;
+        }
+        falsePositives++;
+        return false;
+    }
+
+    @Override
+    public void remove(T value) {
+        tree.remove(value);
+        removals++;
+    }
+
+    @Override
+    public int size() {
+        return tree.size();
+    }
+
+    @Override
+    public Footprint footprint() {
+        // tree, filter, falsePositiveRate, capacity and the five counts
+        return tree.footprint().plus(filter.footprint()).plus(new Footprint(
+                ObjectLayout.objectSize(2, Double.BYTES + Integer.BYTES + 5 * Long.BYTES), 0, 0, 0));
+    }
+
+    @Override
+    public int maxDepth() {
+        return tree.maxDepth();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return tree.iterator();
+    }
+
+    /**
+     * Rebuilds the filter from the elements currently in the tree, sized for
+     * twice as many elements, so that adds do not immediately trigger the
+     * next rebuild.
+     */
+    private void rebuild() {
+        int size = tree.size();
+        capacity = Math.max(capacity, Math.max(INITIAL_CAPACITY, 2 * size));
+        filter = new BloomFilter<>(capacity, falsePositiveRate);
+        for (T value : tree) {
+            filter.add(value);
+        }
+        insertions = size;
+        removals = 0;
+    }
+
+    /**
+     * The false positive rate that the filter is expected to have with the
+     * number of elements that have been added to it since it was last
+     * rebuilt, including those that were removed again.
+     */
+    public double expectedFalsePositiveRate() {
+        return filter.expectedFalsePositiveRate(insertions);
+    }
+
+    /**
+     * The observed rate at which the filter let lookups for absent keys
+     * through to the tree.
+     */
+    public double observedFalsePositiveRate() {
+        long negatives = filterRejections + falsePositives;
+        return negatives == 0 ? 0.0 : (double) falsePositives / negatives;
+    }
+
+    public long filterMemoryBytes() {
+        return filter.memoryBytes();
+    }
+
+    public long lookups() {
+        return lookups;
+    }
+
+    public long filterRejections() {
+        return filterRejections;
+    }
+
+    public long falsePositives() {
+        return falsePositives;
+    }
+}
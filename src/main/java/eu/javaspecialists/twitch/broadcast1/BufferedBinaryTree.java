@@ -0,0 +1,413 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * A BinaryTree front end that collects writes in a small sorted buffer, like
+ * the memtable of a log-structured merge tree, and applies them to the base
+ * tree later, in key order.  A remove() of an element in the base tree is
+ * recorded as a tombstone in the buffer.  Lookups check the buffer first,
+ * so the newest write wins.
+ * <p>
+ * When the buffer is full, it is merged into the frozen backlog, a larger
+ * sorted array, and a new buffer takes its place.  Writes never merge into
+ * the base tree themselves.  Reads merge several entries of the backlog
+ * each, so that after a burst of writes, the quiet period that follows does
+ * the rebalancing, rather than the writes.  Only if the reads do not keep
+ * up and the backlog has no room for another buffer does a write merge the
+ * whole backlog.  flush() merges everything on demand.
+ * <p>
+ * A write does not look at the layers below the buffer, since that would
+ * cost as much as the descent of the base tree's own add(), so the buffer
+ * may hold elements that are already in the base tree, and tombstones for
+ * elements that are not.  Merging them changes nothing, since add() and
+ * remove() of the base tree ignore those.  To maintain the size anyway, every
+ * entry remembers whether its element is in the layers below it, once we
+ * know: merging looks that up before it changes the base tree, and size()
+ * looks it up for the entries that have not been merged yet, without
+ * merging them.
+ * <p>
+ * Iteration merges the buffer with the base tree, after first completing
+ * the merge of a frozen buffer, if there is one.  Like the trees themselves,
+ * this class is not thread-safe, so merging happens in the calling thread,
+ * not in the background.
+ *
+ * @param <T> the type of elements stored in the tree
+ */
+public class BufferedBinaryTree<T extends Comparable<T>> implements BinaryTree<T> {
+    static final int DEFAULT_CAPACITY = 512;
+    static final int DEFAULT_BACKLOG = 16 * 1024;
+    // entries merged by each read, which has time to spare
+    static final int READ_MERGE_STEP = 8;
+
+    // whether the element of an entry is in the layers below it
+    private static final byte UNKNOWN = 0;
+    private static final byte ABSENT = 1;
+    private static final byte PRESENT = 2;
+
+    /**
+     * A sorted array of entries, each either live or a tombstone.
+     */
+    private static final class Buffer<T extends Comparable<T>> {
+        final Object[] keys;
+        final boolean[] tombstones;
+        final byte[] below;
+        int size;
+
+        Buffer(int capacity) {
+            keys = new Object[capacity];
+            tombstones = new boolean[capacity];
+            below = new byte[capacity];
+        }
+
+        /**
+         * @return how much the entry adds to the size, if we know
+         * whether its element is below it, otherwise 0
+         */
+        int delta(int index) {
+            if (below[index] == UNKNOWN) {
+                return 0;
+            }
+            return (tombstones[index] ? 0 : 1) - (below[index] == PRESENT ? 1 : 0);
+        }
+
+        @SuppressWarnings("unchecked")
+        T key(int index) {
+            return (T) keys[index];
+        }
+
+        /**
+         * @return the index of the key, or -(insertion point) - 1
+         */
+        int indexOf(T key) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int cmp = key.compareTo(key(mid));
+                if (cmp == 0) {
+                    return mid;
+                }
+                if (cmp < 0) {
+                    high = mid - 1;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return -(low + 1);
+        }
+
+        void insert(int index, T key, boolean tombstone) {
+            System.arraycopy(keys, index, keys, index + 1, size - index);
+            System.arraycopy(tombstones, index, tombstones, index + 1, size - index);
+            System.arraycopy(below, index, below, index + 1, size - index);
+            keys[index] = key;
+            tombstones[index] = tombstone;
+            below[index] = UNKNOWN;
+            size++;
+        }
+
+        void append(Buffer<T> from, int index) {
+            keys[size] = from.keys[index];
+            tombstones[size] = from.tombstones[index];
+            below[size++] = from.below[index];
+        }
+
+        boolean isFull() {
+            return size == keys.length;
+        }
+    }
+
+    private final BinaryTree<T> base;
+    private final int capacity;
+    private final int backlog;
+    private Buffer<T> buffer;
+    // the backlog that we are merging into the base tree, from index merged, or null
+    private Buffer<T> frozen;
+    private int merged;
+    // the size, not counting the entries whose delta() we do not know yet
+    private int size;
+    private int modCount = 0;
+
+    public BufferedBinaryTree() {
+        this(new AVLBinaryTree<>(), DEFAULT_CAPACITY, DEFAULT_BACKLOG);
+    }
+
+    /**
+     * @param base     the tree that the buffer is merged into, which must
+     *                 not be modified other than through this front end
+     * @param capacity the number of entries in the buffer, and in the backlog
+     */
+    public BufferedBinaryTree(BinaryTree<T> base, int capacity) {
+        this(base, capacity, capacity);
+    }
+
+    /**
+     * @param base     the tree that the buffer is merged into, which must
+     *                 not be modified other than through this front end
+     * @param capacity the number of entries in the buffer
+     * @param backlog  the number of entries waiting to be merged into the
+     *                 base tree, beyond which a write merges them all
+     */
+    public BufferedBinaryTree(BinaryTree<T> base, int capacity, int backlog) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity=" + capacity);
+        }
+        if (backlog < capacity) {
+            throw new IllegalArgumentException("backlog=" + backlog + " < capacity=" + capacity);
+        }
+        this.base = Objects.requireNonNull(base, "base");
+        this.capacity = capacity;
+        this.backlog = backlog;
+        this.buffer = new Buffer<>(capacity);
+        this.size = base.size();
+    }
+
+    @Override
+    public void add(T value) {
+        write(value, false);
+    }
+
+    @Override
+    public void remove(T value) {
+        write(value, true);
+    }
+
+    private void write(T value, boolean tombstone) {
+        Objects.requireNonNull(value, "value");
+        modCount++;
+        int index = buffer.indexOf(value);
+        if (index >= 0) {
+            size -= buffer.delta(index);
+            buffer.tombstones[index] = tombstone;
+            size += buffer.delta(index);
+        } else {
+            if (buffer.isFull()) {
+                freeze();
+                index = -1;
+            }
+            buffer.insert(-index - 1, value, tombstone);
+        }
+    }
+
+    /**
+     * Merges the full buffer into the backlog, unless the reads have not
+     * kept up, in which case we first have to merge the backlog into the base
+     * tree.
+     */
+    private void freeze() {
+        if (frozen != null && frozen.size - merged + buffer.size > backlog) {
+            completeMerge();
+        }
+        frozen = frozen == null ? buffer : mergeIntoBacklog();
+        merged = 0;
+        buffer = new Buffer<>(capacity);
+    }
+
+    /**
+     * @return a new backlog with the entries of the old one that have not
+     * been merged yet, and those of the buffer, which win if both have the
+     * same key
+     */
+    private Buffer<T> mergeIntoBacklog() {
+        var result = new Buffer<T>(frozen.size - merged + buffer.size);
+        int i = merged;
+        int j = 0;
+        while (i < frozen.size || j < buffer.size) {
+            int cmp = i == frozen.size ? 1 : j == buffer.size ? -1
+                    : frozen.key(i).compareTo(buffer.key(j));
+            if (cmp < 0) {
+                result.append(frozen, i++);
+            } else if (cmp > 0) {
+                result.append(buffer, j++);
+            } else {
+                // the buffer entry now sits directly on the base tree
+                size -= frozen.delta(i) + buffer.delta(j);
+                result.append(buffer, j++);
+                result.below[result.size - 1] = frozen.below[i++];
+                size += result.delta(result.size - 1);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public boolean contains(T value) {
+        Objects.requireNonNull(value, "value");
+        if (frozen != null) {
+            merge(READ_MERGE_STEP);
+        }
+        int index = buffer.indexOf(value);
+        if (index >= 0) {
+            return !buffer.tombstones[index];
+        }
+        return containsBelow(value);
+    }
+
+    private boolean containsBelow(T value) {
+        if (frozen != null) {
+            int index = frozen.indexOf(value);
+            // entries before merged are in the base tree already
+            if (index >= merged) {
+                return !frozen.tombstones[index];
+            }
+        }
+        return base.contains(value);
+    }
+
+    private void merge(int entries) {
+        int end = Math.min(frozen.size, merged + entries);
+        for (; merged < end; merged++) {
+            if (frozen.below[merged] == UNKNOWN) {
+                resolve(frozen, merged, base.contains(frozen.key(merged)));
+            }
+            if (frozen.tombstones[merged]) {
+                base.remove(frozen.key(merged));
+            } else {
+                base.add(frozen.key(merged));
+            }
+        }
+        if (merged == frozen.size) {
+            frozen = null;
+        }
+    }
+
+    private void completeMerge() {
+        if (frozen != null) {
+            merge(frozen.size);
+        }
+    }
+
+    /**
+     * Merges all the buffered writes into the base tree.
+     */
+    public void flush() {
+        completeMerge();
+        if (buffer.size > 0) {
+            frozen = buffer;
+            merged = 0;
+            buffer = new Buffer<>(capacity);
+            completeMerge();
+        }
+    }
+
+    /**
+     * @return the number of writes that have not been merged yet
+     */
+    public int buffered() {
+        return buffer.size + (frozen == null ? 0 : frozen.size - merged);
+    }
+
+    private void resolve(Buffer<T> entries, int index, boolean present) {
+        entries.below[index] = present ? PRESENT : ABSENT;
+        size += entries.delta(index);
+    }
+
+    /**
+     * Looks up the elements of the entries that have not been merged yet,
+     * if we do not know yet whether they are below them, but does not merge
+     * them.
+     */
+    @Override
+    public int size() {
+        for (int i = 0; i < buffer.size; i++) {
+            if (buffer.below[i] == UNKNOWN) {
+                resolve(buffer, i, containsBelow(buffer.key(i)));
+            }
+        }
+        if (frozen != null) {
+            for (int i = merged; i < frozen.size; i++) {
+                if (frozen.below[i] == UNKNOWN) {
+                    resolve(frozen, i, base.contains(frozen.key(i)));
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * The buffer and the backlog are arrays, and the writes that have not
+     * been merged yet are not in the base tree.
+     */
+    @Override
+    public Footprint footprint() {
+        // base, buffer, frozen and five ints
+        long fixed = ObjectLayout.objectSize(3, 5 * Integer.BYTES);
+        long arrays = bufferBytes(buffer) + (frozen == null ? 0 : bufferBytes(frozen));
+        return base.footprint().plus(new Footprint(fixed, 0, 0, arrays));
+    }
+
+    private static long bufferBytes(Buffer<?> buffer) {
+        // keys, tombstones, below and size
+        return ObjectLayout.objectSize(3, Integer.BYTES)
+                + ObjectLayout.arraySize(buffer.keys.length, ObjectLayout.REFERENCE_SIZE)
+                + 2 * ObjectLayout.arraySize(buffer.keys.length, 1);
+    }
+
+    /**
+     * @return the maxDepth() of the base tree, after flushing
+     */
+    @Override
+    public int maxDepth() {
+        flush();
+        return base.maxDepth();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        completeMerge();
+        return new Iterator<>() {
+            private final int initialModCount = modCount;
+            private final Buffer<T> entries = buffer;
+            private final Iterator<T> baseIterator = base.iterator();
+            private int index = 0;
+            private T nextBase = advanceBase();
+            private T next = advance();
+
+            private T advanceBase() {
+                return baseIterator.hasNext() ? baseIterator.next() : null;
+            }
+
+            private T advance() {
+                while (true) {
+                    T entry = index < entries.size ? entries.key(index) : null;
+                    if (entry == null && nextBase == null) {
+                        return null;
+                    }
+                    int cmp = entry == null ? 1 : nextBase == null ? -1 : entry.compareTo(nextBase);
+                    if (cmp > 0) {
+                        T result = nextBase;
+                        nextBase = advanceBase();
+                        return result;
+                    }
+                    boolean tombstone = entries.tombstones[index++];
+                    if (cmp == 0) {
+                        // the buffer overrides the base tree
+                        nextBase = advanceBase();
+                    }
+                    if (!tombstone) {
+                        return entry;
+                    }
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public T next() {
+                if (modCount != initialModCount)
+                    throw new ConcurrentModificationException();
+                if (!hasNext()) throw new NoSuchElementException();
+                T result = next;
+                next = advance();
+                return result;
+            }
+        };
+    }
+}
@@ -0,0 +1,255 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * A SimpleList backed by a circular array, similar to java.util.ArrayDeque,
+ * but with indexed access.  Adding and removing at either end is O(1), and
+ * inserting or removing in the middle shifts whichever side is shorter, so
+ * edits near the front or the back are cheap.  This makes it a good FIFO work
+ * queue, where SimpleArrayList.removeAt(0) would shift the entire array.
+ *
+ * @param <T> the type of elements in the list
+ */
+public class CircularArrayList<T> implements SimpleList<T> {
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // length is always a power of two, so that we can mask instead of modulo
+    private Object[] elements;
+    private int head = 0;
+    private int size = 0;
+    private int modCount = 0;
+
+    public CircularArrayList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public CircularArrayList(int initialCapacity) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+        }
+        if (initialCapacity > 1 << 30) {
+            throw new OutOfMemoryError("Required array length too large");
+        }
+        int capacity = Integer.highestOneBit(Math.max(2, initialCapacity) - 1) << 1;
+        elements = new Object[capacity];
+    }
+
+    private int physical(int index) {
+        return (head + index) & (elements.length - 1);
+    }
+
+    @Override
+    public void add(T element) {
+        if (size == elements.length) {
+            grow();
+        }
+        elements[physical(size)] = element;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public void addFirst(T element) {
+        if (size == elements.length) {
+            grow();
+        }
+        head = (head - 1) & (elements.length - 1);
+        elements[head] = element;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public void add(int index, T element) {
+        if (index > size || index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (size == elements.length) {
+            grow();
+        }
+        int mask = elements.length - 1;
+        if (index < (size >> 1)) {
+            // shift the front part one to the left
+            head = (head - 1) & mask;
+            for (int i = 0; i < index; i++) {
+                elements[(head + i) & mask] = elements[(head + i + 1) & mask];
+            }
+        } else {
+            // shift the back part one to the right
+            for (int i = size; i > index; i--) {
+                elements[(head + i) & mask] = elements[(head + i - 1) & mask];
+            }
+        }
+        elements[(head + index) & mask] = element;
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Doubles the array and unwraps the elements, so that head is 0 again.
+     */
+    private void grow() {
+        if (elements.length == 1 << 30) {
+            throw new OutOfMemoryError("Required array length too large");
+        }
+        Object[] newElements = new Object[elements.length << 1];
+        int firstPart = Math.min(size, elements.length - head);
+        System.arraycopy(elements, head, newElements, 0, firstPart);
+        System.arraycopy(elements, 0, newElements, firstPart, size - firstPart);
+        elements = newElements;
+        head = 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index >= size || index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return (T) elements[physical(index)];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Footprint footprint() {
+        // elements, head, size and modCount
+        return new Footprint(ObjectLayout.objectSize(1, 3 * Integer.BYTES), 0, 0,
+                ObjectLayout.arraySize(elements.length, ObjectLayout.REFERENCE_SIZE));
+    }
+
+    @Override
+    public void removeAt(int index) {
+        if (index >= size || index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        int mask = elements.length - 1;
+        if (index < (size >> 1)) {
+            // shift the front part one to the right
+            for (int i = index; i > 0; i--) {
+                elements[(head + i) & mask] = elements[(head + i - 1) & mask];
+            }
+            elements[head] = null;
+            head = (head + 1) & mask;
+        } else {
+            // shift the back part one to the left
+            for (int i = index; i < size - 1; i++) {
+                elements[(head + i) & mask] = elements[(head + i + 1) & mask];
+            }
+            elements[(head + size - 1) & mask] = null;
+        }
+        size--;
+        modCount++;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T removeFirst() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        T element = (T) elements[head];
+        elements[head] = null;
+        head = (head + 1) & (elements.length - 1);
+        size--;
+        modCount++;
+        return element;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T removeLast() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        int tail = physical(size - 1);
+        T element = (T) elements[tail];
+        elements[tail] = null;
+        size--;
+        modCount++;
+        return element;
+    }
+
+    /**
+     * Compacts the surviving elements towards the head in a single pass.
+     */
+    @Override
+    public boolean removeIf(Predicate<? super T> filter) {
+        Objects.requireNonNull(filter, "filter");
+        int expectedModCount = modCount;
+        int mask = elements.length - 1;
+        int read = 0;
+        int write = 0;
+        try {
+            for (; read < size; read++) {
+                @SuppressWarnings("unchecked")
+                T element = (T) elements[(head + read) & mask];
+                if (!filter.test(element)) {
+                    elements[(head + write++) & mask] = element;
+                }
+            }
+        } finally {
+            for (; read < size; read++) {
+                elements[(head + write++) & mask] = elements[(head + read) & mask];
+            }
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (write < size) {
+                for (int i = write; i < size; i++) {
+                    elements[(head + i) & mask] = null;
+                }
+                size = write;
+                modCount++;
+            }
+        }
+        return read != write;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int position = 0;
+            private int expectedModCount = modCount;
+            private boolean nextCalled = false;
+
+            @Override
+            public boolean hasNext() {
+                return position < size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (expectedModCount != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                nextCalled = true;
+                return (T) elements[physical(position++)];
+            }
+
+            @Override
+            public void remove() {
+                if (!nextCalled)
+                    throw new IllegalStateException();
+                if (this.expectedModCount != modCount)
+                    throw new ConcurrentModificationException();
+                CircularArrayList.this.removeAt(position - 1);
+                this.position = this.position - 1;
+                this.expectedModCount = modCount;
+                nextCalled = false;
+            }
+        };
+    }
+}
@@ -0,0 +1,233 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A thread-safe, append-only SimpleList for many producer threads.
+ * <p>
+ * The elements live in segments that double in size, 16, 32, 64, ... so the
+ * list grows by allocating a new segment, never by copying the existing
+ * elements.  add() claims an index with getAndIncrement(), installs the
+ * segment with a compareAndSet() if it is not there yet, and writes the
+ * element into its slot.  Since producers may finish their writes out of
+ * order, we only publish a prefix of fully written slots: every producer
+ * helps to advance the published size past any slots that have been written,
+ * so add() is lock-free.  get(int) for an index below size() is wait-free.
+ * <p>
+ * Iteration is weakly consistent: it never throws a
+ * ConcurrentModificationException and sees at least the elements that were
+ * published when it started.  The spliterator instead covers exactly the
+ * elements published when it is first used, so that it can report its size.
+ * Nulls are not allowed, since an empty slot
+ * marks an element that is still being written.  Removal and insertion are
+ * not supported.
+ *
+ * @param <T> the type of elements in the list
+ */
+public class ConcurrentSegmentedList<T> implements SimpleList<T> {
+    private static final int FIRST_SEGMENT_BITS = 4;
+    private static final int FIRST_SEGMENT_SIZE = 1 << FIRST_SEGMENT_BITS;
+    private static final int SEGMENTS = 32 - FIRST_SEGMENT_BITS;
+
+    private final AtomicReferenceArray<AtomicReferenceArray<T>> segments =
+            new AtomicReferenceArray<>(SEGMENTS);
+    private final AtomicInteger claimed = new AtomicInteger();
+    private final AtomicInteger published = new AtomicInteger();
+
+    @Override
+    public void add(T element) {
+        Objects.requireNonNull(element, "element");
+        int index = claimed.getAndIncrement();
+        if (index < 0 || index > Integer.MAX_VALUE - FIRST_SEGMENT_SIZE) {
+            claimed.getAndDecrement();
+            throw new OutOfMemoryError("List too large");
+        }
+        int position = index + FIRST_SEGMENT_SIZE;
+        int segment = segmentOf(position);
+        segment(segment).set(offsetOf(position, segment), element);
+        publish();
+    }
+
+    /**
+     * Moves the published size forward over all the slots that have been
+     * written.  If we find an empty slot, its producer has not finished yet,
+     * and will advance the published size itself once it has.
+     */
+    private void publish() {
+        int size;
+        while ((size = published.get()) < claimed.get()) {
+            int position = size + FIRST_SEGMENT_SIZE;
+            int segment = segmentOf(position);
+            AtomicReferenceArray<T> array = segments.get(segment);
+            if (array == null || array.get(offsetOf(position, segment)) == null) {
+                return;
+            }
+            published.compareAndSet(size, size + 1);
+        }
+    }
+
+    private AtomicReferenceArray<T> segment(int segment) {
+        AtomicReferenceArray<T> array = segments.get(segment);
+        if (array == null) {
+            AtomicReferenceArray<T> newArray =
+                    new AtomicReferenceArray<>(FIRST_SEGMENT_SIZE << segment);
+            if (segments.compareAndSet(segment, null, newArray)) {
+                array = newArray;
+            } else {
+                array = segments.get(segment);
+            }
+        }
+        return array;
+    }
+
+    private static int segmentOf(int position) {
+        return 31 - Integer.numberOfLeadingZeros(position) - FIRST_SEGMENT_BITS;
+    }
+
+    private static int offsetOf(int position, int segment) {
+        return position - (FIRST_SEGMENT_SIZE << segment);
+    }
+
+    @Override
+    public T get(int index) {
+        int size = published.get();
+        if (index >= size || index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        int position = index + FIRST_SEGMENT_SIZE;
+        int segment = segmentOf(position);
+        return segments.get(segment).get(offsetOf(position, segment));
+    }
+
+    @Override
+    public int size() {
+        return published.get();
+    }
+
+    /**
+     * The segments double in size, so we count them as arrays, not nodes.
+     */
+    @Override
+    public Footprint footprint() {
+        // segments, claimed and published, and their objects
+        long fixed = ObjectLayout.objectSize(3, 0)
+                + ObjectLayout.objectSize(1, 0) + ObjectLayout.arraySize(SEGMENTS, ObjectLayout.REFERENCE_SIZE)
+                + 2 * ObjectLayout.objectSize(0, Integer.BYTES);
+        long arrays = 0;
+        for (int segment = 0; segment < SEGMENTS; segment++) {
+            AtomicReferenceArray<T> array = segments.get(segment);
+            if (array != null) {
+                arrays += ObjectLayout.objectSize(1, 0)
+                        + ObjectLayout.arraySize(array.length(), ObjectLayout.REFERENCE_SIZE);
+            }
+        }
+        return new Footprint(fixed, 0, 0, arrays);
+    }
+
+    @Override
+    public void removeAt(int index) {
+        throw new UnsupportedOperationException("append-only list");
+    }
+
+    @Override
+    public void add(int index, T element) {
+        throw new UnsupportedOperationException("append-only list");
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int position = 0;
+
+            @Override
+            public boolean hasNext() {
+                return position < published.get();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return get(position++);
+            }
+        };
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return new SegmentSpliterator(0, -1);
+    }
+
+    /**
+     * Splits by index over a snapshot of the published size, taken on first
+     * use.  The published elements never change, so unlike the iterator, the
+     * spliterator never yields more than estimateSize() elements, even while
+     * producers keep adding.
+     */
+    private final class SegmentSpliterator implements Spliterator<T> {
+        private int index;
+        private int fence; // -1 until first used
+
+        SegmentSpliterator(int origin, int fence) {
+            this.index = origin;
+            this.fence = fence;
+        }
+
+        private int getFence() {
+            int hi;
+            if ((hi = fence) < 0) {
+                hi = fence = published.get();
+            }
+            return hi;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int hi = getFence();
+            int lo = index;
+            int mid = (lo + hi) >>> 1;
+            return lo >= mid ? null : new SegmentSpliterator(lo, index = mid);
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            Objects.requireNonNull(action, "action");
+            int hi = getFence();
+            int i = index;
+            if (i < hi) {
+                index = i + 1;
+                action.accept(get(i));
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            Objects.requireNonNull(action, "action");
+            int hi = getFence();
+            for (int i = index; i < hi; i++) {
+                action.accept(get(i));
+            }
+            index = hi;
+        }
+
+        @Override
+        public long estimateSize() {
+            return getFence() - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED |
+                    Spliterator.NONNULL | Spliterator.IMMUTABLE;
+        }
+    }
+}
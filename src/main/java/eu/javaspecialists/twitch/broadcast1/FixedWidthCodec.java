@@ -0,0 +1,120 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * Writes and reads values of type T as records of exactly byteSize() bytes,
+ * so that OffHeapSimpleList can find element i at offset i * byteSize().
+ *
+ * @param <T> the type of values encoded
+ */
+public interface FixedWidthCodec<T> {
+    /**
+     * @return the number of bytes that each value occupies
+     */
+    long byteSize();
+
+    void write(MemorySegment segment, long offset, T value);
+
+    T read(MemorySegment segment, long offset);
+
+    static FixedWidthCodec<Long> longs() {
+        return new FixedWidthCodec<>() {
+            @Override
+            public long byteSize() {
+                return Long.BYTES;
+            }
+
+            @Override
+            public void write(MemorySegment segment, long offset, Long value) {
+                segment.set(ValueLayout.JAVA_LONG, offset, value);
+            }
+
+            @Override
+            public Long read(MemorySegment segment, long offset) {
+                return segment.get(ValueLayout.JAVA_LONG, offset);
+            }
+        };
+    }
+
+    static FixedWidthCodec<Integer> ints() {
+        return new FixedWidthCodec<>() {
+            @Override
+            public long byteSize() {
+                return Integer.BYTES;
+            }
+
+            @Override
+            public void write(MemorySegment segment, long offset, Integer value) {
+                segment.set(ValueLayout.JAVA_INT, offset, value);
+            }
+
+            @Override
+            public Integer read(MemorySegment segment, long offset) {
+                return segment.get(ValueLayout.JAVA_INT, offset);
+            }
+        };
+    }
+
+    static FixedWidthCodec<Double> doubles() {
+        return new FixedWidthCodec<>() {
+            @Override
+            public long byteSize() {
+                return Double.BYTES;
+            }
+
+            @Override
+            public void write(MemorySegment segment, long offset, Double value) {
+                segment.set(ValueLayout.JAVA_DOUBLE, offset, value);
+            }
+
+            @Override
+            public Double read(MemorySegment segment, long offset) {
+                return segment.get(ValueLayout.JAVA_DOUBLE, offset);
+            }
+        };
+    }
+
+    /**
+     * Stores strings of up to maxLength chars as a short length followed by
+     * the UTF-16 chars, padded to the full width.
+     *
+     * @throws IllegalArgumentException on write if a string is too long
+     */
+    static FixedWidthCodec<String> strings(int maxLength) {
+        if (maxLength <= 0 || maxLength > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("maxLength=" + maxLength);
+        }
+        return new FixedWidthCodec<>() {
+            @Override
+            public long byteSize() {
+                return Short.BYTES + (long) Character.BYTES * maxLength;
+            }
+
+            @Override
+            public void write(MemorySegment segment, long offset, String value) {
+                int length = value.length();
+                if (length > maxLength) {
+                    throw new IllegalArgumentException(
+                            "length " + length + " exceeds maxLength " + maxLength);
+                }
+                segment.set(ValueLayout.JAVA_SHORT_UNALIGNED, offset, (short) length);
+                for (int i = 0; i < length; i++) {
+                    segment.set(ValueLayout.JAVA_CHAR_UNALIGNED,
+                            offset + Short.BYTES + (long) Character.BYTES * i, value.charAt(i));
+                }
+            }
+
+            @Override
+            public String read(MemorySegment segment, long offset) {
+                char[] chars = new char[segment.get(ValueLayout.JAVA_SHORT_UNALIGNED, offset)];
+                for (int i = 0; i < chars.length; i++) {
+                    chars[i] = segment.get(ValueLayout.JAVA_CHAR_UNALIGNED,
+                            offset + Short.BYTES + (long) Character.BYTES * i);
+                }
+                return new String(chars);
+            }
+        };
+    }
+}
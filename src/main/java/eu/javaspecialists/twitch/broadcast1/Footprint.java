@@ -0,0 +1,55 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+/**
+ * An estimate of the memory that a structure retains, broken down into the
+ * structure object itself, its nodes and its arrays.  The estimate is
+ * computed from the fields of the classes and the object layout of the
+ * running JVM, see ObjectLayout.  It does not include the elements, which
+ * may be shared with other structures, nor shared objects such as growth
+ * policies or comparators.
+ *
+ * @param fixedBytes   the object of the structure itself, plus anything it
+ *                     allocates once, such as an index
+ * @param nodes        the number of nodes, entries or chunks
+ * @param bytesPerNode the size of each node, including any array that it owns
+ * @param arrayBytes   the backing arrays, including their unused capacity,
+ *                     and any memory outside of the heap
+ */
+public record Footprint(long fixedBytes, long nodes, long bytesPerNode, long arrayBytes) {
+    /**
+     * @return a footprint of nodes that differ in size, and take up
+     * nodeBytes together, so we count them with their average size, rounded
+     * down, and add the remainder to fixedBytes, so that totalBytes() stays
+     * exact
+     */
+    static Footprint ofUnevenNodes(long fixedBytes, long nodes, long nodeBytes, long arrayBytes) {
+        if (nodes == 0) {
+            return new Footprint(fixedBytes + nodeBytes, 0, 0, arrayBytes);
+        }
+        return new Footprint(fixedBytes + nodeBytes % nodes, nodes, nodeBytes / nodes, arrayBytes);
+    }
+
+    /**
+     * @return the footprint of a structure made of this one and the other,
+     * for example a wrapper and the structure that it delegates to
+     */
+    public Footprint plus(Footprint other) {
+        if (bytesPerNode == other.bytesPerNode || other.nodes == 0) {
+            return new Footprint(fixedBytes + other.fixedBytes, nodes + other.nodes,
+                    bytesPerNode, arrayBytes + other.arrayBytes);
+        }
+        if (nodes == 0) {
+            return other.plus(this);
+        }
+        return ofUnevenNodes(fixedBytes + other.fixedBytes, nodes + other.nodes,
+                nodes * bytesPerNode + other.nodes * other.bytesPerNode,
+                arrayBytes + other.arrayBytes);
+    }
+
+    /**
+     * @return the estimated retained bytes of the structure
+     */
+    public long totalBytes() {
+        return fixedBytes + nodes * bytesPerNode + arrayBytes;
+    }
+}
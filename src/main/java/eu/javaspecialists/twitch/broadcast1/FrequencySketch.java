@@ -0,0 +1,93 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+/**
+ * A count-min sketch with 4-bit counters, which estimates how often each
+ * element was seen recently, in a fixed amount of memory.  Every element maps
+ * to one counter in each of four rows; it is incremented in all of them and
+ * its frequency is the minimum, so collisions can only overestimate.
+ * <p>
+ * To forget old history, all counters are halved once we have counted ten
+ * times as many accesses as the maximum size, which is what TinyLFU calls
+ * aging.  The counters saturate at 15, which is plenty to compare a popular
+ * element against an unpopular one.
+ *
+ * @param <T> the type of elements, whose hashCode() must be consistent with
+ *            equals()
+ */
+final class FrequencySketch<T> {
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L,
+            0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    // each long holds sixteen 4-bit counters
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(long maximumSize) {
+        // one long, which is sixteen counters, per element in the cache
+        int length = (int) Math.min(Math.max(maximumSize, 16), 1 << 26);
+        length = Integer.highestOneBit(length - 1) << 1;
+        this.table = new long[length];
+        this.tableMask = length - 1;
+        this.sampleSize = (int) Math.min(10L * Math.max(maximumSize, 16), Integer.MAX_VALUE);
+    }
+
+    void increment(T element) {
+        long hash = mix(element.hashCode());
+        boolean added = false;
+        for (int row = 0; row < SEEDS.length; row++) {
+            long h = hash(hash, row);
+            int index = (int) h & tableMask;
+            int shift = (int) (h >>> 60) << 2;
+            if (((table[index] >>> shift) & 0xF) < 0xF) {
+                table[index] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    int frequency(T element) {
+        long hash = mix(element.hashCode());
+        int frequency = 0xF;
+        for (int row = 0; row < SEEDS.length; row++) {
+            long h = hash(hash, row);
+            int shift = (int) (h >>> 60) << 2;
+            frequency = Math.min(frequency,
+                    (int) ((table[(int) h & tableMask] >>> shift) & 0xF));
+        }
+        return frequency;
+    }
+
+    /**
+     * Halves all the counters, so that recent accesses count for more.
+     */
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions >>>= 1;
+    }
+
+    long memoryBytes() {
+        return (long) table.length * Long.BYTES;
+    }
+
+    private static long hash(long hash, int row) {
+        long h = (hash + SEEDS[row]) * SEEDS[row];
+        return h ^ (h >>> 29);
+    }
+
+    // Stafford variant 13 of the murmur3 finalizer, as in BloomFilter
+    private static long mix(int hashCode) {
+        long z = hashCode * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
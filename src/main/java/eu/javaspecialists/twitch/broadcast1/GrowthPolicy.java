@@ -0,0 +1,76 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+/**
+ * Decides how much an array-backed list grows when it runs out of space.
+ * The returned capacity may be larger than the maximum array size, or even
+ * smaller than what is needed, in which case the list clamps it.
+ */
+@FunctionalInterface
+public interface GrowthPolicy {
+    // Some VMs reserve header words in arrays, so stay a bit below MAX_VALUE
+    int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    /**
+     * @param currentCapacity the current length of the backing array
+     * @return the proposed new length of the backing array
+     */
+    long nextCapacity(int currentCapacity);
+
+    /**
+     * Clamps the proposed nextCapacity() so that it is at least minCapacity,
+     * but not larger than the maximum array size.
+     *
+     * @throws OutOfMemoryError if minCapacity is negative, because size + 1
+     *                          overflowed, or larger than an array can be
+     */
+    default int newCapacity(int currentCapacity, int minCapacity) {
+        if (minCapacity < 0 || minCapacity > MAX_ARRAY_SIZE) {
+            throw new OutOfMemoryError("Required array length too large");
+        }
+        long newCapacity = nextCapacity(currentCapacity);
+        if (newCapacity < minCapacity) {
+            return minCapacity;
+        }
+        return (int) Math.min(newCapacity, MAX_ARRAY_SIZE);
+    }
+
+    /**
+     * Doubles the capacity, which gives the fewest copies, but wastes up to
+     * half of the array.
+     */
+    static GrowthPolicy doubling() {
+        return currentCapacity -> 2L * currentCapacity;
+    }
+
+    /**
+     * Grows by 50%, like java.util.ArrayList.
+     */
+    static GrowthPolicy oneAndAHalf() {
+        return currentCapacity -> currentCapacity + (currentCapacity >> 1);
+    }
+
+    /**
+     * Grows by a fixed number of elements.  This wastes very little memory,
+     * but makes filling the list quadratic, so only use it for lists that
+     * are expected to stay close to their initial capacity.
+     */
+    static GrowthPolicy fixedIncrement(int increment) {
+        if (increment < 1) {
+            throw new IllegalArgumentException("increment=" + increment);
+        }
+        return currentCapacity -> (long) currentCapacity + increment;
+    }
+
+    /**
+     * Grows by 50%, rounded up to a multiple of chunkSize.
+     */
+    static GrowthPolicy chunked(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException("chunkSize=" + chunkSize);
+        }
+        return currentCapacity -> {
+            long proposed = currentCapacity + (currentCapacity >> 1) + 1;
+            return (proposed + chunkSize - 1) / chunkSize * chunkSize;
+        };
+    }
+}
@@ -0,0 +1,150 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
+/**
+ * SimpleArrayList specialized for ints.  Elements are stored in an int[],
+ * so they take 4 bytes each, instead of a reference plus a boxed Integer.
+ */
+public class IntSimpleArrayList implements IntSimpleList {
+    private static final int DEFAULT_CAPACITY = 10;
+
+    private final GrowthPolicy growthPolicy;
+    private int[] elements;
+    private int size = 0;
+    private int modCount = 0;
+
+    public IntSimpleArrayList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntSimpleArrayList(int initialCapacity) {
+        this(initialCapacity, GrowthPolicy.doubling());
+    }
+
+    public IntSimpleArrayList(int initialCapacity, GrowthPolicy growthPolicy) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+        }
+        this.elements = new int[initialCapacity];
+        this.growthPolicy = Objects.requireNonNull(growthPolicy, "growthPolicy");
+    }
+
+    @Override
+    public void add(int element) {
+        if (size == elements.length) {
+            grow(size + 1);
+        }
+        elements[size] = element;
+        size++;
+        modCount++;
+    }
+
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > elements.length) {
+            grow(minCapacity);
+        }
+    }
+
+    public void trimToSize() {
+        if (size < elements.length) {
+            elements = Arrays.copyOf(elements, size);
+            modCount++;
+        }
+    }
+
+    int capacity() {
+        return elements.length;
+    }
+
+    private void grow(int minCapacity) {
+        elements = Arrays.copyOf(elements,
+                growthPolicy.newCapacity(elements.length, minCapacity));
+    }
+
+    @Override
+    public int getInt(int index) {
+        if (index >= size || index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return elements[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Footprint footprint() {
+        // growthPolicy, elements, size and modCount
+        return new Footprint(ObjectLayout.objectSize(2, 2 * Integer.BYTES), 0, 0,
+                ObjectLayout.arraySize(elements.length, Integer.BYTES));
+    }
+
+    @Override
+    public void removeAt(int index) {
+        if (index >= size || index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        modCount++;
+    }
+
+    @Override
+    public void forEach(IntConsumer action) {
+        Objects.requireNonNull(action, "action");
+        int expectedModCount = modCount;
+        int[] elements = this.elements;
+        for (int i = 0, size = this.size; i < size && expectedModCount == modCount; i++) {
+            action.accept(elements[i]);
+        }
+        if (expectedModCount != modCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private int position = 0;
+            private int expectedModCount = modCount;
+            private boolean nextCalled = false;
+
+            @Override
+            public boolean hasNext() {
+                return position < size;
+            }
+
+            @Override
+            public int nextInt() {
+                if (expectedModCount != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                nextCalled = true;
+                return elements[position++];
+            }
+
+            @Override
+            public void remove() {
+                if (!nextCalled)
+                    throw new IllegalStateException();
+                if (this.expectedModCount != modCount)
+                    throw new ConcurrentModificationException();
+                IntSimpleArrayList.this.removeAt(position - 1);
+                this.position = this.position - 1;
+                this.expectedModCount = modCount;
+                nextCalled = false;
+            }
+        };
+    }
+}
@@ -0,0 +1,35 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
+/**
+ * A SimpleList of primitive ints, so that we do not need to box each element.
+ */
+public interface IntSimpleList {
+    void add(int element);
+
+    int getInt(int index);
+
+    int size();
+
+    void removeAt(int index);
+
+    PrimitiveIterator.OfInt iterator();
+
+    default void forEach(IntConsumer action) {
+        for (var it = iterator(); it.hasNext(); ) {
+            action.accept(it.nextInt());
+        }
+    }
+
+    /**
+     * @return an estimate of the memory this list retains, including its
+     * elements, since they are primitives, see Footprint
+     */
+    Footprint footprint();
+
+    default long estimatedRetainedBytes() {
+        return footprint().totalBytes();
+    }
+}
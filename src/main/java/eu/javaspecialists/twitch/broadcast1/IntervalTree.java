@@ -0,0 +1,173 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * A set of closed intervals [start, end] that can find all the intervals
+ * overlapping a query range without looking at the others.  The intervals
+ * are kept in a RedBlackBinaryTreeMap, sorted by start, and every node also
+ * records the maximum end of all the intervals in its subtree.  The map
+ * calls update() whenever the children of a node change, including during
+ * rotations, so the maximum stays correct as the tree rebalances.
+ * <p>
+ * A query skips every subtree whose maximum end is before the range, and
+ * every right subtree whose start is after it.  Each reported interval costs
+ * at most one path of O(log n), so a query that finds k intervals takes
+ * O(log n + k log n) in the worst case, and typically close to O(log n + k).
+ *
+ * @param <T> the type of the interval endpoints
+ */
+public class IntervalTree<T extends Comparable<T>> implements BinaryTree<IntervalTree.Interval<T>> {
+    public record Interval<T extends Comparable<T>>(T start, T end)
+            implements Comparable<Interval<T>> {
+        public Interval {
+            Objects.requireNonNull(start, "start");
+            Objects.requireNonNull(end, "end");
+            if (start.compareTo(end) > 0) {
+                throw new IllegalArgumentException("start " + start + " > end " + end);
+            }
+        }
+
+        public boolean overlaps(T from, T to) {
+            return start.compareTo(to) <= 0 && end.compareTo(from) >= 0;
+        }
+
+        @Override
+        public int compareTo(Interval<T> that) {
+            int cmp = start.compareTo(that.start);
+            return cmp != 0 ? cmp : end.compareTo(that.end);
+        }
+    }
+
+    private static final class IntervalNode<T extends Comparable<T>>
+            extends AbstractBinaryTreeMap.Node<Interval<T>, Boolean> {
+        T maxEnd;
+
+        IntervalNode(Interval<T> key) {
+            super(key, Boolean.TRUE);
+            maxEnd = key.end();
+        }
+    }
+
+    private static final class MaxEndTree<T extends Comparable<T>>
+            extends RedBlackBinaryTreeMap<Interval<T>, Boolean> {
+        @Override
+        Node<Interval<T>, Boolean> createNode(Interval<T> key, Boolean value) {
+            return new IntervalNode<>(key);
+        }
+
+        @Override
+        void update(Node<Interval<T>, Boolean> node) {
+            super.update(node);
+            T maxEnd = node.key.end();
+            if (node.left != null) maxEnd = max(maxEnd, maxEnd(node.left));
+            if (node.right != null) maxEnd = max(maxEnd, maxEnd(node.right));
+            ((IntervalNode<T>) node).maxEnd = maxEnd;
+        }
+    }
+
+    private final MaxEndTree<T> tree = new MaxEndTree<>();
+
+    private static <T extends Comparable<T>> T max(T a, T b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+
+    private static <T extends Comparable<T>> T maxEnd(AbstractBinaryTreeMap.Node<Interval<T>, Boolean> node) {
+        return ((IntervalNode<T>) node).maxEnd;
+    }
+
+    public void add(T start, T end) {
+        add(new Interval<>(start, end));
+    }
+
+    @Override
+    public void add(Interval<T> interval) {
+        tree.put(interval, Boolean.TRUE);
+    }
+
+    @Override
+    public boolean contains(Interval<T> interval) {
+        return tree.containsKey(interval);
+    }
+
+    @Override
+    public void remove(Interval<T> interval) {
+        tree.remove(interval);
+    }
+
+    /**
+     * @return all the intervals that overlap [from, to], sorted by start
+     */
+    public List<Interval<T>> overlapping(T from, T to) {
+        var result = new ArrayList<Interval<T>>();
+        forEachOverlapping(from, to, result::add);
+        return result;
+    }
+
+    /**
+     * @return all the intervals that contain the point, sorted by start
+     */
+    public List<Interval<T>> stabbing(T point) {
+        return overlapping(point, point);
+    }
+
+    public void forEachOverlapping(T from, T to, Consumer<? super Interval<T>> action) {
+        Objects.requireNonNull(from, "from");
+        Objects.requireNonNull(to, "to");
+        Objects.requireNonNull(action, "action");
+        forEachOverlapping(tree.root(), from, to, action);
+    }
+
+    private void forEachOverlapping(AbstractBinaryTreeMap.Node<Interval<T>, Boolean> node,
+                                    T from, T to, Consumer<? super Interval<T>> action) {
+        while (node != null && maxEnd(node).compareTo(from) >= 0) {
+            forEachOverlapping(node.left, from, to, action);
+            Interval<T> interval = node.key;
+            if (interval.start().compareTo(to) > 0) {
+                return;
+            }
+            if (interval.end().compareTo(from) >= 0) {
+                action.accept(interval);
+            }
+            node = node.right;
+        }
+    }
+
+    @Override
+    public int size() {
+        return tree.size();
+    }
+
+    @Override
+    public Footprint footprint() {
+        // tree, and the key, value, left, right, meta and maxEnd of each node
+        return tree.footprint(0, 0, ObjectLayout.objectSize(5, Integer.BYTES))
+                .plus(new Footprint(ObjectLayout.objectSize(1, 0), 0, 0, 0));
+    }
+
+    @Override
+    public int maxDepth() {
+        return tree.maxDepth();
+    }
+
+    @Override
+    public Iterator<Interval<T>> iterator() {
+        Iterator<Map.Entry<Interval<T>, Boolean>> entries = tree.iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @Override
+            public Interval<T> next() {
+                return entries.next().getKey();
+            }
+        };
+    }
+}
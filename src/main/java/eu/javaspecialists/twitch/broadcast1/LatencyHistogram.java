@@ -0,0 +1,103 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+/**
+ * A histogram of latencies in nanoseconds, with log-linear buckets in the
+ * style of HdrHistogram.  Values below SUB_BUCKETS have a bucket each, and
+ * every power of two above that is split into SUB_BUCKETS / 2 buckets, so
+ * the values in a bucket are within 1/64 of each other, about two
+ * significant digits, and all of a long fits into under 4000 buckets.
+ * Recording is an array increment, with no allocation.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+
+    private final long[] counts = new long[bucketIndex(Long.MAX_VALUE) + 1];
+    private long count;
+    private long total;
+    private long max;
+
+    static int bucketIndex(long value) {
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        if (shift <= 0) {
+            return (int) value;
+        }
+        return (shift << (SUB_BUCKET_BITS - 1)) + (int) (value >>> shift);
+    }
+
+    /**
+     * @return the largest value that falls into the bucket
+     */
+    static long highestValueIn(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index >> (SUB_BUCKET_BITS - 1)) - 1;
+        long subBucket = index - ((long) shift << (SUB_BUCKET_BITS - 1));
+        return ((subBucket + 1) << shift) - 1;
+    }
+
+    /**
+     * @param nanos the latency, which is clamped to 0 if it is negative
+     */
+    public void record(long nanos) {
+        nanos = Math.max(0, nanos);
+        counts[bucketIndex(nanos)]++;
+        count++;
+        total += nanos;
+        max = Math.max(max, nanos);
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public long max() {
+        return max;
+    }
+
+    public double mean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the highest value in the bucket of that percentile, so it
+     * overestimates by at most the bucket width, but never more than max()
+     */
+    public long percentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile=" + percentile);
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(highestValueIn(i), max);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Adds the counts of the other histogram to this one.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count = %,d, mean = %.0fns, p50 = %dns, p90 = %dns, " +
+                        "p99 = %dns, p99.9 = %dns, p99.99 = %dns, max = %dns",
+                count, mean(), percentile(50), percentile(90), percentile(99),
+                percentile(99.9), percentile(99.99), max);
+    }
+}
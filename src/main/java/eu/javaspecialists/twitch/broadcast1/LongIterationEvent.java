@@ -0,0 +1,39 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Recorded when an iteration, from creating the iterator until hasNext()
+ * first returns false, takes longer than the threshold.  Iterations that are
+ * abandoned early are not recorded.  Disabled by default, and the iterators
+ * only allocate the event while a recording has it enabled.
+ */
+@Name("eu.javaspecialists.twitch.LongIteration")
+@Label("Long Iteration")
+@Category({"JavaSpecialists", "Iteration"})
+@Description("Iterating over a list or tree took longer than the threshold")
+@Enabled(false)
+@Threshold("20 ms")
+final class LongIterationEvent extends jdk.jfr.Event {
+    private static final EventType TYPE = EventType.getEventType(LongIterationEvent.class);
+
+    /**
+     * @return whether a recording has the event enabled right now, without
+     * allocating an event to ask it
+     */
+    static boolean isTypeEnabled() {
+        return TYPE.isEnabled();
+    }
+
+    @Label("Collection Class")
+    String collectionClass;
+
+    @Label("Elements")
+    long elements;
+}
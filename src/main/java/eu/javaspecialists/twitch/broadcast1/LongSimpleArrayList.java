@@ -0,0 +1,150 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.function.LongConsumer;
+
+/**
+ * SimpleArrayList specialized for longs.  Elements are stored in a long[],
+ * so they take 8 bytes each, instead of a reference plus a boxed Long.
+ */
+public class LongSimpleArrayList implements LongSimpleList {
+    private static final int DEFAULT_CAPACITY = 10;
+
+    private final GrowthPolicy growthPolicy;
+    private long[] elements;
+    private int size = 0;
+    private int modCount = 0;
+
+    public LongSimpleArrayList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongSimpleArrayList(int initialCapacity) {
+        this(initialCapacity, GrowthPolicy.doubling());
+    }
+
+    public LongSimpleArrayList(int initialCapacity, GrowthPolicy growthPolicy) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+        }
+        this.elements = new long[initialCapacity];
+        this.growthPolicy = Objects.requireNonNull(growthPolicy, "growthPolicy");
+    }
+
+    @Override
+    public void add(long element) {
+        if (size == elements.length) {
+            grow(size + 1);
+        }
+        elements[size] = element;
+        size++;
+        modCount++;
+    }
+
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > elements.length) {
+            grow(minCapacity);
+        }
+    }
+
+    public void trimToSize() {
+        if (size < elements.length) {
+            elements = Arrays.copyOf(elements, size);
+            modCount++;
+        }
+    }
+
+    int capacity() {
+        return elements.length;
+    }
+
+    private void grow(int minCapacity) {
+        elements = Arrays.copyOf(elements,
+                growthPolicy.newCapacity(elements.length, minCapacity));
+    }
+
+    @Override
+    public long getLong(int index) {
+        if (index >= size || index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return elements[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Footprint footprint() {
+        // growthPolicy, elements, size and modCount
+        return new Footprint(ObjectLayout.objectSize(2, 2 * Integer.BYTES), 0, 0,
+                ObjectLayout.arraySize(elements.length, Long.BYTES));
+    }
+
+    @Override
+    public void removeAt(int index) {
+        if (index >= size || index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        size--;
+        modCount++;
+    }
+
+    @Override
+    public void forEach(LongConsumer action) {
+        Objects.requireNonNull(action, "action");
+        int expectedModCount = modCount;
+        long[] elements = this.elements;
+        for (int i = 0, size = this.size; i < size && expectedModCount == modCount; i++) {
+            action.accept(elements[i]);
+        }
+        if (expectedModCount != modCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            private int position = 0;
+            private int expectedModCount = modCount;
+            private boolean nextCalled = false;
+
+            @Override
+            public boolean hasNext() {
+                return position < size;
+            }
+
+            @Override
+            public long nextLong() {
+                if (expectedModCount != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                nextCalled = true;
+                return elements[position++];
+            }
+
+            @Override
+            public void remove() {
+                if (!nextCalled)
+                    throw new IllegalStateException();
+                if (this.expectedModCount != modCount)
+                    throw new ConcurrentModificationException();
+                LongSimpleArrayList.this.removeAt(position - 1);
+                this.position = this.position - 1;
+                this.expectedModCount = modCount;
+                nextCalled = false;
+            }
+        };
+    }
+}
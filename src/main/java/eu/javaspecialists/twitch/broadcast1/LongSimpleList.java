@@ -0,0 +1,35 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import java.util.PrimitiveIterator;
+import java.util.function.LongConsumer;
+
+/**
+ * A SimpleList of primitive longs, so that we do not need to box each element.
+ */
+public interface LongSimpleList {
+    void add(long element);
+
+    long getLong(int index);
+
+    int size();
+
+    void removeAt(int index);
+
+    PrimitiveIterator.OfLong iterator();
+
+    default void forEach(LongConsumer action) {
+        for (var it = iterator(); it.hasNext(); ) {
+            action.accept(it.nextLong());
+        }
+    }
+
+    /**
+     * @return an estimate of the memory this list retains, including its
+     * elements, since they are primitives, see Footprint
+     */
+    Footprint footprint();
+
+    default long estimatedRetainedBytes() {
+        return footprint().totalBytes();
+    }
+}
@@ -0,0 +1,260 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import java.util.HashMap;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * A bounded cache that evicts the least recently used entries once their
+ * total weight exceeds the maximum.  A HashMap finds the SimpleLinkedList node
+ * of an entry, so that a hit can move it to the end of the list in O(1), and
+ * eviction removes from the front.  By default every entry weighs 1, so the
+ * maximum is the number of entries.
+ * <p>
+ * Pure LRU is easily flushed by a scan over keys that are never used again.
+ * With tinyLfu, we use the W-TinyLFU policy instead: new entries go into a
+ * small LRU window of 1% of the maximum weight, and when they fall out of the
+ * window, a FrequencySketch decides whether they are admitted into the main
+ * LRU region, by comparing how often they were accessed with the entry that
+ * would be evicted to make space for them.
+ * <p>
+ * The cache is not thread-safe.  Nulls are not allowed as keys or values.
+ *
+ * @param <K> the type of keys
+ * @param <V> the type of cached values
+ */
+public class LruCache<K, V> {
+    @FunctionalInterface
+    public interface Weigher<K, V> {
+        /**
+         * @return the weight of the entry, which must not be negative
+         */
+        int weigh(K key, V value);
+    }
+
+    private static final class Entry<K, V> {
+        final K key;
+        V value;
+        int weight;
+        boolean inWindow;
+
+        Entry(K key, V value, int weight, boolean inWindow) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+            this.inWindow = inWindow;
+        }
+    }
+
+    private final long maximumWeight;
+    private final long windowMaximum;
+    private final Weigher<? super K, ? super V> weigher;
+    private final FrequencySketch<K> sketch;
+    private final HashMap<K, SimpleLinkedList.Node<Entry<K, V>>> index = new HashMap<>();
+    private final SimpleLinkedList<Entry<K, V>> window = new SimpleLinkedList<>();
+    private final SimpleLinkedList<Entry<K, V>> main = new SimpleLinkedList<>();
+    private long windowWeight;
+    private long mainWeight;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public LruCache(long maximumSize) {
+        this(maximumSize, (key, value) -> 1, false);
+    }
+
+    public LruCache(long maximumWeight, Weigher<? super K, ? super V> weigher,
+                    boolean tinyLfu) {
+        if (maximumWeight < 0) {
+            throw new IllegalArgumentException("maximumWeight=" + maximumWeight);
+        }
+        this.maximumWeight = maximumWeight;
+        this.weigher = Objects.requireNonNull(weigher, "weigher");
+        if (tinyLfu) {
+            this.windowMaximum = Math.max(1, maximumWeight / 100);
+            this.sketch = new FrequencySketch<>(maximumWeight);
+        } else {
+            this.windowMaximum = 0;
+            this.sketch = null;
+        }
+    }
+
+    /**
+     * Returns the cached value and marks it as most recently used, or null
+     * if the key is not in the cache.
+     */
+    public V get(K key) {
+        Objects.requireNonNull(key, "key");
+        if (sketch != null) {
+            sketch.increment(key);
+        }
+        var node = index.get(key);
+        if (node == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        touch(node);
+        return node.item.value;
+    }
+
+    /**
+     * Returns the cached value, or loads, caches and returns it on a miss.
+     */
+    public V get(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value == null) {
+            value = Objects.requireNonNull(loader.apply(key), "loaded value");
+            put(key, value, false);
+        }
+        return value;
+    }
+
+    /**
+     * Caches the value, evicting other entries if necessary.  The new entry
+     * itself may be evicted straight away if it is too heavy, or if the
+     * TinyLFU admission policy rejects it.
+     *
+     * @return the previously cached value, or null if there was none
+     */
+    public V put(K key, V value) {
+        return put(key, value, true);
+    }
+
+    // the loading get() has already recorded the access in the sketch
+    private V put(K key, V value, boolean recordAccess) {
+        Objects.requireNonNull(key, "key");
+        Objects.requireNonNull(value, "value");
+        int weight = weigher.weigh(key, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("weight=" + weight);
+        }
+        if (recordAccess && sketch != null) {
+            sketch.increment(key);
+        }
+        var node = index.get(key);
+        V previous = null;
+        if (node != null) {
+            Entry<K, V> entry = node.item;
+            previous = entry.value;
+            entry.value = value;
+            adjustWeight(entry, weight - entry.weight);
+            entry.weight = weight;
+            touch(node);
+        } else if (sketch == null) {
+            node = main.linkLast(new Entry<>(key, value, weight, false));
+            index.put(key, node);
+            mainWeight += weight;
+        } else {
+            index.put(key, window.linkLast(new Entry<>(key, value, weight, true)));
+            windowWeight += weight;
+        }
+        if (sketch == null && weight > maximumWeight) {
+            // like the TinyLFU path, we only evict the entry that can never fit
+            evict(node);
+        }
+        evict();
+        return previous;
+    }
+
+    public V remove(K key) {
+        var node = index.remove(key);
+        if (node == null) {
+            return null;
+        }
+        Entry<K, V> entry = node.item;
+        regionOf(entry).removeNode(node);
+        adjustWeight(entry, -entry.weight);
+        return entry.value;
+    }
+
+    private void touch(SimpleLinkedList.Node<Entry<K, V>> node) {
+        regionOf(node.item).moveToLast(node);
+    }
+
+    private SimpleLinkedList<Entry<K, V>> regionOf(Entry<K, V> entry) {
+        return entry.inWindow ? window : main;
+    }
+
+    private void adjustWeight(Entry<K, V> entry, long delta) {
+        if (entry.inWindow) {
+            windowWeight += delta;
+        } else {
+            mainWeight += delta;
+        }
+    }
+
+    private void evict() {
+        if (sketch == null) {
+            while (mainWeight > maximumWeight) {
+                evict(main.firstNode());
+            }
+            return;
+        }
+        long mainMaximum = maximumWeight - windowMaximum;
+        while (windowWeight > windowMaximum) {
+            var candidateNode = window.firstNode();
+            Entry<K, V> candidate = candidateNode.item;
+            if (candidate.weight > mainMaximum) {
+                evict(candidateNode);
+                continue;
+            }
+            boolean admitted = true;
+            while (mainWeight + candidate.weight > mainMaximum) {
+                Entry<K, V> victim = main.firstNode().item;
+                if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                    evict(main.firstNode());
+                } else {
+                    admitted = false;
+                    break;
+                }
+            }
+            if (admitted) {
+                window.removeNode(candidateNode);
+                windowWeight -= candidate.weight;
+                candidate.inWindow = false;
+                index.put(candidate.key, main.linkLast(candidate));
+                mainWeight += candidate.weight;
+            } else {
+                evict(candidateNode);
+            }
+        }
+        while (mainWeight > mainMaximum && main.size() > 0) {
+            evict(main.firstNode());
+        }
+    }
+
+    private void evict(SimpleLinkedList.Node<Entry<K, V>> node) {
+        Entry<K, V> entry = node.item;
+        index.remove(entry.key);
+        regionOf(entry).removeNode(node);
+        adjustWeight(entry, -entry.weight);
+        evictions++;
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public long weightedSize() {
+        return windowWeight + mainWeight;
+    }
+
+    public long hitCount() {
+        return hits;
+    }
+
+    public long missCount() {
+        return misses;
+    }
+
+    public long evictionCount() {
+        return evictions;
+    }
+
+    public double hitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 1.0 : (double) hits / requests;
+    }
+}
@@ -0,0 +1,283 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import java.util.ArrayDeque;
+import java.util.ConcurrentModificationException;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * A BinaryTree that keeps duplicates, by storing a count in each node rather
+ * than dropping the value like AVLBinaryTree does.  Every node also records
+ * the total count of its subtree, maintained through the update() hook of
+ * AVLBinaryTreeMap, so that select() and rank() are O(log n) and respect the
+ * multiplicity of the values.
+ * <p>
+ * Adding a value that is already there costs the same single descent as
+ * adding a new one, and allocates nothing.  The iterator yields each value as
+ * often as it was added; distinct() yields it once.
+ *
+ * @param <T> the type of elements stored in the tree
+ */
+public class MultisetBinaryTree<T extends Comparable<T>> implements BinaryTree<T> {
+    private static final int MAX_DEPTH = 64;
+
+    private static final class CountNode<T> extends AbstractBinaryTreeMap.Node<T, Boolean> {
+        int count;
+        long total;
+
+        CountNode(T key, int count) {
+            super(key, Boolean.TRUE);
+            this.count = count;
+        }
+
+        @Override
+        void copyEntry(AbstractBinaryTreeMap.Node<T, Boolean> other) {
+            super.copyEntry(other);
+            count = ((CountNode<T>) other).count;
+        }
+    }
+
+    private static final class CountingTree<T extends Comparable<T>>
+            extends AVLBinaryTreeMap<T, Boolean> {
+        // the number of occurrences that the current insert() adds
+        int occurrences;
+
+        @Override
+        Node<T, Boolean> createNode(T key, Boolean value) {
+            return new CountNode<>(key, occurrences);
+        }
+
+        @Override
+        void existing(Node<T, Boolean> node) {
+            // nothing has been changed yet when we throw here
+            if (((CountNode<T>) node).count > Integer.MAX_VALUE - occurrences) {
+                throw new IllegalArgumentException("count overflow for " + node.key);
+            }
+            ((CountNode<T>) node).count += occurrences;
+            update(node);
+        }
+
+        @Override
+        void update(Node<T, Boolean> node) {
+            super.update(node);
+            CountNode<T> countNode = (CountNode<T>) node;
+            countNode.total = countNode.count + total(node.left) + total(node.right);
+        }
+    }
+
+    private final CountingTree<T> tree = new CountingTree<>();
+    private int modCount = 0;
+
+    private static long total(AbstractBinaryTreeMap.Node<?, ?> node) {
+        return node == null ? 0 : ((CountNode<?>) node).total;
+    }
+
+    private static int count(AbstractBinaryTreeMap.Node<?, ?> node) {
+        return ((CountNode<?>) node).count;
+    }
+
+    @Override
+    public void add(T value) {
+        add(value, 1);
+    }
+
+    public void add(T value, int occurrences) {
+        Objects.requireNonNull(value, "value");
+        if (occurrences <= 0) {
+            throw new IllegalArgumentException("occurrences=" + occurrences);
+        }
+        tree.occurrences = occurrences;
+        tree.put(value, Boolean.TRUE);
+        modCount++;
+    }
+
+    /**
+     * Removes one occurrence of the value, if it is there.
+     */
+    @Override
+    public void remove(T value) {
+        Objects.requireNonNull(value, "value");
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        AbstractBinaryTreeMap.Node<T, Boolean>[] path = new AbstractBinaryTreeMap.Node[MAX_DEPTH];
+        int depth = 0;
+        var node = tree.root();
+        while (node != null) {
+            path[depth++] = node;
+            int cmp = value.compareTo(node.key);
+            if (cmp == 0) {
+                break;
+            }
+            node = cmp < 0 ? node.left : node.right;
+        }
+        if (node == null) {
+            return;
+        }
+        if (count(node) == 1) {
+            tree.remove(value);
+        } else {
+            ((CountNode<T>) node).count--;
+            for (int i = 0; i < depth; i++) {
+                ((CountNode<T>) path[i]).total--;
+            }
+        }
+        modCount++;
+    }
+
+    @Override
+    public boolean contains(T value) {
+        return tree.containsKey(value);
+    }
+
+    /**
+     * @return how often the value was added, minus how often it was removed
+     */
+    public int count(T value) {
+        var node = tree.getNode(value);
+        return node == null ? 0 : count(node);
+    }
+
+    /**
+     * @return the total number of occurrences, capped at Integer.MAX_VALUE
+     */
+    @Override
+    public int size() {
+        return (int) Math.min(totalCount(), Integer.MAX_VALUE);
+    }
+
+    public long totalCount() {
+        return total(tree.root());
+    }
+
+    public int distinctSize() {
+        return tree.size();
+    }
+
+    /**
+     * There is one node per distinct element, however often it occurs.
+     */
+    @Override
+    public Footprint footprint() {
+        // tree and modCount, occurrences in the tree, and the key, value,
+        // left, right, meta, count and total of each node
+        return tree.footprint(0, Integer.BYTES, ObjectLayout.objectSize(4, 2 * Integer.BYTES + Long.BYTES))
+                .plus(new Footprint(ObjectLayout.objectSize(1, Integer.BYTES), 0, 0, 0));
+    }
+
+    /**
+     * @return the value at the rank in sorted order, counting duplicates,
+     * so select(0) is the smallest value and select(totalCount() - 1) the
+     * largest
+     * @throws IndexOutOfBoundsException if the rank is out of range
+     */
+    public T select(long rank) {
+        if (rank < 0 || rank >= totalCount()) {
+            throw new IndexOutOfBoundsException("Rank: " + rank + ", Size: " + totalCount());
+        }
+        var node = tree.root();
+        while (true) {
+            long leftTotal = total(node.left);
+            if (rank < leftTotal) {
+                node = node.left;
+            } else if (rank < leftTotal + count(node)) {
+                return node.key;
+            } else {
+                rank -= leftTotal + count(node);
+                node = node.right;
+            }
+        }
+    }
+
+    /**
+     * @return the number of occurrences of values strictly less than value
+     */
+    public long rank(T value) {
+        Objects.requireNonNull(value, "value");
+        long rank = 0;
+        var node = tree.root();
+        while (node != null) {
+            int cmp = value.compareTo(node.key);
+            if (cmp <= 0) {
+                if (cmp == 0) {
+                    return rank + total(node.left);
+                }
+                node = node.left;
+            } else {
+                rank += total(node.left) + count(node);
+                node = node.right;
+            }
+        }
+        return rank;
+    }
+
+    @Override
+    public int maxDepth() {
+        return tree.maxDepth();
+    }
+
+    /**
+     * @return the distinct values in sorted order
+     */
+    public Iterable<T> distinct() {
+        return () -> {
+            Iterator<Map.Entry<T, Boolean>> entries = tree.iterator();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                @Override
+                public T next() {
+                    return entries.next().getKey();
+                }
+            };
+        };
+    }
+
+    /**
+     * Yields every value as many times as it occurs.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private final int initialModCount = modCount;
+            private final Deque<AbstractBinaryTreeMap.Node<T, Boolean>> nodeStack =
+                    new ArrayDeque<>();
+            private AbstractBinaryTreeMap.Node<T, Boolean> current;
+            private int remaining;
+
+            {
+                pushLeftSubtree(tree.root());
+            }
+
+            private void pushLeftSubtree(AbstractBinaryTreeMap.Node<T, Boolean> node) {
+                while (node != null) {
+                    nodeStack.push(node);
+                    node = node.left;
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return remaining > 0 || !nodeStack.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                if (modCount != initialModCount)
+                    throw new ConcurrentModificationException();
+                if (!hasNext()) throw new NoSuchElementException();
+                if (remaining == 0) {
+                    current = nodeStack.pop();
+                    pushLeftSubtree(current.right);
+                    remaining = count(current);
+                }
+                remaining--;
+                return current.key;
+            }
+        };
+    }
+}
@@ -0,0 +1,73 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Rough sizes of the JVM's object layout, which we need to turn element
+ * counts into bytes.  On HotSpot, we ask whether compressed oops and
+ * compressed class pointers are in use, and what the object alignment is;
+ * elsewhere we assume the defaults for heaps below 32 GB.
+ * <p>
+ * HotSpot packs the fields of an object, including those of its
+ * superclasses, into the gaps after the header, so the size of an object is
+ * close to the header plus the sizes of its fields, aligned.
+ */
+final class ObjectLayout {
+    static final int REFERENCE_SIZE;
+    static final int OBJECT_HEADER_SIZE;
+    static final int ARRAY_HEADER_SIZE;
+    static final int OBJECT_ALIGNMENT;
+
+    static {
+        boolean compressedOops = flag("UseCompressedOops", true);
+        boolean compressedClassPointers = flag("UseCompressedClassPointers", true);
+        REFERENCE_SIZE = compressedOops ? 4 : 8;
+        OBJECT_HEADER_SIZE = compressedClassPointers ? 12 : 16;
+        OBJECT_ALIGNMENT = intFlag("ObjectAlignmentInBytes", 8);
+        ARRAY_HEADER_SIZE = (int) align(OBJECT_HEADER_SIZE + Integer.BYTES);
+    }
+
+    private ObjectLayout() {
+    }
+
+    private static boolean flag(String name, boolean defaultValue) {
+        try {
+            var bean = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            return Boolean.parseBoolean(bean.getVMOption(name).getValue());
+        } catch (RuntimeException | LinkageError e) {
+            return defaultValue;
+        }
+    }
+
+    private static int intFlag(String name, int defaultValue) {
+        try {
+            var bean = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            return Integer.parseInt(bean.getVMOption(name).getValue());
+        } catch (RuntimeException | LinkageError e) {
+            return defaultValue;
+        }
+    }
+
+    static long align(long size) {
+        return (size + OBJECT_ALIGNMENT - 1) & -OBJECT_ALIGNMENT;
+    }
+
+    /**
+     * @param references     the number of reference fields
+     * @param primitiveBytes the total size of the primitive fields
+     * @return the size of an object with those fields
+     */
+    static long objectSize(int references, int primitiveBytes) {
+        return align(OBJECT_HEADER_SIZE + (long) references * REFERENCE_SIZE + primitiveBytes);
+    }
+
+    /**
+     * @return the size of an array of the length, with elements of the size,
+     * which is REFERENCE_SIZE for object arrays
+     */
+    static long arraySize(int length, int elementSize) {
+        return align(ARRAY_HEADER_SIZE + (long) length * elementSize);
+    }
+}
@@ -0,0 +1,359 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * A SimpleList of fixed-width records that are stored outside of the Java
+ * heap, in MemorySegments allocated from a shared Arena.  The garbage
+ * collector never has to scan or copy the elements, so a list with hundreds
+ * of millions of longs costs it nothing, whereas a SimpleArrayList of Long
+ * would fill the old generation with boxed objects.  The FixedWidthCodec
+ * decides how a value is laid out in its record; values are copied in and
+ * out, so get() returns a new object each time, and nulls are not allowed.
+ * <p>
+ * Memory is allocated in chunks of a power-of-two number of elements, so the
+ * list grows without copying.  Chunks are not released when the list
+ * shrinks; all the memory is freed when we close() the list.  Any access
+ * after that throws an IllegalStateException.
+ * <p>
+ * With mapped(), the chunks are mapped from a file.  On close(), the file is
+ * truncated to the size of the list, and opening it again maps the existing
+ * records back in.
+ *
+ * @param <T> the type of elements in the list
+ */
+public class OffHeapSimpleList<T> implements SimpleList<T>, AutoCloseable {
+    private static final int DEFAULT_CHUNK_ELEMENTS = 1 << 20;
+
+    private final FixedWidthCodec<T> codec;
+    private final long elementSize;
+    private final int chunkShift;
+    private final int chunkMask;
+    private final long chunkBytes;
+    private final Arena arena = Arena.ofShared();
+    private final FileChannel channel;
+    private MemorySegment[] chunks = new MemorySegment[8];
+    private int chunkCount = 0;
+    private int size = 0;
+    private int modCount = 0;
+    private boolean closed = false;
+
+    public OffHeapSimpleList(FixedWidthCodec<T> codec) {
+        this(codec, DEFAULT_CHUNK_ELEMENTS);
+    }
+
+    /**
+     * @param chunkElements the number of elements per chunk, rounded up to a
+     *                      power of two
+     */
+    public OffHeapSimpleList(FixedWidthCodec<T> codec, int chunkElements) {
+        this(codec, chunkElements, null);
+    }
+
+    private OffHeapSimpleList(FixedWidthCodec<T> codec, int chunkElements,
+                              FileChannel channel) {
+        this.codec = Objects.requireNonNull(codec, "codec");
+        this.elementSize = codec.byteSize();
+        if (elementSize <= 0) {
+            throw new IllegalArgumentException("byteSize=" + elementSize);
+        }
+        if (chunkElements <= 0 || chunkElements > 1 << 30) {
+            throw new IllegalArgumentException("chunkElements=" + chunkElements);
+        }
+        int roundedUp = Integer.highestOneBit(Math.max(2, chunkElements) - 1) << 1;
+        this.chunkShift = Integer.numberOfTrailingZeros(roundedUp);
+        this.chunkMask = roundedUp - 1;
+        this.chunkBytes = roundedUp * elementSize;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens a list whose chunks are memory mapped from the file, which is
+     * created if it does not exist yet.  If it does, its records become the
+     * initial contents of the list.
+     */
+    public static <T> OffHeapSimpleList<T> mapped(Path file, FixedWidthCodec<T> codec,
+                                                  int chunkElements) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            var list = new OffHeapSimpleList<>(codec, chunkElements, channel);
+            long records = channel.size() / list.elementSize;
+            if (records > GrowthPolicy.MAX_ARRAY_SIZE) {
+                throw new IOException("Too many records in " + file + ": " + records);
+            }
+            list.ensureCapacity((int) records);
+            list.size = (int) records;
+            return list;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public void add(T element) {
+        Objects.requireNonNull(element, "element");
+        ensureCapacity(size + 1);
+        write(size, element);
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public void add(int index, T element) {
+        if (index > size || index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        Objects.requireNonNull(element, "element");
+        ensureCapacity(size + 1);
+        move(index, index + 1, size - index);
+        write(index, element);
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Allocates (or maps) chunks until we can hold minCapacity elements.
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (closed) {
+            throw new IllegalStateException("Already closed");
+        }
+        if (minCapacity < 0 || minCapacity > GrowthPolicy.MAX_ARRAY_SIZE) {
+            throw new OutOfMemoryError("Required list size too large");
+        }
+        while ((long) chunkCount << chunkShift < minCapacity) {
+            if (chunkCount == chunks.length) {
+                chunks = Arrays.copyOf(chunks, chunkCount * 2);
+            }
+            chunks[chunkCount] = allocateChunk(chunkCount);
+            chunkCount++;
+        }
+    }
+
+    private MemorySegment allocateChunk(int chunk) {
+        if (channel == null) {
+            return arena.allocate(chunkBytes, Long.BYTES);
+        }
+        try {
+            return channel.map(FileChannel.MapMode.READ_WRITE,
+                    chunk * chunkBytes, chunkBytes, arena);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public T get(int index) {
+        if (index >= size || index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return read(index);
+    }
+
+    /**
+     * Replaces the element at the index in place.
+     */
+    public void set(int index, T element) {
+        if (index >= size || index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        write(index, Objects.requireNonNull(element, "element"));
+    }
+
+    private T read(int index) {
+        return codec.read(chunks[index >>> chunkShift], (index & chunkMask) * elementSize);
+    }
+
+    private void write(int index, T element) {
+        codec.write(chunks[index >>> chunkShift], (index & chunkMask) * elementSize, element);
+    }
+
+    /**
+     * Copies count records from index from to index to, one chunk-bounded
+     * piece at a time.  The ranges may overlap, so we copy from the front
+     * when moving down, and from the back when moving up.
+     */
+    private void move(int from, int to, int count) {
+        if (to < from) {
+            while (count > 0) {
+                int length = Math.min(count, Math.min(
+                        chunkMask + 1 - (from & chunkMask), chunkMask + 1 - (to & chunkMask)));
+                copy(from, to, length);
+                from += length;
+                to += length;
+                count -= length;
+            }
+        } else {
+            int fromEnd = from + count;
+            int toEnd = to + count;
+            while (count > 0) {
+                int length = Math.min(count, Math.min(
+                        ((fromEnd - 1) & chunkMask) + 1, ((toEnd - 1) & chunkMask) + 1));
+                fromEnd -= length;
+                toEnd -= length;
+                copy(fromEnd, toEnd, length);
+                count -= length;
+            }
+        }
+    }
+
+    private void copy(int from, int to, int length) {
+        MemorySegment.copy(chunks[from >>> chunkShift], (from & chunkMask) * elementSize,
+                chunks[to >>> chunkShift], (to & chunkMask) * elementSize,
+                length * elementSize);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Each chunk is a node, the MemorySegment on the heap, and the memory
+     * of the chunks outside of the heap counts as arrayBytes, until we close
+     * the list.
+     */
+    @Override
+    public Footprint footprint() {
+        // codec, arena, channel, chunks, two longs, five ints and closed
+        long fixed = ObjectLayout.objectSize(4, 2 * Long.BYTES + 5 * Integer.BYTES + 1)
+                + ObjectLayout.arraySize(chunks.length, ObjectLayout.REFERENCE_SIZE);
+        // the scope, address, length and readOnly of a segment, and the
+        // unmapper of a mapped one
+        long segment = ObjectLayout.objectSize(channel == null ? 1 : 2, 2 * Long.BYTES + 1);
+        return new Footprint(fixed, chunkCount, segment, closed ? 0 : chunkCount * chunkBytes);
+    }
+
+    @Override
+    public void removeAt(int index) {
+        if (index >= size || index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        move(index + 1, index, size - index - 1);
+        size--;
+        modCount++;
+    }
+
+    @Override
+    public void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || fromIndex > toIndex || toIndex > size) {
+            throw new IndexOutOfBoundsException(
+                    "From: " + fromIndex + ", To: " + toIndex + ", Size: " + size);
+        }
+        if (fromIndex < toIndex) {
+            move(toIndex, fromIndex, size - toIndex);
+            size -= toIndex - fromIndex;
+            modCount++;
+        }
+    }
+
+    /**
+     * Compacts the surviving records towards the front in a single pass.
+     */
+    @Override
+    public boolean removeIf(Predicate<? super T> filter) {
+        Objects.requireNonNull(filter, "filter");
+        int expectedModCount = modCount;
+        int from = 0;
+        int to = 0;
+        try {
+            for (; from < size; from++) {
+                if (!filter.test(read(from))) {
+                    if (from != to) copy(from, to, 1);
+                    to++;
+                }
+            }
+        } finally {
+            if (from < size) {
+                move(from, to, size - from);
+                to += size - from;
+                from = size;
+            }
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (to < size) {
+                size = to;
+                modCount++;
+            }
+        }
+        return from != to;
+    }
+
+    /**
+     * @return the number of off-heap bytes held by the list
+     */
+    public long memoryBytes() {
+        return chunkCount * chunkBytes;
+    }
+
+    /**
+     * Frees all the chunks, or unmaps them and truncates the file to the
+     * size of the list if it is mapped().  Closing twice does nothing.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        arena.close();
+        if (channel != null) {
+            try (channel) {
+                channel.truncate(size * elementSize);
+            }
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int position = 0;
+            private int expectedModCount = modCount;
+            private boolean nextCalled = false;
+
+            @Override
+            public boolean hasNext() {
+                return position < size;
+            }
+
+            @Override
+            public T next() {
+                if (expectedModCount != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                nextCalled = true;
+                return read(position++);
+            }
+
+            @Override
+            public void remove() {
+                if (!nextCalled)
+                    throw new IllegalStateException();
+                if (this.expectedModCount != modCount)
+                    throw new ConcurrentModificationException();
+                OffHeapSimpleList.this.removeAt(position - 1);
+                this.position = this.position - 1;
+                this.expectedModCount = modCount;
+                nextCalled = false;
+            }
+        };
+    }
+}
@@ -0,0 +1,52 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts the operations on one list or tree.  The structures only count
+ * once their counters have been enabled, so that the hot paths pay a single
+ * null check otherwise.  LongAdder keeps the counting cheap even if the
+ * counters are read from a monitoring thread while the structure is in use.
+ */
+public final class OperationCounters {
+    final LongAdder adds = new LongAdder();
+    final LongAdder removes = new LongAdder();
+    final LongAdder lookups = new LongAdder();
+    final LongAdder comparisons = new LongAdder();
+    // only counted by the trees, and not part of toString()
+    final LongAdder rotations = new LongAdder();
+
+    public long adds() {
+        return adds.sum();
+    }
+
+    public long removes() {
+        return removes.sum();
+    }
+
+    public long lookups() {
+        return lookups.sum();
+    }
+
+    public long comparisons() {
+        return comparisons.sum();
+    }
+
+    public long rotations() {
+        return rotations.sum();
+    }
+
+    public void reset() {
+        adds.reset();
+        removes.reset();
+        lookups.reset();
+        comparisons.reset();
+        rotations.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "adds=" + adds() + ", removes=" + removes() +
+                ", lookups=" + lookups() + ", comparisons=" + comparisons();
+    }
+}
@@ -0,0 +1,559 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * A SimpleList stored in a 32-way trie, with the last up to 32 elements kept
+ * in a separate tail array, as in Clojure's PersistentVector.  get(int) and
+ * add(T) are O(log32 n), which is at most 7 levels for an int index.
+ * <p>
+ * snapshot() is O(1): the two lists share all their nodes, and each of them
+ * copies a node before modifying it.  We know which nodes we may modify in
+ * place by marking them with an edit token that is replaced whenever we take
+ * a snapshot, which means that a list that is never snapshotted modifies its
+ * nodes in place, like any other mutable list.  A snapshot can thus be handed
+ * to another thread (with safe publication) and used without copying the
+ * elements or risking a ConcurrentModificationException.
+ * <p>
+ * Removing from either end is cheap: the front is removed by moving an
+ * origin offset, and the back by shrinking the tail.  This also makes
+ * slice() cheap.  Whenever the origin moves into the next leaf, we drop the
+ * nodes before it and renumber the indexes from the root down, so that a
+ * list used as a FIFO queue neither retains the removed elements nor runs
+ * out of int indexes.  Inserting or removing in the middle has to shift the
+ * elements of the shorter side a leaf at a time, and is O(n).  Without the
+ * relaxed size tables of an RRB tree, concat() appends the other elements
+ * one by one.
+ *
+ * @param <T> the type of elements in the list
+ */
+public class PersistentVector<T> implements SimpleList<T> {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private static final class Node {
+        final Object edit;
+        final Object[] array;
+
+        Node(Object edit, Object[] array) {
+            this.edit = edit;
+            this.array = array;
+        }
+    }
+
+    private Object edit = new Object();
+    private Node root;
+    private Node tail;
+    private int shift;
+    // elements live at internal indexes origin until count
+    private int origin;
+    private int count;
+    private int modCount = 0;
+
+    public PersistentVector() {
+        clear();
+    }
+
+    private PersistentVector(Node root, Node tail, int shift, int origin, int count) {
+        this.root = root;
+        this.tail = tail;
+        this.shift = shift;
+        this.origin = origin;
+        this.count = count;
+    }
+
+    private void clear() {
+        root = new Node(edit, new Object[WIDTH]);
+        tail = new Node(edit, new Object[WIDTH]);
+        shift = BITS;
+        origin = 0;
+        count = 0;
+    }
+
+    /**
+     * Returns an independent copy of this list in O(1).  Both lists share
+     * their nodes until one of them modifies them.
+     */
+    public PersistentVector<T> snapshot() {
+        // from now on, neither list owns the nodes that we share
+        edit = new Object();
+        return new PersistentVector<>(root, tail, shift, origin, count);
+    }
+
+    /**
+     * Returns an independent copy of the elements from fromIndex, inclusive,
+     * to toIndex, exclusive, sharing the nodes of this list.
+     */
+    public PersistentVector<T> slice(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || fromIndex > toIndex || toIndex > size()) {
+            throw new IndexOutOfBoundsException(
+                    "From: " + fromIndex + ", To: " + toIndex + ", Size: " + size());
+        }
+        PersistentVector<T> slice = snapshot();
+        if (fromIndex == toIndex) {
+            slice.clear();
+        } else {
+            slice.truncate(origin + toIndex);
+            slice.origin = origin + fromIndex;
+            slice.trimFront();
+        }
+        return slice;
+    }
+
+    /**
+     * Returns a new list with the elements of this list followed by those of
+     * the other list.  This list is not changed.
+     */
+    public PersistentVector<T> concat(SimpleList<? extends T> other) {
+        PersistentVector<T> result = snapshot();
+        result.addAll(other);
+        return result;
+    }
+
+    @Override
+    public void add(T element) {
+        int tailOffset = tailOffset(count);
+        if (count - tailOffset < WIDTH) {
+            tail = editable(tail);
+            tail.array[count - tailOffset] = element;
+        } else {
+            // the tail is full, so push it into the trie
+            if ((tailOffset >>> BITS) >= (1 << shift)) {
+                Node newRoot = new Node(edit, new Object[WIDTH]);
+                newRoot.array[0] = root;
+                newRoot.array[1] = newPath(shift, tail);
+                root = newRoot;
+                shift += BITS;
+            } else {
+                root = pushTail(shift, root, tail, tailOffset);
+            }
+            tail = new Node(edit, new Object[WIDTH]);
+            tail.array[0] = element;
+        }
+        count++;
+        modCount++;
+    }
+
+    private Node pushTail(int level, Node parent, Node tailNode, int tailOffset) {
+        Node node = editable(parent);
+        int subIndex = (tailOffset >>> level) & MASK;
+        if (level == BITS) {
+            node.array[subIndex] = tailNode;
+        } else if ((tailOffset & ((1 << level) - 1)) != 0) {
+            // the child already holds elements before the tail offset
+            node.array[subIndex] = pushTail(level - BITS,
+                    (Node) node.array[subIndex], tailNode, tailOffset);
+        } else {
+            node.array[subIndex] = newPath(level - BITS, tailNode);
+        }
+        return node;
+    }
+
+    private Node newPath(int level, Node node) {
+        while (level > 0) {
+            Node parent = new Node(edit, new Object[WIDTH]);
+            parent.array[0] = node;
+            node = parent;
+            level -= BITS;
+        }
+        return node;
+    }
+
+    @Override
+    public void add(int index, T element) {
+        int size = size();
+        if (index > size || index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (index == 0 && origin > 0) {
+            origin--;
+            set(0, element);
+        } else if (index == size) {
+            add(element);
+        } else {
+            add(get(size - 1));
+            shiftRight(origin + index, count - 1);
+            set(index, element);
+        }
+        modCount++;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index >= size() || index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        int i = origin + index;
+        return (T) leafFor(i)[i & MASK];
+    }
+
+    private Object[] leafFor(int i) {
+        if (i >= tailOffset(count)) {
+            return tail.array;
+        }
+        Node node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Node) node.array[(i >>> level) & MASK];
+        }
+        return node.array;
+    }
+
+    /**
+     * Replaces the element at the index, copying the path to it if we do not
+     * own the nodes.
+     */
+    public void set(int index, T element) {
+        if (index >= size() || index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+        }
+        int i = origin + index;
+        editableLeafFor(i)[i & MASK] = element;
+    }
+
+    /**
+     * Returns the leaf array for the internal index, copying the path to it
+     * first if we do not own all of its nodes.
+     */
+    private Object[] editableLeafFor(int i) {
+        if (i >= tailOffset(count)) {
+            tail = editable(tail);
+            return tail.array;
+        }
+        root = editable(root);
+        Node node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            int subIndex = (i >>> level) & MASK;
+            Node child = (Node) node.array[subIndex];
+            // trimFront() drops the nodes before the origin, which add(0, e) may need again
+            child = child == null ? new Node(edit, new Object[WIDTH]) : editable(child);
+            node.array[subIndex] = child;
+            node = child;
+        }
+        return node.array;
+    }
+
+    /**
+     * Moves the elements at internal indexes from + 1 until to one position
+     * to the left, a leaf at a time.  The element at to - 1 stays as it is.
+     */
+    private void shiftLeft(int from, int to) {
+        for (int i = from; i < to - 1; ) {
+            Object[] leaf = editableLeafFor(i);
+            int leafEnd = Math.min((i | MASK) + 1, to);
+            System.arraycopy(leaf, (i & MASK) + 1, leaf, i & MASK, leafEnd - i - 1);
+            if (leafEnd < to) {
+                leaf[MASK] = leafFor(leafEnd)[0];
+            }
+            i = leafEnd;
+        }
+    }
+
+    /**
+     * Moves the elements at internal indexes from until to - 1 one position
+     * to the right, a leaf at a time.  The element at from stays as it is.
+     */
+    private void shiftRight(int from, int to) {
+        for (int i = to - 1; i > from; ) {
+            Object[] leaf = editableLeafFor(i);
+            int leafStart = Math.max(i & ~MASK, from);
+            System.arraycopy(leaf, leafStart & MASK, leaf, (leafStart & MASK) + 1, i - leafStart);
+            if (leafStart > from) {
+                leaf[0] = leafFor(leafStart - 1)[MASK];
+            }
+            i = leafStart - 1;
+        }
+    }
+
+    @Override
+    public int size() {
+        return count - origin;
+    }
+
+    /**
+     * Every node has an array of WIDTH slots, whether it is full or not.
+     * Nodes that are shared with snapshots are counted in each of them, so
+     * this takes a walk through the trie.
+     */
+    @Override
+    public Footprint footprint() {
+        // edit, root, tail, four ints and the edit token
+        long fixed = ObjectLayout.objectSize(3, 4 * Integer.BYTES) + ObjectLayout.objectSize(0, 0);
+        // edit and array
+        long node = ObjectLayout.objectSize(2, 0) + ObjectLayout.arraySize(WIDTH, ObjectLayout.REFERENCE_SIZE);
+        return new Footprint(fixed, nodes(root, shift) + 1, node, 0);
+    }
+
+    private static long nodes(Node node, int level) {
+        long nodes = 1;
+        if (level > 0) {
+            for (Object child : node.array) {
+                if (child != null) {
+                    nodes += nodes((Node) child, level - BITS);
+                }
+            }
+        }
+        return nodes;
+    }
+
+    @Override
+    public void removeAt(int index) {
+        int size = size();
+        if (index >= size || index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (index < (size >> 1)) {
+            shiftRight(origin, origin + index + 1);
+            removeFirst();
+        } else {
+            shiftLeft(origin + index, count);
+            removeLast();
+        }
+    }
+
+    @Override
+    public T removeFirst() {
+        if (size() == 0) {
+            throw new NoSuchElementException();
+        }
+        T element = get(0);
+        if (size() == 1) {
+            clear();
+        } else {
+            editableLeafFor(origin)[origin & MASK] = null;
+            origin++;
+            if ((origin & MASK) == 0) {
+                trimFront();
+            }
+        }
+        modCount++;
+        return element;
+    }
+
+    @Override
+    public T removeLast() {
+        if (size() == 0) {
+            throw new NoSuchElementException();
+        }
+        T element = get(size() - 1);
+        if (size() == 1) {
+            clear();
+        } else {
+            truncate(count - 1);
+        }
+        modCount++;
+        return element;
+    }
+
+    /**
+     * Compacts the surviving elements towards the front in a single pass,
+     * and then drops the rest from the back.
+     */
+    @Override
+    public boolean removeIf(Predicate<? super T> filter) {
+        Objects.requireNonNull(filter, "filter");
+        int expectedModCount = modCount;
+        int size = size();
+        int write = 0;
+        Object[] leaf = null;
+        for (int read = 0; read < size; read++) {
+            int i = origin + read;
+            if (leaf == null || (i & MASK) == 0) {
+                leaf = leafFor(i);
+            }
+            @SuppressWarnings("unchecked")
+            T element = (T) leaf[i & MASK];
+            if (filter.test(element)) {
+                continue;
+            }
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (write != read) {
+                set(write, element);
+                leaf = null;
+            }
+            write++;
+        }
+        if (expectedModCount != modCount) {
+            throw new ConcurrentModificationException();
+        }
+        if (write == size) {
+            return false;
+        }
+        if (write == 0) {
+            clear();
+        } else {
+            truncate(origin + write);
+        }
+        modCount++;
+        return true;
+    }
+
+    @Override
+    public void removeRange(int fromIndex, int toIndex) {
+        int size = size();
+        if (fromIndex < 0 || fromIndex > toIndex || toIndex > size) {
+            throw new IndexOutOfBoundsException(
+                    "From: " + fromIndex + ", To: " + toIndex + ", Size: " + size);
+        }
+        if (fromIndex == toIndex) {
+            return;
+        }
+        if (toIndex - fromIndex == size) {
+            clear();
+        } else if (fromIndex < size - toIndex) {
+            // shift the front part to the right, then move the origin
+            for (int i = fromIndex - 1; i >= 0; i--) {
+                set(i + toIndex - fromIndex, get(i));
+            }
+            origin += toIndex - fromIndex;
+            trimFront();
+        } else {
+            for (int i = toIndex; i < size; i++) {
+                set(i - toIndex + fromIndex, get(i));
+            }
+            truncate(count - (toIndex - fromIndex));
+        }
+        modCount++;
+    }
+
+    /**
+     * Drops the elements at internal indexes newCount and beyond.  Nodes
+     * beyond the new count may stay in the trie, but pushTail() ignores
+     * them and overwrites them as the list grows again.
+     */
+    private void truncate(int newCount) {
+        int tailOffset = tailOffset(count);
+        if (newCount > tailOffset) {
+            tail = editable(tail);
+            for (int i = newCount; i < count; i++) {
+                tail.array[i & MASK] = null;
+            }
+        } else {
+            int newTailOffset = tailOffset(newCount);
+            Object[] newTail = leafFor(newTailOffset).clone();
+            for (int i = newCount - newTailOffset; i < WIDTH; i++) {
+                newTail[i] = null;
+            }
+            tail = new Node(edit, newTail);
+            if (newTailOffset == 0) {
+                root = new Node(edit, new Object[WIDTH]);
+                shift = BITS;
+            } else {
+                while (shift > BITS && newTailOffset <= (1 << shift)) {
+                    root = (Node) root.array[0];
+                    shift -= BITS;
+                }
+            }
+        }
+        count = newCount;
+    }
+
+    /**
+     * Drops everything before the origin: the nodes to the left of the path
+     * to it, and the slots before it in its leaf, copying the path if we do
+     * not own it.  Then, if the origin is no longer under the first child of
+     * the root, we shift the children of the root to the left and renumber
+     * the internal indexes, and remove levels from the top that we no longer
+     * need.  Both keep the alignment of the tail.
+     */
+    private void trimFront() {
+        int tailOffset = tailOffset(count);
+        if (origin >= tailOffset) {
+            // all the elements are in the tail
+            if (tailOffset > 0) {
+                root = new Node(edit, new Object[WIDTH]);
+                shift = BITS;
+                origin -= tailOffset;
+                count -= tailOffset;
+            }
+        } else {
+            root = editable(root);
+            Node node = root;
+            for (int level = shift; ; level -= BITS) {
+                int subIndex = (origin >>> level) & MASK;
+                Arrays.fill(node.array, 0, subIndex, null);
+                if (level == BITS) {
+                    break;
+                }
+                Node child = editable((Node) node.array[subIndex]);
+                node.array[subIndex] = child;
+                node = child;
+            }
+            int first = origin >>> shift;
+            if (first > 0) {
+                System.arraycopy(root.array, first, root.array, 0, WIDTH - first);
+                Arrays.fill(root.array, WIDTH - first, WIDTH, null);
+                origin -= first << shift;
+                count -= first << shift;
+            }
+            while (shift > BITS && tailOffset(count) <= (1 << shift)) {
+                root = (Node) root.array[0];
+                shift -= BITS;
+            }
+        }
+        if ((origin & MASK) != 0) {
+            Arrays.fill(editableLeafFor(origin), 0, origin & MASK, null);
+        }
+    }
+
+    private Node editable(Node node) {
+        return node.edit == edit ? node : new Node(edit, node.array.clone());
+    }
+
+    private static int tailOffset(int count) {
+        return count < WIDTH ? 0 : ((count - 1) >>> BITS) << BITS;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int position = 0;
+            private int expectedModCount = modCount;
+            private boolean nextCalled = false;
+            private Object[] leaf;
+
+            @Override
+            public boolean hasNext() {
+                return position < size();
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (expectedModCount != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                nextCalled = true;
+                int i = origin + position++;
+                if (leaf == null || (i & MASK) == 0) {
+                    leaf = leafFor(i);
+                }
+                return (T) leaf[i & MASK];
+            }
+
+            @Override
+            public void remove() {
+                if (!nextCalled)
+                    throw new IllegalStateException();
+                if (this.expectedModCount != modCount)
+                    throw new ConcurrentModificationException();
+                PersistentVector.this.removeAt(position - 1);
+                this.position = this.position - 1;
+                this.expectedModCount = modCount;
+                this.leaf = null;
+                nextCalled = false;
+            }
+        };
+    }
+}
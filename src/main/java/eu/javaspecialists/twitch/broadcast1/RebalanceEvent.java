@@ -0,0 +1,45 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Recorded for a tree add() or remove() that had to rebalance, timed from
+ * the first rotation to the end of the operation.  Disabled by default; enable it with a threshold in a .jfc file or with
+ * {@code jdk.jfr.Recording.enable("eu.javaspecialists.twitch.Rebalance")}.
+ */
+@Name("eu.javaspecialists.twitch.Rebalance")
+@Label("Tree Rebalance")
+@Category({"JavaSpecialists", "Trees"})
+@Description("Rotations and red moves done by one tree operation")
+@Enabled(false)
+@StackTrace(false)
+final class RebalanceEvent extends jdk.jfr.Event {
+    private static final EventType TYPE = EventType.getEventType(RebalanceEvent.class);
+
+    /**
+     * @return whether a recording has the event enabled right now, without
+     * allocating an event to ask it
+     */
+    static boolean isTypeEnabled() {
+        return TYPE.isEnabled();
+    }
+
+    @Label("Tree Class")
+    String treeClass;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Rotations")
+    int rotations;
+
+    @Label("Red Moves")
+    @Description("moveRedLeft() and moveRedRight() calls in a red-black tree")
+    int redMoves;
+}
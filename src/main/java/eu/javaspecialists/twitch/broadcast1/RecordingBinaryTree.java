@@ -0,0 +1,75 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.Objects;
+
+/**
+ * A decorator that records the add(), contains() and remove() calls on a
+ * tree into a workload log, which WorkloadReplayer can then replay against
+ * other BinaryTree implementations.  Iteration and size() are passed through
+ * without being recorded.  Close it to flush the log.
+ *
+ * @param <T> the type of elements stored in the tree
+ */
+public class RecordingBinaryTree<T extends Comparable<T>> implements BinaryTree<T>, Closeable {
+    private final BinaryTree<T> tree;
+    private final WorkloadLog.Writer<T> log;
+
+    /**
+     * @param tree  the tree that does the actual work
+     * @param codec writes the values into the log
+     * @param out   where the log goes, which close() also closes
+     */
+    public RecordingBinaryTree(BinaryTree<T> tree, FixedWidthCodec<T> codec, OutputStream out) {
+        this.tree = Objects.requireNonNull(tree, "tree");
+        this.log = new WorkloadLog.Writer<>(out, WorkloadLog.Kind.TREE, codec);
+    }
+
+    @Override
+    public void add(T value) {
+        log.write(WorkloadLog.Operation.ADD, value);
+        tree.add(value);
+    }
+
+    @Override
+    public boolean contains(T value) {
+        log.write(WorkloadLog.Operation.CONTAINS, value);
+        return tree.contains(value);
+    }
+
+    @Override
+    public void remove(T value) {
+        log.write(WorkloadLog.Operation.REMOVE, value);
+        tree.remove(value);
+    }
+
+    @Override
+    public int size() {
+        return tree.size();
+    }
+
+    @Override
+    public Footprint footprint() {
+        // tree and log
+        return tree.footprint().plus(log.footprint())
+                .plus(new Footprint(ObjectLayout.objectSize(2, 0), 0, 0, 0));
+    }
+
+    @Override
+    public int maxDepth() {
+        return tree.maxDepth();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return tree.iterator();
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+}
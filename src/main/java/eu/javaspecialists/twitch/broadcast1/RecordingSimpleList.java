@@ -0,0 +1,114 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.BitSet;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * A decorator that records the add(), get() and removeAt() calls on a list
+ * into a workload log, which WorkloadReplayer can then replay against other
+ * SimpleList implementations.  The default methods of SimpleList are
+ * recorded as the calls that they make.  The iterator is read-only, since a
+ * removal through it would not be in the log, so removeIf(), and with it
+ * retainAll(), is recorded as one removeAt() per match, from the back.
+ * Close it to flush the log.
+ *
+ * @param <T> the type of elements stored in the list
+ */
+public class RecordingSimpleList<T> implements SimpleList<T>, Closeable {
+    private final SimpleList<T> list;
+    private final WorkloadLog.Writer<T> log;
+
+    /**
+     * @param list  the list that does the actual work
+     * @param codec writes the values into the log
+     * @param out   where the log goes, which close() also closes
+     */
+    public RecordingSimpleList(SimpleList<T> list, FixedWidthCodec<T> codec, OutputStream out) {
+        this.list = Objects.requireNonNull(list, "list");
+        this.log = new WorkloadLog.Writer<>(out, WorkloadLog.Kind.LIST, codec);
+    }
+
+    @Override
+    public void add(T element) {
+        log.write(WorkloadLog.Operation.ADD, element);
+        list.add(element);
+    }
+
+    @Override
+    public T get(int index) {
+        log.write(WorkloadLog.Operation.GET, index);
+        return list.get(index);
+    }
+
+    @Override
+    public int size() {
+        return list.size();
+    }
+
+    @Override
+    public Footprint footprint() {
+        // list and log
+        return list.footprint().plus(log.footprint())
+                .plus(new Footprint(ObjectLayout.objectSize(2, 0), 0, 0, 0));
+    }
+
+    @Override
+    public void removeAt(int index) {
+        log.write(WorkloadLog.Operation.REMOVE_AT, index);
+        list.removeAt(index);
+    }
+
+    @Override
+    public void add(int index, T element) {
+        log.write(WorkloadLog.Operation.ADD_AT, index, element);
+        list.add(index, element);
+    }
+
+    /**
+     * Tests all the elements first, and then removes the matches with
+     * removeAt(), from the highest index down, so the indexes in the log
+     * stay valid when it is replayed.
+     */
+    @Override
+    public boolean removeIf(Predicate<? super T> filter) {
+        Objects.requireNonNull(filter, "filter");
+        var matches = new BitSet();
+        int index = 0;
+        for (T element : list) {
+            if (filter.test(element)) {
+                matches.set(index);
+            }
+            index++;
+        }
+        for (int i = matches.length() - 1; i >= 0; i = matches.previousSetBit(i - 1)) {
+            removeAt(i);
+        }
+        return !matches.isEmpty();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        Iterator<T> iterator = list.iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return iterator.next();
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        log.close();
+    }
+}
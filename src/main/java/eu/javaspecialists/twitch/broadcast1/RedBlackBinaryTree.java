@@ -9,6 +9,12 @@ public class RedBlackBinaryTree<T extends Comparable<T>> extends AbstractBinaryT
         return root;
     }
 
+    @Override
+    public Footprint footprint() {
+        // root, and the value, left, right and color of each node
+        return footprint(1, 0, ObjectLayout.objectSize(3, 1));
+    }
+
     // Define color constants
     private static final boolean RED = true;
     private static final boolean BLACK = false;
@@ -47,6 +53,7 @@ public class RedBlackBinaryTree<T extends Comparable<T>> extends AbstractBinaryT
         modCount++;
         root = add(root, value);
         root.color = BLACK;
+        added();
     }
 
     private Node<T> add(Node<T> current, T value) {
@@ -54,9 +61,9 @@ public class RedBlackBinaryTree<T extends Comparable<T>> extends AbstractBinaryT
             return new Node<>(value);
         }
 
-        if (value.compareTo(current.value) < 0) {
+        if (compare(value, current.value) < 0) {
             current.left = add(current.left, value);
-        } else if (value.compareTo(current.value) > 0) {
+        } else if (compare(value, current.value) > 0) {
             current.right = add(current.right, value);
         }
 
@@ -78,6 +85,7 @@ public class RedBlackBinaryTree<T extends Comparable<T>> extends AbstractBinaryT
 
     // Rotation helpers
     private Node<T> rotateRight(Node<T> h) {
+        rotated();
         Node<T> x = h.left;
         h.left = x.right;
         x.right = h;
@@ -87,6 +95,7 @@ public class RedBlackBinaryTree<T extends Comparable<T>> extends AbstractBinaryT
     }
 
     private Node<T> rotateLeft(Node<T> h) {
+        rotated();
         Node<T> x = h.right;
         h.right = x.left;
         x.left = h;
@@ -111,10 +120,11 @@ public class RedBlackBinaryTree<T extends Comparable<T>> extends AbstractBinaryT
             }
             modCount++;
         }
+        removed();
     }
 
     private Node<T> remove(Node<T> current, T value) {
-        if (value.compareTo(current.value) < 0) {
+        if (compare(value, current.value) < 0) {
             if (current.left == null) {
                 return null;
             }
@@ -126,13 +136,13 @@ public class RedBlackBinaryTree<T extends Comparable<T>> extends AbstractBinaryT
             if (isRed(current.left)) {
                 current = rotateRight(current);
             }
-            if (value.compareTo(current.value) == 0 && (current.right == null)) {
+            if (compare(value, current.value) == 0 && (current.right == null)) {
                 return null;
             }
             if (!isRed(current.right) && !isRed(current.right.left)) {
                 current = moveRedRight(current);
             }
-            if (value.compareTo(current.value) == 0) {
+            if (compare(value, current.value) == 0) {
                 Node<T> x = min(current.right);
                 current.value = x.value;
                 current.right = deleteMin(current.right);
@@ -144,6 +154,7 @@ public class RedBlackBinaryTree<T extends Comparable<T>> extends AbstractBinaryT
     }
 
     private Node<T> moveRedLeft(Node<T> h) {
+        movedRed();
         flipColors(h);
         if (isRed(h.right.left)) {
             h.right = rotateRight(h.right);
@@ -153,6 +164,7 @@ public class RedBlackBinaryTree<T extends Comparable<T>> extends AbstractBinaryT
     }
 
     private Node<T> moveRedRight(Node<T> h) {
+        movedRed();
         flipColors(h);
         if (isRed(h.left.left)) {
             h = rotateRight(h);
@@ -0,0 +1,186 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import java.util.function.Function;
+
+/**
+ * A BinaryTreeMap balanced as a left-leaning red-black tree, like
+ * RedBlackBinaryTree.  The meta field of each node holds its color.  As in
+ * RedBlackBinaryTree, the top-down deletion needs to know that the key is
+ * present, so remove() looks it up first.
+ *
+ * @param <K> the type of keys, which must implement Comparable
+ * @param <V> the type of values
+ */
+public class RedBlackBinaryTreeMap<K extends Comparable<K>, V> extends AbstractBinaryTreeMap<K, V> {
+    private static final int RED = 1;
+    private static final int BLACK = 0;
+
+    private Node<K, V> root;
+    // result of the recursive insert()
+    private Node<K, V> found;
+
+    @Override
+    Node<K, V> root() {
+        return root;
+    }
+
+    @Override
+    Footprint footprint(int references, int primitiveBytes, long nodeSize) {
+        // root and found
+        return super.footprint(references + 2, primitiveBytes, nodeSize);
+    }
+
+    private static boolean isRed(Node<?, ?> node) {
+        return node != null && node.meta == RED;
+    }
+
+    @Override
+    Node<K, V> rotateLeft(Node<K, V> h) {
+        Node<K, V> x = super.rotateLeft(h);
+        x.meta = h.meta;
+        h.meta = RED;
+        return x;
+    }
+
+    @Override
+    Node<K, V> rotateRight(Node<K, V> h) {
+        Node<K, V> x = super.rotateRight(h);
+        x.meta = h.meta;
+        h.meta = RED;
+        return x;
+    }
+
+    private void flipColors(Node<K, V> h) {
+        h.meta ^= 1;
+        h.left.meta ^= 1;
+        h.right.meta ^= 1;
+    }
+
+    @Override
+    Node<K, V> insert(K key, Function<? super K, ? extends V> valueFunction) {
+        found = null;
+        root = insert(root, key, valueFunction);
+        if (root != null) {
+            root.meta = BLACK;
+        }
+        return found;
+    }
+
+    private Node<K, V> insert(Node<K, V> current, K key,
+                              Function<? super K, ? extends V> valueFunction) {
+        if (current == null) {
+            V value = valueFunction.apply(key);
+            if (value == null) {
+                return null;
+            }
+            found = newNode(key, value);
+            found.meta = RED;
+            update(found);
+            return found;
+        }
+        int cmp = key.compareTo(current.key);
+        if (cmp < 0) {
+            current.left = insert(current.left, key, valueFunction);
+        } else if (cmp > 0) {
+            current.right = insert(current.right, key, valueFunction);
+        } else {
+            found = current;
+            existing(current);
+            return current;
+        }
+        return balance(current);
+    }
+
+    @Override
+    V delete(K key) {
+        Node<K, V> node = getNode(key);
+        if (node == null) {
+            return null;
+        }
+        V removed = node.value;
+        if (!isRed(root.left) && !isRed(root.right)) {
+            root.meta = RED;
+        }
+        root = delete(root, key);
+        if (root != null) {
+            root.meta = BLACK;
+        }
+        size--;
+        modCount++;
+        return removed;
+    }
+
+    private Node<K, V> delete(Node<K, V> h, K key) {
+        if (key.compareTo(h.key) < 0) {
+            if (!isRed(h.left) && !isRed(h.left.left)) {
+                h = moveRedLeft(h);
+            }
+            h.left = delete(h.left, key);
+        } else {
+            if (isRed(h.left)) {
+                h = rotateRight(h);
+            }
+            if (key.compareTo(h.key) == 0 && h.right == null) {
+                return null;
+            }
+            if (!isRed(h.right) && !isRed(h.right.left)) {
+                h = moveRedRight(h);
+            }
+            if (key.compareTo(h.key) == 0) {
+                Node<K, V> x = h.right;
+                while (x.left != null) {
+                    x = x.left;
+                }
+                h.copyEntry(x);
+                h.right = deleteMin(h.right);
+            } else {
+                h.right = delete(h.right, key);
+            }
+        }
+        return balance(h);
+    }
+
+    private Node<K, V> moveRedLeft(Node<K, V> h) {
+        flipColors(h);
+        if (isRed(h.right.left)) {
+            h.right = rotateRight(h.right);
+            h = rotateLeft(h);
+            flipColors(h);
+        }
+        return h;
+    }
+
+    private Node<K, V> moveRedRight(Node<K, V> h) {
+        flipColors(h);
+        if (isRed(h.left.left)) {
+            h = rotateRight(h);
+            flipColors(h);
+        }
+        return h;
+    }
+
+    private Node<K, V> balance(Node<K, V> h) {
+        if (isRed(h.right) && !isRed(h.left)) {
+            h = rotateLeft(h);
+        }
+        if (isRed(h.left) && isRed(h.left.left)) {
+            h = rotateRight(h);
+        }
+        if (isRed(h.left) && isRed(h.right)) {
+            flipColors(h);
+        }
+        update(h);
+        return h;
+    }
+
+    private Node<K, V> deleteMin(Node<K, V> h) {
+        if (h.left == null) {
+            return null;
+        }
+        if (!isRed(h.left) && !isRed(h.left.left)) {
+            h = moveRedLeft(h);
+        }
+        h.left = deleteMin(h.left);
+        return balance(h);
+    }
+}
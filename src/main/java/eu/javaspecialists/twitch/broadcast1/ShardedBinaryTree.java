@@ -0,0 +1,555 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * A thread-safe BinaryTree that partitions the key space into ranges, each
+ * with its own RedBlackBinaryTreeMap and lock, so that writers to different
+ * ranges do not contend with each other.
+ * <p>
+ * The split points between the shards are in an immutable Topology, which
+ * only changes when we rebalance.  An operation reads the topology with an
+ * optimistic stamp from a StampedLock, locks its shard and only then
+ * validates the stamp, and that the shard has not been retired, so that the
+ * common case writes to no shared memory other than the lock of the shard.
+ * <p>
+ * The tree starts with a single shard.  Once that holds MIN_REBALANCE_SIZE
+ * elements, we split it into all the shards at once, with split points at
+ * the exact quantiles.  That takes the write lock, which invalidates the
+ * stamps, but there is only one shard to wait for.  After that, once an add()
+ * leaves a shard with more than twice the average size, we split that shard
+ * in half, and if that would give us too many shards, we merge the two
+ * adjacent shards with the fewest elements between them.  That only locks
+ * the shards that we replace, so the operations on all the others carry on.
+ * The replaced shards are marked as retired, and an operation that finds its
+ * shard retired once it has the lock looks it up again in the new topology.
+ * Such a split costs O(m log m) for a shard of m elements, but it takes at
+ * least m / 2 additions to that shard before the next one.
+ * <p>
+ * Since the shards partition the key space in order, the ordered iteration
+ * over all the shards is their concatenation.  The iterator copies up to
+ * ITERATION_CHUNK elements at a time while it holds the lock of a shard, so
+ * it is weakly consistent and never throws ConcurrentModificationException.
+ * The bulk operations lock the topology and run the shards in parallel.
+ *
+ * @param <T> the type of elements stored in the tree
+ */
+public class ShardedBinaryTree<T extends Comparable<T>> implements BinaryTree<T> {
+    static final int MIN_REBALANCE_SIZE = 4096;
+    static final int ITERATION_CHUNK = 256;
+    // a ReentrantLock, and the head, tail, state and owner of its NonfairSync
+    private static final long LOCK_SIZE = ObjectLayout.objectSize(1, 0)
+            + ObjectLayout.objectSize(3, Integer.BYTES);
+
+    private static final class Shard<T extends Comparable<T>> {
+        final ReentrantLock lock = new ReentrantLock();
+        final RedBlackBinaryTreeMap<T, Boolean> tree = new RedBlackBinaryTreeMap<>();
+        // written while holding the lock, read without it by size()
+        volatile int size;
+        // set while holding the lock, once the shard is no longer in the topology
+        boolean retired;
+    }
+
+    /**
+     * Shard i holds the keys from splits[i - 1] inclusive to splits[i]
+     * exclusive, the first and last shard are unbounded.  Once a shard grows
+     * beyond maxShardSize, we split it.
+     */
+    private record Topology<T extends Comparable<T>>(List<T> splits, List<Shard<T>> shards,
+                                                     int maxShardSize) {
+        int indexOf(T value) {
+            int low = 0;
+            int high = splits.size() - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (value.compareTo(splits.get(mid)) < 0) {
+                    high = mid - 1;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            return low;
+        }
+    }
+
+    private final int maxShards;
+    private final StampedLock topologyLock = new StampedLock();
+    // only one thread at a time changes the topology
+    private final ReentrantLock rebalanceLock = new ReentrantLock();
+    private volatile Topology<T> topology;
+
+    public ShardedBinaryTree() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    public ShardedBinaryTree(int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("shards=" + shards);
+        }
+        this.maxShards = shards;
+        this.topology = new Topology<>(List.<T>of(), List.of(new Shard<T>()),
+                shards == 1 ? Integer.MAX_VALUE : MIN_REBALANCE_SIZE);
+    }
+
+    /**
+     * @return the shard for the value, locked, in a topology that cannot
+     * change until we unlock it
+     */
+    private Shard<T> lockShard(T value) {
+        long stamp = topologyLock.tryOptimisticRead();
+        if (stamp != 0) {
+            Topology<T> topology = this.topology;
+            Shard<T> shard = topology.shards().get(topology.indexOf(value));
+            shard.lock.lock();
+            if (topologyLock.validate(stamp) && !shard.retired) {
+                return shard;
+            }
+            shard.lock.unlock();
+        }
+        // we are splitting the first shard, so wait for it to finish
+        stamp = topologyLock.readLock();
+        try {
+            return lockCurrentShard(value);
+        } finally {
+            topologyLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return the shard for the value, locked, looking it up again if it
+     * was retired while we waited for its lock, which is enough while we hold
+     * the read lock
+     */
+    private Shard<T> lockCurrentShard(T value) {
+        while (true) {
+            Topology<T> topology = this.topology;
+            Shard<T> shard = topology.shards().get(topology.indexOf(value));
+            shard.lock.lock();
+            if (!shard.retired) {
+                return shard;
+            }
+            shard.lock.unlock();
+        }
+    }
+
+    @Override
+    public void add(T value) {
+        Objects.requireNonNull(value, "value");
+        Shard<T> shard = lockShard(value);
+        int size;
+        try {
+            shard.tree.put(value, Boolean.TRUE);
+            shard.size = size = shard.tree.size();
+        } finally {
+            shard.lock.unlock();
+        }
+        if (size > topology.maxShardSize()) {
+            rebalance(shard);
+        }
+    }
+
+    @Override
+    public boolean contains(T value) {
+        Objects.requireNonNull(value, "value");
+        Shard<T> shard = lockShard(value);
+        try {
+            return shard.tree.containsKey(value);
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    @Override
+    public void remove(T value) {
+        Objects.requireNonNull(value, "value");
+        Shard<T> shard = lockShard(value);
+        try {
+            shard.tree.remove(value);
+            shard.size = shard.tree.size();
+        } finally {
+            shard.lock.unlock();
+        }
+    }
+
+    /**
+     * Splits the shard if it is still too large, unless another thread did
+     * so while we waited for the lock.
+     */
+    private void rebalance(Shard<T> overflowing) {
+        rebalanceLock.lock();
+        try {
+            Topology<T> old = topology;
+            if (old.shards().size() == 1) {
+                splitAll(old);
+                return;
+            }
+            int index = old.shards().indexOf(overflowing);
+            if (index >= 0 && overflowing.size > old.maxShardSize()) {
+                splitLocally(old, index);
+            }
+        } finally {
+            rebalanceLock.unlock();
+        }
+    }
+
+    /**
+     * Splits the only shard into maxShards shards, with split points at the
+     * quantiles.
+     */
+    private void splitAll(Topology<T> old) {
+        long stamp = topologyLock.writeLock();
+        try {
+            Shard<T> only = old.shards().getFirst();
+            only.lock.lock();
+            try {
+                if (only.size > old.maxShardSize()) {
+                    var splits = new ArrayList<T>(maxShards - 1);
+                    var shards = new ArrayList<>(old.shards());
+                    redistribute(splits, shards, 0, 1, maxShards);
+                    int perShard = (only.size + maxShards - 1) / maxShards;
+                    topology = new Topology<>(List.copyOf(splits), List.copyOf(shards), 2 * perShard);
+                    only.retired = true;
+                }
+            } finally {
+                only.lock.unlock();
+            }
+        } finally {
+            topologyLock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Splits the shard at index in half.  If we have maxShards already, we
+     * also merge the sparsest pair of adjacent shards, or if those would
+     * be too large together, we split the shard with its smaller neighbour
+     * into two instead.  We only lock the shards that we replace.
+     */
+    private void splitLocally(Topology<T> old, int index) {
+        List<Shard<T>> shards = old.shards();
+        int pair = -1;
+        int neighbour = -1;
+        if (shards.size() == maxShards) {
+            pair = sparsestPair(old, index);
+            if (pair < 0 || shards.get(pair).size + shards.get(pair + 1).size > old.maxShardSize()) {
+                pair = -1;
+                neighbour = index == 0 ? 1 : index == shards.size() - 1 ? index - 1
+                        : shards.get(index - 1).size < shards.get(index + 1).size ? index - 1 : index + 1;
+            }
+        }
+        var affected = new TreeSet<Integer>(List.of(index));
+        if (pair >= 0) {
+            affected.addAll(List.of(pair, pair + 1));
+        }
+        if (neighbour >= 0) {
+            affected.add(neighbour);
+        }
+        // in key order, like everyone else who holds more than one
+        affected.forEach(i -> shards.get(i).lock.lock());
+        try {
+            if (shards.get(index).size <= old.maxShardSize()) {
+                return;
+            }
+            var newSplits = new ArrayList<>(old.splits());
+            var newShards = new ArrayList<>(shards);
+            if (neighbour >= 0) {
+                redistribute(newSplits, newShards, Math.min(index, neighbour), Math.min(index, neighbour) + 2, 2);
+            } else if (pair > index) {
+                // replace the later range first, so that the indexes of the earlier one stay valid
+                redistribute(newSplits, newShards, pair, pair + 2, 1);
+                redistribute(newSplits, newShards, index, index + 1, 2);
+            } else {
+                redistribute(newSplits, newShards, index, index + 1, 2);
+                if (pair >= 0) {
+                    redistribute(newSplits, newShards, pair, pair + 2, 1);
+                }
+            }
+            int total = 0;
+            for (Shard<T> shard : newShards) {
+                total += shard.size;
+            }
+            int maxShardSize = Math.max(old.maxShardSize(), 2 * (total / newShards.size()));
+            topology = new Topology<>(List.copyOf(newSplits), List.copyOf(newShards), maxShardSize);
+            affected.forEach(i -> shards.get(i).retired = true);
+        } finally {
+            affected.forEach(i -> shards.get(i).lock.unlock());
+        }
+    }
+
+    /**
+     * @return the index of the first of the two adjacent shards with the
+     * fewest elements between them, other than the shard at index, or -1
+     * if there are no such two
+     */
+    private static int sparsestPair(Topology<?> topology, int index) {
+        int pair = -1;
+        int fewest = Integer.MAX_VALUE;
+        var shards = topology.shards();
+        for (int i = 0; i < shards.size() - 1; i++) {
+            int size = shards.get(i).size + shards.get(i + 1).size;
+            if (i != index && i + 1 != index && size < fewest) {
+                pair = i;
+                fewest = size;
+            }
+        }
+        return pair;
+    }
+
+    /**
+     * Replaces the shards from inclusive to to exclusive, and the split points
+     * between them, with up to count new shards of equal size.  The caller
+     * holds the locks of the old shards.
+     */
+    private static <T extends Comparable<T>> void redistribute(List<T> splits, List<Shard<T>> shards,
+                                                               int from, int to, int count) {
+        List<Shard<T>> old = shards.subList(from, to);
+        int size = 0;
+        for (Shard<T> oldShard : old) {
+            size += oldShard.tree.size();
+        }
+        int perShard = Math.max(1, (size + count - 1) / count);
+        var newSplits = new ArrayList<T>(count - 1);
+        var newShards = new ArrayList<Shard<T>>(count);
+        Shard<T> shard = new Shard<>();
+        newShards.add(shard);
+        for (Shard<T> oldShard : old) {
+            for (var entry : oldShard.tree) {
+                if (shard.tree.size() == perShard) {
+                    shard.size = perShard;
+                    shard = new Shard<>();
+                    newShards.add(shard);
+                    newSplits.add(entry.getKey());
+                }
+                shard.tree.put(entry.getKey(), Boolean.TRUE);
+            }
+        }
+        shard.size = shard.tree.size();
+        old.clear();
+        shards.addAll(from, newShards);
+        splits.subList(from, to - 1).clear();
+        splits.addAll(from, newSplits);
+    }
+
+    public void addAll(Collection<? extends T> values) {
+        bulk(values, (tree, value) -> tree.put(value, Boolean.TRUE));
+        for (Shard<T> shard : topology.shards()) {
+            if (shard.size > topology.maxShardSize()) {
+                rebalance(shard);
+            }
+        }
+    }
+
+    public void removeAll(Collection<? extends T> values) {
+        bulk(values, RedBlackBinaryTreeMap::remove);
+    }
+
+    /**
+     * Sorts the values into their shards and then applies the operation to
+     * all the shards in parallel, each under its own lock.
+     */
+    private void bulk(Collection<? extends T> values,
+                      BiConsumer<RedBlackBinaryTreeMap<T, Boolean>, T> operation) {
+        values.forEach(value -> Objects.requireNonNull(value, "value"));
+        long stamp = topologyLock.readLock();
+        try {
+            Topology<T> topology = this.topology;
+            int shards = topology.shards().size();
+            var buckets = new ArrayList<List<T>>(shards);
+            for (int i = 0; i < shards; i++) {
+                buckets.add(new ArrayList<>());
+            }
+            for (T value : values) {
+                buckets.get(topology.indexOf(value)).add(value);
+            }
+            IntStream.range(0, shards).parallel()
+                    .filter(i -> !buckets.get(i).isEmpty())
+                    .forEach(i -> {
+                        Shard<T> shard = topology.shards().get(i);
+                        shard.lock.lock();
+                        if (shard.retired) {
+                            // it was split since we sorted the values
+                            shard.lock.unlock();
+                            buckets.get(i).forEach(value -> {
+                                Shard<T> current = lockCurrentShard(value);
+                                try {
+                                    operation.accept(current.tree, value);
+                                    current.size = current.tree.size();
+                                } finally {
+                                    current.lock.unlock();
+                                }
+                            });
+                            return;
+                        }
+                        try {
+                            buckets.get(i).forEach(value -> operation.accept(shard.tree, value));
+                            shard.size = shard.tree.size();
+                        } finally {
+                            shard.lock.unlock();
+                        }
+                    });
+        } finally {
+            topologyLock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * @return the number of shards, which grows to the maximum with the
+     * first split
+     */
+    public int shards() {
+        return topology.shards().size();
+    }
+
+    /**
+     * @return the sizes of the shards, in key order
+     */
+    public int[] shardSizes() {
+        return topology.shards().stream().mapToInt(shard -> shard.size).toArray();
+    }
+
+    /**
+     * @return the sum of the shard sizes, which is only exact when there
+     * are no concurrent modifications
+     */
+    @Override
+    public int size() {
+        int size = 0;
+        for (Shard<T> shard : topology.shards()) {
+            size += shard.size;
+        }
+        return size;
+    }
+
+    /**
+     * Like size(), this is only exact when there are no concurrent
+     * modifications.
+     */
+    @Override
+    public Footprint footprint() {
+        // maxShards, topologyLock, rebalanceLock and topology, and the
+        // StampedLock, the ReentrantLock and its NonfairSync
+        long fixed = ObjectLayout.objectSize(3, Integer.BYTES)
+                + ObjectLayout.objectSize(5, Long.BYTES + Integer.BYTES) + LOCK_SIZE;
+        Topology<T> topology = this.topology;
+        // the Topology and its two lists
+        fixed += ObjectLayout.objectSize(2, Integer.BYTES)
+                + 2 * ObjectLayout.objectSize(1, 1)
+                + ObjectLayout.arraySize(topology.splits().size(), ObjectLayout.REFERENCE_SIZE)
+                + ObjectLayout.arraySize(topology.shards().size(), ObjectLayout.REFERENCE_SIZE);
+        var footprint = new Footprint(fixed, 0, 0, 0);
+        for (Shard<T> shard : topology.shards()) {
+            // lock, tree, size and retired
+            footprint = footprint.plus(new Footprint(ObjectLayout.objectSize(2, Integer.BYTES + 1)
+                    + LOCK_SIZE, 0, 0, 0)).plus(shard.tree.footprint(0, 0, AbstractBinaryTreeMap.NODE_SIZE));
+        }
+        return footprint;
+    }
+
+    /**
+     * @return the depth of the deepest shard
+     */
+    @Override
+    public int maxDepth() {
+        long stamp = topologyLock.readLock();
+        try {
+            retry:
+            while (true) {
+                int maxDepth = 0;
+                for (Shard<T> shard : topology.shards()) {
+                    shard.lock.lock();
+                    try {
+                        if (shard.retired) {
+                            continue retry;
+                        }
+                        maxDepth = Math.max(maxDepth, shard.tree.maxDepth());
+                    } finally {
+                        shard.lock.unlock();
+                    }
+                }
+                return maxDepth;
+            }
+        } finally {
+            topologyLock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new ChunkIterator();
+    }
+
+    private class ChunkIterator implements Iterator<T> {
+        private final List<T> chunk = new ArrayList<>(ITERATION_CHUNK);
+        private int index = 0;
+        // where the next chunk starts, null before the first one
+        private T from;
+        private boolean inclusive;
+        private boolean done;
+
+        @Override
+        public boolean hasNext() {
+            while (index == chunk.size() && !done) {
+                fetch();
+            }
+            return index < chunk.size();
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return chunk.get(index++);
+        }
+
+        private void fetch() {
+            chunk.clear();
+            index = 0;
+            long stamp = topologyLock.readLock();
+            try {
+                Topology<T> topology;
+                int shardIndex;
+                Shard<T> shard;
+                while (true) {
+                    topology = ShardedBinaryTree.this.topology;
+                    shardIndex = from == null ? 0 : topology.indexOf(from);
+                    shard = topology.shards().get(shardIndex);
+                    shard.lock.lock();
+                    if (!shard.retired) {
+                        break;
+                    }
+                    shard.lock.unlock();
+                }
+                try {
+                    var tree = shard.tree;
+                    T key = from == null ? (tree.isEmpty() ? null : tree.firstKey())
+                            : inclusive ? tree.ceilingKey(from) : tree.higherKey(from);
+                    while (key != null && chunk.size() < ITERATION_CHUNK) {
+                        chunk.add(key);
+                        key = tree.higherKey(key);
+                    }
+                } finally {
+                    shard.lock.unlock();
+                }
+                if (!chunk.isEmpty()) {
+                    from = chunk.getLast();
+                    inclusive = false;
+                } else if (shardIndex < topology.splits().size()) {
+                    from = topology.splits().get(shardIndex);
+                    inclusive = true;
+                } else {
+                    done = true;
+                }
+            } finally {
+                topologyLock.unlockRead(stamp);
+            }
+        }
+    }
+}
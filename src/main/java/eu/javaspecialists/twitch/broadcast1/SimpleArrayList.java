@@ -1,28 +1,124 @@
 package eu.javaspecialists.twitch.broadcast1;
 
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 // See https://www.linkedin.com/video/live/urn:li:ugcPost:7169345856473653248/
 public class SimpleArrayList<T> implements SimpleList<T> {
+    private static final int DEFAULT_CAPACITY = 10;
+    static final int PARALLEL_SORT_THRESHOLD = 1 << 16;
+
+    private final GrowthPolicy growthPolicy;
     private Object[] elements;
     private int size = 0;
     private int modCount = 0;
+    private OperationCounters counters;
 
     public SimpleArrayList() {
-        elements = new Object[10];
+        this(DEFAULT_CAPACITY);
+    }
+
+    public SimpleArrayList(int initialCapacity) {
+        this(initialCapacity, GrowthPolicy.doubling());
+    }
+
+    public SimpleArrayList(int initialCapacity, GrowthPolicy growthPolicy) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + initialCapacity);
+        }
+        this.elements = new Object[initialCapacity];
+        this.growthPolicy = Objects.requireNonNull(growthPolicy, "growthPolicy");
     }
 
     @Override
     public void add(T element) {
         if (size == elements.length) {
-            elements = Arrays.copyOf(elements, 2 * size);
+            grow(size + 1);
         }
         elements[size] = element;
         size++;
         modCount++;
+        if (counters != null) {
+            counters.adds.increment();
+        }
+    }
+
+    /**
+     * Starts counting adds, removes and lookups on this list, from now on.
+     */
+    public OperationCounters enableCounters() {
+        if (counters == null) {
+            counters = new OperationCounters();
+        }
+        return counters;
+    }
+
+    /**
+     * Makes sure that we can hold at least minCapacity elements without
+     * growing the backing array again.
+     */
+    public void ensureCapacity(int minCapacity) {
+        if (minCapacity > elements.length) {
+            grow(minCapacity);
+        }
+    }
+
+    /**
+     * Shrinks the backing array to the current size of the list.
+     */
+    public void trimToSize() {
+        if (size < elements.length) {
+            resize(size);
+            modCount++;
+        }
+    }
+
+    int capacity() {
+        return elements.length;
+    }
+
+    private void grow(int minCapacity) {
+        resize(growthPolicy.newCapacity(elements.length, minCapacity));
+    }
+
+    private void resize(int newCapacity) {
+        var event = new ArrayResizeEvent();
+        event.begin();
+        int oldCapacity = elements.length;
+        elements = Arrays.copyOf(elements, newCapacity);
+        event.end();
+        if (event.shouldCommit()) {
+            event.listClass = getClass().getName();
+            event.oldCapacity = oldCapacity;
+            event.newCapacity = newCapacity;
+            event.copiedBytes = (long) Math.min(size, newCapacity) * ObjectLayout.REFERENCE_SIZE;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void add(int index, T element) {
+        if (index > size || index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (size == elements.length) {
+            grow(size + 1);
+        }
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = element;
+        size++;
+        modCount++;
+        if (counters != null) {
+            counters.adds.increment();
+        }
     }
 
     @Override
@@ -30,6 +126,9 @@ public class SimpleArrayList<T> implements SimpleList<T> {
         if (index >= size || index < 0) {
             throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
         }
+        if (counters != null) {
+            counters.lookups.increment();
+        }
         return (T) elements[index];
     }
 
@@ -38,6 +137,13 @@ public class SimpleArrayList<T> implements SimpleList<T> {
         return size;
     }
 
+    @Override
+    public Footprint footprint() {
+        // growthPolicy, elements, counters, size and modCount
+        return new Footprint(ObjectLayout.objectSize(3, 2 * Integer.BYTES), 0, 0,
+                ObjectLayout.arraySize(elements.length, ObjectLayout.REFERENCE_SIZE));
+    }
+
     @Override
     public void removeAt(int index) {
         if (index >= size || index < 0) {
@@ -47,6 +153,80 @@ public class SimpleArrayList<T> implements SimpleList<T> {
         size--;
         elements[size] = null;
         modCount++;
+        if (counters != null) {
+            counters.removes.increment();
+        }
+    }
+
+    @Override
+    public void addAll(Iterable<? extends T> elements) {
+        if (elements instanceof SimpleArrayList<? extends T> other) {
+            int count = other.size;
+            ensureCapacity(size + count);
+            System.arraycopy(other.elements, 0, this.elements, size, count);
+            size += count;
+            modCount++;
+        } else if (elements instanceof Collection<? extends T> collection) {
+            Object[] array = collection.toArray();
+            ensureCapacity(size + array.length);
+            System.arraycopy(array, 0, this.elements, size, array.length);
+            size += array.length;
+            modCount++;
+        } else {
+            SimpleList.super.addAll(elements);
+        }
+    }
+
+    /**
+     * Compacts the surviving elements towards the front in a single pass.
+     * If the filter throws an exception, the elements that have not been
+     * tested yet are kept.
+     */
+    @Override
+    public boolean removeIf(Predicate<? super T> filter) {
+        Objects.requireNonNull(filter, "filter");
+        int expectedModCount = modCount;
+        int read = 0;
+        int write = 0;
+        try {
+            for (; read < size; read++) {
+                @SuppressWarnings("unchecked")
+                T element = (T) elements[read];
+                if (!filter.test(element)) {
+                    elements[write++] = element;
+                }
+            }
+        } finally {
+            if (read < size) {
+                System.arraycopy(elements, read, elements, write, size - read);
+                write += size - read;
+            }
+            if (expectedModCount != modCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (write < size) {
+                Arrays.fill(elements, write, size, null);
+                size = write;
+                modCount++;
+            }
+        }
+        return read != write;
+    }
+
+    @Override
+    public void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || fromIndex > toIndex || toIndex > size) {
+            throw new IndexOutOfBoundsException(
+                    "From: " + fromIndex + ", To: " + toIndex + ", Size: " + size);
+        }
+        if (fromIndex == toIndex) {
+            return;
+        }
+        System.arraycopy(elements, toIndex, elements, fromIndex, size - toIndex);
+        int newSize = size - (toIndex - fromIndex);
+        Arrays.fill(elements, newSize, size, null);
+        size = newSize;
+        modCount++;
     }
 
     @Override
@@ -55,10 +235,30 @@ public class SimpleArrayList<T> implements SimpleList<T> {
             private int position = 0;
             private int expectedModCount = modCount;
             private boolean nextCalled = false;
+            private LongIterationEvent event =
+                    LongIterationEvent.isTypeEnabled() ? new LongIterationEvent() : null;
+
+            {
+                if (event != null) {
+                    event.begin();
+                }
+            }
 
             @Override
             public boolean hasNext() {
-                return position < size;
+                if (position < size) {
+                    return true;
+                }
+                if (event != null) {
+                    event.end();
+                    if (event.shouldCommit()) {
+                        event.collectionClass = SimpleArrayList.this.getClass().getName();
+                        event.elements = position;
+                        event.commit();
+                    }
+                    event = null;
+                }
+                return false;
             }
 
             @Override
@@ -90,4 +290,117 @@ public class SimpleArrayList<T> implements SimpleList<T> {
             }
         };
     }
-}
\ No newline at end of file
+
+    /**
+     * Sorts the backing array in place with TimSort, or with a parallel
+     * merge sort in the common ForkJoinPool for large lists.
+     */
+    @Override
+    public void sort(Comparator<? super T> comparator) {
+        sort(comparator, size >= PARALLEL_SORT_THRESHOLD);
+    }
+
+    @SuppressWarnings("unchecked")
+    void sort(Comparator<? super T> comparator, boolean parallel) {
+        int expectedModCount = modCount;
+        if (parallel) {
+            Arrays.parallelSort((T[]) elements, 0, size, comparator);
+        } else {
+            Arrays.sort((T[]) elements, 0, size, comparator);
+        }
+        if (expectedModCount != modCount) {
+            throw new ConcurrentModificationException();
+        }
+        modCount++;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int binarySearch(T key, Comparator<? super T> comparator) {
+        return Arrays.binarySearch((T[]) elements, 0, size, key, comparator);
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return new ArrayListSpliterator(0, -1, 0);
+    }
+
+    /**
+     * Splits by index, so both halves are exactly sized.  The spliterator
+     * binds to the list size on first use, and checks for concurrent
+     * modification after traversing.
+     */
+    private final class ArrayListSpliterator implements Spliterator<T> {
+        private int index;
+        private int fence; // -1 until first used
+        private int expectedModCount;
+
+        ArrayListSpliterator(int origin, int fence, int expectedModCount) {
+            this.index = origin;
+            this.fence = fence;
+            this.expectedModCount = expectedModCount;
+        }
+
+        private int getFence() {
+            int hi;
+            if ((hi = fence) < 0) {
+                expectedModCount = modCount;
+                hi = fence = size;
+            }
+            return hi;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int hi = getFence();
+            int lo = index;
+            int mid = (lo + hi) >>> 1;
+            return lo >= mid ? null : new ArrayListSpliterator(lo, index = mid, expectedModCount);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean tryAdvance(Consumer<? super T> action) {
+            Objects.requireNonNull(action, "action");
+            int hi = getFence();
+            int i = index;
+            if (i < hi) {
+                index = i + 1;
+                action.accept((T) elements[i]);
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void forEachRemaining(Consumer<? super T> action) {
+            Objects.requireNonNull(action, "action");
+            int hi = getFence();
+            Object[] elements = SimpleArrayList.this.elements;
+            if (hi > elements.length) {
+                throw new ConcurrentModificationException();
+            }
+            for (int i = index; i < hi; i++) {
+                action.accept((T) elements[i]);
+            }
+            index = hi;
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            return getFence() - index;
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
+    }
+}
@@ -1,8 +1,14 @@
 package eu.javaspecialists.twitch.broadcast1;
 
+import java.util.Comparator;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 // See https://www.linkedin.com/video/live/urn:li:ugcPost:7170836736925765632/
 public class SimpleLinkedList<T> implements SimpleList<T> {
@@ -11,7 +17,8 @@ public class SimpleLinkedList<T> implements SimpleList<T> {
     private int size = 0;
     private int modCount = 0;
 
-    private static class Node<T> {
+    // package-private, so that LruCache can hold on to nodes for O(1) access
+    static class Node<T> {
         T item;
         Node<T> next;
         Node<T> prev;
@@ -24,6 +31,14 @@ public class SimpleLinkedList<T> implements SimpleList<T> {
     }
 
     public void add(T element) {
+        linkLast(element);
+    }
+
+    /**
+     * Appends the element and returns its node, which stays valid until it
+     * is removed.
+     */
+    Node<T> linkLast(T element) {
         final Node<T> l = last;
         final Node<T> newNode = new Node<>(l, element, null);
         last = newNode;
@@ -33,6 +48,62 @@ public class SimpleLinkedList<T> implements SimpleList<T> {
             l.next = newNode;
         size++;
         modCount++;
+        return newNode;
+    }
+
+    Node<T> firstNode() {
+        return first;
+    }
+
+    /**
+     * Removes the node in O(1).  The node must belong to this list.
+     */
+    T removeNode(Node<T> node) {
+        T element = unlink(node);
+        modCount++;
+        return element;
+    }
+
+    /**
+     * Relinks the node to the end of the list in O(1), without allocating.
+     * The node must belong to this list.
+     */
+    void moveToLast(Node<T> node) {
+        if (node == last) {
+            return;
+        }
+        final Node<T> next = node.next;
+        final Node<T> prev = node.prev;
+        if (prev == null)
+            first = next;
+        else
+            prev.next = next;
+        next.prev = prev;
+        node.prev = last;
+        node.next = null;
+        last.next = node;
+        last = node;
+        modCount++;
+    }
+
+    public void add(int index, T element) {
+        if (index > size || index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (index == size) {
+            add(element);
+        } else {
+            Node<T> succ = node(index);
+            final Node<T> pred = succ.prev;
+            final Node<T> newNode = new Node<>(pred, element, succ);
+            succ.prev = newNode;
+            if (pred == null)
+                first = newNode;
+            else
+                pred.next = newNode;
+            size++;
+            modCount++;
+        }
     }
 
     public T get(int index) {
@@ -60,6 +131,13 @@ public class SimpleLinkedList<T> implements SimpleList<T> {
         return size;
     }
 
+    @Override
+    public Footprint footprint() {
+        // first, last, size and modCount, and the item, next and prev of each node
+        return new Footprint(ObjectLayout.objectSize(2, 2 * Integer.BYTES), size,
+                ObjectLayout.objectSize(3, 0), 0);
+    }
+
     public void removeAt(int index) {
         if (index >= size || index < 0) {
             throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
@@ -69,6 +147,65 @@ public class SimpleLinkedList<T> implements SimpleList<T> {
         modCount++;
     }
 
+    @Override
+    public void addAll(Iterable<? extends T> elements) {
+        if (elements == this) {
+            Node<T> x = first;
+            for (int i = size; i > 0; i--) {
+                add(x.item);
+                x = x.next;
+            }
+        } else {
+            SimpleList.super.addAll(elements);
+        }
+    }
+
+    /**
+     * Unlinks all the matching nodes in a single traversal.
+     */
+    @Override
+    public boolean removeIf(Predicate<? super T> filter) {
+        Objects.requireNonNull(filter, "filter");
+        int expectedModCount = modCount;
+        boolean removed = false;
+        for (Node<T> x = first; x != null; ) {
+            Node<T> next = x.next;
+            if (filter.test(x.item)) {
+                if (expectedModCount != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+                unlink(x);
+                removed = true;
+            }
+            x = next;
+        }
+        if (expectedModCount != modCount) {
+            throw new ConcurrentModificationException();
+        }
+        if (removed) {
+            modCount++;
+        }
+        return removed;
+    }
+
+    @Override
+    public void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || fromIndex > toIndex || toIndex > size) {
+            throw new IndexOutOfBoundsException(
+                    "From: " + fromIndex + ", To: " + toIndex + ", Size: " + size);
+        }
+        if (fromIndex == toIndex) {
+            return;
+        }
+        Node<T> x = node(fromIndex);
+        for (int i = fromIndex; i < toIndex; i++) {
+            Node<T> next = x.next;
+            unlink(x);
+            x = next;
+        }
+        modCount++;
+    }
+
     private T unlink(Node<T> x) {
         final T element = x.item;
         final Node<T> next = x.next;
@@ -135,4 +272,237 @@ public class SimpleLinkedList<T> implements SimpleList<T> {
             }
         };
     }
-}
\ No newline at end of file
+
+    /**
+     * Sorts the list by relinking the nodes, with a bottom-up merge sort on
+     * the next pointers, which is stable and copies no elements.  We restore
+     * the prev pointers as we merge.  If the comparator throws, we splice the
+     * runs that we have not merged yet back onto what we have merged so far,
+     * so that the list still holds all its elements, in some order, with
+     * consistent links.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void sort(Comparator<? super T> comparator) {
+        if (size < 2) {
+            return;
+        }
+        Comparator<? super T> cmp = comparator != null ? comparator
+                : (a, b) -> ((Comparable<? super T>) a).compareTo(b);
+        int expectedModCount = modCount;
+        Node<T> list = first;
+        Node<T> tail = null;
+        Node<T> p = null;
+        Node<T> q = null;
+        int pSize = 0;
+        try {
+            for (int runLength = 1; ; runLength <<= 1) {
+                p = list;
+                list = null;
+                tail = null;
+                int merges = 0;
+                while (p != null) {
+                    merges++;
+                    q = p;
+                    pSize = 0;
+                    while (pSize < runLength && q != null) {
+                        pSize++;
+                        q = q.next;
+                    }
+                    int qSize = runLength;
+                    while (pSize > 0 || (qSize > 0 && q != null)) {
+                        Node<T> next;
+                        if (pSize == 0) {
+                            next = q;
+                            q = q.next;
+                            qSize--;
+                        } else if (qSize == 0 || q == null
+                                || cmp.compare(p.item, q.item) <= 0) {
+                            next = p;
+                            p = p.next;
+                            pSize--;
+                        } else {
+                            next = q;
+                            q = q.next;
+                            qSize--;
+                        }
+                        if (tail == null) {
+                            list = next;
+                        } else {
+                            tail.next = next;
+                        }
+                        next.prev = tail;
+                        tail = next;
+                    }
+                    p = q;
+                }
+                tail.next = null;
+                if (merges <= 1) {
+                    break;
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            relinkAfterFailedMerge(list, tail, p, pSize, q);
+            throw e;
+        }
+        first = list;
+        last = tail;
+        if (expectedModCount != modCount) {
+            throw new ConcurrentModificationException();
+        }
+        modCount++;
+    }
+
+    /**
+     * The comparator threw while merging the remaining pSize nodes from p
+     * with those from q.  The unmerged nodes still link to each other, and
+     * q to the rest of the pass, except that the last of the p nodes links
+     * to where the q nodes used to start.
+     */
+    private void relinkAfterFailedMerge(Node<T> list, Node<T> tail,
+                                        Node<T> p, int pSize, Node<T> q) {
+        Node<T> lastOfP = p;
+        for (int i = 1; i < pSize; i++) {
+            lastOfP = lastOfP.next;
+        }
+        lastOfP.next = q;
+        if (tail == null) {
+            list = p;
+        } else {
+            tail.next = p;
+        }
+        Node<T> prev = null;
+        for (Node<T> node = list; node != null; node = node.next) {
+            node.prev = prev;
+            prev = node;
+        }
+        first = list;
+        last = prev;
+        modCount++;
+    }
+
+    /**
+     * Binary search that walks the nodes from the previous probe to the next
+     * one, so that it does O(n) steps, rather than calling get() O(log n)
+     * times.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public int binarySearch(T key, Comparator<? super T> comparator) {
+        int low = 0;
+        int high = size - 1;
+        Node<T> node = first;
+        int index = 0;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            for (; index < mid; index++) node = node.next;
+            for (; index > mid; index--) node = node.prev;
+            int cmp = comparator == null
+                    ? ((Comparable<? super T>) node.item).compareTo(key)
+                    : comparator.compare(node.item, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        return new LinkedListSpliterator();
+    }
+
+    /**
+     * A linked list cannot be split in the middle without walking to it, so
+     * trySplit() copies batches of increasing size into arrays, which can
+     * then be split by index.  This is the same approach as the spliterator
+     * of java.util.LinkedList.
+     */
+    private final class LinkedListSpliterator implements Spliterator<T> {
+        private static final int BATCH_UNIT = 1 << 10;
+        private static final int MAX_BATCH = 1 << 25;
+        private Node<T> current;
+        private int remaining = -1; // -1 until first used
+        private int expectedModCount;
+        private int batch;
+
+        private int getRemaining() {
+            int s;
+            if ((s = remaining) < 0) {
+                expectedModCount = modCount;
+                current = first;
+                s = remaining = size;
+            }
+            return s;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            int s = getRemaining();
+            Node<T> p = current;
+            if (s > 1 && p != null) {
+                int n = Math.min(Math.min(batch + BATCH_UNIT, s), MAX_BATCH);
+                Object[] array = new Object[n];
+                int j = 0;
+                do {
+                    array[j++] = p.item;
+                } while ((p = p.next) != null && j < n);
+                current = p;
+                batch = j;
+                remaining = s - j;
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                return Spliterators.spliterator(array, 0, j, Spliterator.ORDERED);
+            }
+            return null;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            Objects.requireNonNull(action, "action");
+            Node<T> p;
+            if (getRemaining() > 0 && (p = current) != null) {
+                --remaining;
+                current = p.next;
+                action.accept(p.item);
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            Objects.requireNonNull(action, "action");
+            Node<T> p;
+            int n = getRemaining();
+            if (n > 0 && (p = current) != null) {
+                current = null;
+                remaining = 0;
+                do {
+                    action.accept(p.item);
+                } while ((p = p.next) != null && --n > 0);
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        @Override
+        public long estimateSize() {
+            return getRemaining();
+        }
+
+        @Override
+        public int characteristics() {
+            return Spliterator.ORDERED | Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
+    }
+}
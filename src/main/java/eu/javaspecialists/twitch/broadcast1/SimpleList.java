@@ -1,5 +1,17 @@
 package eu.javaspecialists.twitch.broadcast1;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
 public interface SimpleList<T> extends Iterable<T> {
     void add(T element);
 
@@ -8,4 +20,165 @@ public interface SimpleList<T> extends Iterable<T> {
     int size();
 
     void removeAt(int index);
+
+    /**
+     * Inserts the element at the given index, shifting the element currently
+     * at that position, and any after it, one to the right.
+     */
+    void add(int index, T element);
+
+    default void addFirst(T element) {
+        add(0, element);
+    }
+
+    default T removeFirst() {
+        if (size() == 0) {
+            throw new NoSuchElementException();
+        }
+        T element = get(0);
+        removeAt(0);
+        return element;
+    }
+
+    default T removeLast() {
+        if (size() == 0) {
+            throw new NoSuchElementException();
+        }
+        int index = size() - 1;
+        T element = get(index);
+        removeAt(index);
+        return element;
+    }
+
+    /**
+     * Sorts the list with a stable sort.  A null comparator sorts by natural
+     * ordering.  The default copies the elements into an array, sorts it,
+     * and puts the elements back with removeRange() and addAll().
+     */
+    @SuppressWarnings("unchecked")
+    default void sort(Comparator<? super T> comparator) {
+        Object[] array = new Object[size()];
+        int i = 0;
+        for (T element : this) {
+            array[i++] = element;
+        }
+        Arrays.sort((T[]) array, comparator);
+        removeRange(0, size());
+        addAll(Arrays.asList((T[]) array));
+    }
+
+    /**
+     * Searches a list that is sorted by the comparator, or by natural
+     * ordering if it is null.
+     *
+     * @return the index of the key, if it is in the list, otherwise
+     * (-(insertion point) - 1)
+     */
+    default int binarySearch(T key, Comparator<? super T> comparator) {
+        int low = 0;
+        int high = size() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compare(get(mid), key, comparator);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> int compare(T a, T b, Comparator<? super T> comparator) {
+        return comparator == null
+                ? ((Comparable<? super T>) a).compareTo(b)
+                : comparator.compare(a, b);
+    }
+
+    /**
+     * Returns a sized spliterator over the iterator.  The size is taken when
+     * the spliterator is created, so this needs a fail-fast iterator, which
+     * throws rather than yields more elements than that.  Implementations
+     * with a weakly consistent iterator must override it, and those with
+     * cheap random access should split by index instead.
+     */
+    @Override
+    default Spliterator<T> spliterator() {
+        return Spliterators.spliterator(iterator(), size(), Spliterator.ORDERED);
+    }
+
+    default Stream<T> stream() {
+        return StreamSupport.stream(spliterator(), false);
+    }
+
+    default Stream<T> parallelStream() {
+        return StreamSupport.stream(spliterator(), true);
+    }
+
+    default void addAll(Iterable<? extends T> elements) {
+        if (elements == this) {
+            // iterating over ourselves while adding would never end
+            for (int i = 0, size = size(); i < size; i++) {
+                add(get(i));
+            }
+            return;
+        }
+        for (T element : elements) {
+            add(element);
+        }
+    }
+
+    /**
+     * Removes all the elements that match the filter.  Implementations should
+     * do this in a single pass, rather than one removeAt() per match.
+     *
+     * @return true if any elements were removed
+     */
+    default boolean removeIf(Predicate<? super T> filter) {
+        Objects.requireNonNull(filter, "filter");
+        boolean removed = false;
+        for (Iterator<T> it = iterator(); it.hasNext(); ) {
+            if (filter.test(it.next())) {
+                it.remove();
+                removed = true;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Removes the elements from fromIndex, inclusive, to toIndex, exclusive.
+     */
+    default void removeRange(int fromIndex, int toIndex) {
+        if (fromIndex < 0 || fromIndex > toIndex || toIndex > size()) {
+            throw new IndexOutOfBoundsException(
+                    "From: " + fromIndex + ", To: " + toIndex + ", Size: " + size());
+        }
+        for (int i = fromIndex; i < toIndex; i++) {
+            removeAt(fromIndex);
+        }
+    }
+
+    /**
+     * Keeps only the elements that are also contained in the given collection.
+     *
+     * @return true if any elements were removed
+     */
+    default boolean retainAll(Collection<?> elements) {
+        Objects.requireNonNull(elements, "elements");
+        return removeIf(element -> !elements.contains(element));
+    }
+
+    /**
+     * @return an estimate of the memory this list retains, not counting its
+     * elements, see Footprint
+     */
+    Footprint footprint();
+
+    default long estimatedRetainedBytes() {
+        return footprint().totalBytes();
+    }
 }
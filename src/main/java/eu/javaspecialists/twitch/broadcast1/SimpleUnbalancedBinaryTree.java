@@ -17,6 +17,12 @@ public class SimpleUnbalancedBinaryTree<T extends Comparable<T>> extends Abstrac
         return root;
     }
 
+    @Override
+    public Footprint footprint() {
+        // root, and the value, left and right of each node
+        return footprint(1, 0, ObjectLayout.objectSize(3, 0));
+    }
+
     @Override
     public void add(T value) {
         modCount++;
@@ -25,16 +31,17 @@ public class SimpleUnbalancedBinaryTree<T extends Comparable<T>> extends Abstrac
         } else {
             add(root, value);
         }
+        added();
     }
 
     private void add(Node<T> current, T value) {
-        if (value.compareTo(current.value) < 0) {
+        if (compare(value, current.value) < 0) {
             if (current.left == null) {
                 current.left = new Node<>(value);
             } else {
                 add(current.left, value);
             }
-        } else if (value.compareTo(current.value) > 0) {
+        } else if (compare(value, current.value) > 0) {
             if (current.right == null) {
                 current.right = new Node<>(value);
             } else {
@@ -46,6 +53,7 @@ public class SimpleUnbalancedBinaryTree<T extends Comparable<T>> extends Abstrac
     @Override
     public void remove(T value) {
         root = remove(root, value);
+        removed();
     }
 
     private Node<T> remove(Node<T> current, T value) {
@@ -53,9 +61,9 @@ public class SimpleUnbalancedBinaryTree<T extends Comparable<T>> extends Abstrac
             return null;
         }
 
-        if (value.compareTo(current.value) < 0) {
+        if (compare(value, current.value) < 0) {
             current.left = remove(current.left, value);
-        } else if (value.compareTo(current.value) > 0) {
+        } else if (compare(value, current.value) > 0) {
             current.right = remove(current.right, value);
         } else {
             // value is the same as current.value
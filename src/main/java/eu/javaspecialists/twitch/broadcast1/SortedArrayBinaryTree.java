@@ -0,0 +1,125 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+/**
+ * A BinaryTree that keeps its elements in a sorted array and finds them with
+ * a binary search, which is the same number of comparisons as a perfectly
+ * balanced tree, without any nodes.  Adding and removing shift the elements
+ * behind the position, so they are O(n), but for a few hundred elements the
+ * arraycopy is cheaper than allocating and rebalancing nodes.
+ *
+ * @param <T> the type of elements stored in the tree
+ */
+public class SortedArrayBinaryTree<T extends Comparable<T>> implements BinaryTree<T> {
+    private static final int DEFAULT_CAPACITY = 10;
+    private Object[] elements = new Object[DEFAULT_CAPACITY];
+    private int size = 0;
+    private int modCount = 0;
+
+    @SuppressWarnings("unchecked")
+    private T elementAt(int index) {
+        return (T) elements[index];
+    }
+
+    /**
+     * @return the index of the value, or -(insertion point) - 1 if it is
+     * absent, like Arrays.binarySearch()
+     */
+    private int indexOf(T value) {
+        Objects.requireNonNull(value, "value");
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = value.compareTo(elementAt(mid));
+            if (cmp == 0) {
+                return mid;
+            }
+            if (cmp < 0) {
+                high = mid - 1;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return -(low + 1);
+    }
+
+    @Override
+    public void add(T value) {
+        int index = indexOf(value);
+        if (index >= 0) {
+            return;
+        }
+        index = -index - 1;
+        if (size == elements.length) {
+            elements = Arrays.copyOf(elements,
+                    GrowthPolicy.oneAndAHalf().newCapacity(elements.length, size + 1));
+        }
+        System.arraycopy(elements, index, elements, index + 1, size - index);
+        elements[index] = value;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    public boolean contains(T value) {
+        return indexOf(value) >= 0;
+    }
+
+    @Override
+    public void remove(T value) {
+        int index = indexOf(value);
+        if (index < 0) {
+            return;
+        }
+        System.arraycopy(elements, index + 1, elements, index, size - index - 1);
+        elements[--size] = null;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Footprint footprint() {
+        // elements, size and modCount
+        return new Footprint(ObjectLayout.objectSize(1, 2 * Integer.BYTES), 0, 0,
+                ObjectLayout.arraySize(elements.length, ObjectLayout.REFERENCE_SIZE));
+    }
+
+    /**
+     * @return the most elements that a binary search compares with
+     */
+    @Override
+    public int maxDepth() {
+        return 32 - Integer.numberOfLeadingZeros(size);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<>() {
+            private final int initialModCount = modCount;
+            private int index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < size;
+            }
+
+            @Override
+            public T next() {
+                if (modCount != initialModCount)
+                    throw new ConcurrentModificationException();
+                if (!hasNext()) throw new NoSuchElementException();
+                return elementAt(index++);
+            }
+        };
+    }
+}
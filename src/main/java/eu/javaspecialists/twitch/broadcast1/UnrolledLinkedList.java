@@ -0,0 +1,315 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An unrolled linked list, which keeps up to chunkSize elements in each node.
+ * Compared to SimpleLinkedList, we need n/B nodes instead of n, and elements
+ * that are next to each other also sit next to each other in memory.
+ * <p>
+ * Indexed access walks the chunks from whichever end is closer, which is
+ * O(n/B).  If the list is created with a chunk index, we instead binary
+ * search an array of chunk start positions, which is O(log n), but the
+ * index has to be rebuilt in O(n/B) after each modification.
+ *
+ * @param <T> the type of elements in the list
+ */
+public class UnrolledLinkedList<T> implements SimpleList<T> {
+    private static final int DEFAULT_CHUNK_SIZE = 64;
+
+    private final int chunkSize;
+    private final boolean indexed;
+    private Chunk<T> first;
+    private Chunk<T> last;
+    private int chunks = 0;
+    private int size = 0;
+    private int modCount = 0;
+
+    // chunk index, only valid while indexModCount == modCount
+    private Chunk<T>[] chunkIndex;
+    private int[] chunkStarts;
+    private int indexModCount = -1;
+
+    private static class Chunk<T> {
+        final Object[] items;
+        int count;
+        Chunk<T> next;
+        Chunk<T> prev;
+
+        Chunk(int chunkSize) {
+            this.items = new Object[chunkSize];
+        }
+    }
+
+    private record Position<T>(Chunk<T> chunk, int offset) {
+    }
+
+    public UnrolledLinkedList() {
+        this(DEFAULT_CHUNK_SIZE, false);
+    }
+
+    public UnrolledLinkedList(int chunkSize, boolean indexed) {
+        if (chunkSize < 4) {
+            throw new IllegalArgumentException("chunkSize=" + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        this.indexed = indexed;
+    }
+
+    @Override
+    public void add(T element) {
+        if (last == null || last.count == chunkSize) {
+            linkAfter(last, new Chunk<>(chunkSize));
+        }
+        last.items[last.count++] = element;
+        size++;
+        modCount++;
+    }
+
+    /**
+     * Inserts the element at the given index, shifting at most one chunk.
+     * If that chunk is full, we split it in half first.
+     */
+    @Override
+    public void add(int index, T element) {
+        if (index > size || index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (index == size) {
+            add(element);
+            return;
+        }
+        Position<T> position = position(index);
+        Chunk<T> chunk = position.chunk();
+        int offset = position.offset();
+        if (chunk.count == chunkSize) {
+            Chunk<T> newChunk = new Chunk<>(chunkSize);
+            int half = chunkSize >>> 1;
+            System.arraycopy(chunk.items, half, newChunk.items, 0, chunkSize - half);
+            Arrays.fill(chunk.items, half, chunkSize, null);
+            newChunk.count = chunkSize - half;
+            chunk.count = half;
+            linkAfter(chunk, newChunk);
+            if (offset > half) {
+                chunk = newChunk;
+                offset -= half;
+            }
+        }
+        System.arraycopy(chunk.items, offset, chunk.items, offset + 1, chunk.count - offset);
+        chunk.items[offset] = element;
+        chunk.count++;
+        size++;
+        modCount++;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index >= size || index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        Position<T> position = position(index);
+        return (T) position.chunk().items[position.offset()];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Each chunk is a node, with its items array of chunkSize.
+     */
+    @Override
+    public Footprint footprint() {
+        // first, last, chunkIndex and chunkStarts, five ints and indexed
+        long fixed = ObjectLayout.objectSize(4, 5 * Integer.BYTES + 1);
+        if (chunkIndex != null) {
+            fixed += ObjectLayout.arraySize(chunkIndex.length, ObjectLayout.REFERENCE_SIZE)
+                    + ObjectLayout.arraySize(chunkStarts.length, Integer.BYTES);
+        }
+        // items, next, prev and count
+        long chunk = ObjectLayout.objectSize(3, Integer.BYTES)
+                + ObjectLayout.arraySize(chunkSize, ObjectLayout.REFERENCE_SIZE);
+        return new Footprint(fixed, chunks, chunk, 0);
+    }
+
+    @Override
+    public void removeAt(int index) {
+        if (index >= size || index < 0) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        Position<T> position = position(index);
+        removeFrom(position.chunk(), position.offset());
+    }
+
+    /**
+     * Removes the element at the offset in the chunk.  Empty chunks are
+     * unlinked, and a chunk that drops below a quarter full absorbs its
+     * successor if they fit together, so that the list stays compact.  Either
+     * way, the element that followed the removed one is afterwards found at
+     * the same offset in the same chunk, or at the start of the next chunk.
+     */
+    private void removeFrom(Chunk<T> chunk, int offset) {
+        System.arraycopy(chunk.items, offset + 1, chunk.items, offset, chunk.count - offset - 1);
+        chunk.items[--chunk.count] = null;
+        if (chunk.count == 0) {
+            unlink(chunk);
+        } else if (chunk.count < chunkSize >>> 2 && chunk.next != null
+                && chunk.count + chunk.next.count <= chunkSize) {
+            Chunk<T> next = chunk.next;
+            System.arraycopy(next.items, 0, chunk.items, chunk.count, next.count);
+            chunk.count += next.count;
+            unlink(next);
+        }
+        size--;
+        modCount++;
+    }
+
+    private void linkAfter(Chunk<T> chunk, Chunk<T> newChunk) {
+        newChunk.prev = chunk;
+        if (chunk == null) {
+            newChunk.next = first;
+            first = newChunk;
+        } else {
+            newChunk.next = chunk.next;
+            chunk.next = newChunk;
+        }
+        if (newChunk.next == null) {
+            last = newChunk;
+        } else {
+            newChunk.next.prev = newChunk;
+        }
+        chunks++;
+    }
+
+    private void unlink(Chunk<T> chunk) {
+        if (chunk.prev == null) {
+            first = chunk.next;
+        } else {
+            chunk.prev.next = chunk.next;
+        }
+        if (chunk.next == null) {
+            last = chunk.prev;
+        } else {
+            chunk.next.prev = chunk.prev;
+        }
+        chunks--;
+    }
+
+    private Position<T> position(int index) {
+        if (indexed) {
+            return indexedPosition(index);
+        }
+        if (index < (size >> 1)) {
+            Chunk<T> chunk = first;
+            while (index >= chunk.count) {
+                index -= chunk.count;
+                chunk = chunk.next;
+            }
+            return new Position<>(chunk, index);
+        } else {
+            Chunk<T> chunk = last;
+            int start = size - chunk.count;
+            while (index < start) {
+                chunk = chunk.prev;
+                start -= chunk.count;
+            }
+            return new Position<>(chunk, index - start);
+        }
+    }
+
+    private Position<T> indexedPosition(int index) {
+        if (indexModCount != modCount) {
+            rebuildIndex();
+        }
+        int low = 0;
+        int high = chunks - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (chunkStarts[mid] <= index) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return new Position<>(chunkIndex[low], index - chunkStarts[low]);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private void rebuildIndex() {
+        if (chunkIndex == null || chunkIndex.length < chunks) {
+            chunkIndex = new Chunk[Math.max(16, chunks + (chunks >> 1))];
+            chunkStarts = new int[chunkIndex.length];
+        }
+        int i = 0;
+        int start = 0;
+        for (Chunk<T> chunk = first; chunk != null; chunk = chunk.next) {
+            chunkIndex[i] = chunk;
+            chunkStarts[i] = start;
+            start += chunk.count;
+            i++;
+        }
+        Arrays.fill(chunkIndex, i, chunkIndex.length, null);
+        indexModCount = modCount;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private Chunk<T> chunk = first;
+            private int offset = 0;
+            private int nextIndex = 0;
+            private Chunk<T> lastReturnedChunk;
+            private int lastReturnedOffset;
+            private int expectedModCount = modCount;
+
+            @Override
+            public boolean hasNext() {
+                return nextIndex < size;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (expectedModCount != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                while (offset >= chunk.count) {
+                    chunk = chunk.next;
+                    offset = 0;
+                }
+                lastReturnedChunk = chunk;
+                lastReturnedOffset = offset;
+                nextIndex++;
+                return (T) chunk.items[offset++];
+            }
+
+            @Override
+            public void remove() {
+                if (lastReturnedChunk == null)
+                    throw new IllegalStateException();
+                if (expectedModCount != modCount)
+                    throw new ConcurrentModificationException();
+                Chunk<T> next = lastReturnedChunk.next;
+                removeFrom(lastReturnedChunk, lastReturnedOffset);
+                if (lastReturnedChunk.count == 0) {
+                    chunk = next;
+                    offset = 0;
+                } else {
+                    chunk = lastReturnedChunk;
+                    offset = lastReturnedOffset;
+                }
+                nextIndex--;
+                lastReturnedChunk = null;
+                expectedModCount = modCount;
+            }
+        };
+    }
+}
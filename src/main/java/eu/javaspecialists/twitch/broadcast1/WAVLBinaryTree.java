@@ -0,0 +1,276 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+/**
+ * A weak AVL (WAVL) tree, the rank-balanced tree of Haeupler, Sen and
+ * Tarjan.  Every node has a rank, with missing children at rank -1, and
+ * the rank difference between a node and its child must be 1 or 2.
+ * Leaves must have rank 0.
+ * <p>
+ * Insertion rebalances exactly like an AVL tree, so without deletes the
+ * tree is an AVL tree, with the same height.  Deletion is where they
+ * differ: instead of restoring the AVL height bound, which can take a
+ * rotation at every level on the way up, it only demotes nodes until it
+ * either stops or needs a single or double rotation, after which it is
+ * done.  So a remove() does at most two rotations, and O(1) amortized
+ * rebalancing, while the height stays below 2 log n.
+ * <p>
+ * Unlike RedBlackBinaryTree, remove() does not look for the value first,
+ * and does no work on the way down, so removing a value that is not in the
+ * tree only costs the comparisons.
+ *
+ * @param <T> the type of elements stored in the tree
+ */
+public class WAVLBinaryTree<T extends Comparable<T>> extends AbstractBinaryTree<T> {
+    private Node<T> root;
+    // whether the last add() or remove() changed the tree
+    private boolean changed;
+
+    @Override
+    Node<T> root() {
+        return root;
+    }
+
+    @Override
+    public Footprint footprint() {
+        // root, detachedMin and changed, and the value, left, right and rank of each node
+        return footprint(2, 1, ObjectLayout.objectSize(3, Integer.BYTES));
+    }
+
+    private static class Node<E extends Comparable<E>>
+            implements AbstractBinaryTree.Node<E> {
+        private E value;
+        private int rank;  // new nodes are leaves, with rank 0
+        private Node<E> left;
+        private Node<E> right;
+
+        Node(E value) {
+            this.value = value;
+        }
+
+        @Override
+        public Node<E> left() {
+            return left;
+        }
+
+        @Override
+        public Node<E> right() {
+            return right;
+        }
+
+        @Override
+        public E value() {
+            return value;
+        }
+    }
+
+    private static int rank(Node<?> node) {
+        return node == null ? -1 : node.rank;
+    }
+
+    private Node<T> rotateRight(Node<T> node) {
+        Node<T> newRoot = node.left;
+        node.left = newRoot.right;
+        newRoot.right = node;
+        rotated();
+        return newRoot;
+    }
+
+    private Node<T> rotateLeft(Node<T> node) {
+        Node<T> newRoot = node.right;
+        node.right = newRoot.left;
+        newRoot.left = node;
+        rotated();
+        return newRoot;
+    }
+
+    @Override
+    public void add(T value) {
+        changed = false;
+        root = add(root, value);
+        if (changed) {
+            modCount++;
+        }
+        added();
+    }
+
+    private Node<T> add(Node<T> node, T value) {
+        if (node == null) {
+            changed = true;
+            return new Node<>(value);
+        }
+        int cmp = compare(value, node.value);
+        if (cmp < 0) {
+            node.left = add(node.left, value);
+            if (node.rank == node.left.rank) {
+                return node.rank - rank(node.right) == 1
+                        ? promote(node) : fixLeftInsert(node);
+            }
+        } else if (cmp > 0) {
+            node.right = add(node.right, value);
+            if (node.rank == node.right.rank) {
+                return node.rank - rank(node.left) == 1
+                        ? promote(node) : fixRightInsert(node);
+            }
+        }
+        return node;
+    }
+
+    private Node<T> promote(Node<T> node) {
+        node.rank++;
+        return node;
+    }
+
+    /**
+     * The left child has the same rank as the node and the right child is a
+     * 2-child, so we rotate, like the AVL single and double rotations.
+     */
+    private Node<T> fixLeftInsert(Node<T> node) {
+        Node<T> left = node.left;
+        node.rank--;
+        if (left.rank - rank(left.left) == 1) {
+            return rotateRight(node);
+        }
+        left.rank--;
+        node.left = rotateLeft(left);
+        node.left.rank++;
+        return rotateRight(node);
+    }
+
+    private Node<T> fixRightInsert(Node<T> node) {
+        Node<T> right = node.right;
+        node.rank--;
+        if (right.rank - rank(right.right) == 1) {
+            return rotateLeft(node);
+        }
+        right.rank--;
+        node.right = rotateRight(right);
+        node.right.rank++;
+        return rotateLeft(node);
+    }
+
+    @Override
+    public void remove(T value) {
+        changed = false;
+        root = remove(root, value);
+        if (changed) {
+            modCount++;
+        }
+        removed();
+    }
+
+    private Node<T> remove(Node<T> node, T value) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(value, node.value);
+        if (cmp < 0) {
+            node.left = remove(node.left, value);
+        } else if (cmp > 0) {
+            node.right = remove(node.right, value);
+        } else {
+            changed = true;
+            if (node.left == null) {
+                return node.right;
+            }
+            if (node.right == null) {
+                return node.left;
+            }
+            node.value = removeMin(node.right);
+            node.right = detachedMin;
+            detachedMin = null;
+        }
+        return rebalanceAfterRemove(node);
+    }
+
+    // the right subtree after removeMin(), which saves a second return value
+    private Node<T> detachedMin;
+
+    /**
+     * Removes the smallest node of the subtree, which takes no comparisons,
+     * and leaves the new root of the subtree in detachedMin.
+     *
+     * @return the smallest value
+     */
+    private T removeMin(Node<T> node) {
+        if (node.left == null) {
+            detachedMin = node.right;
+            return node.value;
+        }
+        T min = removeMin(node.left);
+        node.left = detachedMin;
+        detachedMin = rebalanceAfterRemove(node);
+        return min;
+    }
+
+    /**
+     * One of the children of the node lost a rank, or was removed, so the
+     * node may be a leaf of rank 1 or have a 3-child.  We demote up the tree
+     * until the ranks are fine again, or rotate once and stop.
+     */
+    private Node<T> rebalanceAfterRemove(Node<T> node) {
+        if (node.left == null && node.right == null) {
+            node.rank = 0;
+            return node;
+        }
+        if (node.rank - rank(node.left) == 3) {
+            Node<T> sibling = node.right;
+            if (node.rank - sibling.rank == 2) {
+                node.rank--;
+            } else if (sibling.rank - rank(sibling.left) == 2
+                    && sibling.rank - rank(sibling.right) == 2) {
+                node.rank--;
+                sibling.rank--;
+            } else {
+                return fixLeftRemove(node);
+            }
+        } else if (node.rank - rank(node.right) == 3) {
+            Node<T> sibling = node.left;
+            if (node.rank - sibling.rank == 2) {
+                node.rank--;
+            } else if (sibling.rank - rank(sibling.left) == 2
+                    && sibling.rank - rank(sibling.right) == 2) {
+                node.rank--;
+                sibling.rank--;
+            } else {
+                return fixRightRemove(node);
+            }
+        }
+        return node;
+    }
+
+    /**
+     * The left child is a 3-child and the right child is a 1-child with a
+     * 1-child of its own, so a single or double rotation finishes it.
+     */
+    private Node<T> fixLeftRemove(Node<T> node) {
+        Node<T> sibling = node.right;
+        if (sibling.rank - rank(sibling.right) == 1) {
+            Node<T> newRoot = rotateLeft(node);
+            newRoot.rank++;
+            node.rank -= node.left == null && node.right == null ? 2 : 1;
+            return newRoot;
+        }
+        node.right = rotateRight(sibling);
+        Node<T> newRoot = rotateLeft(node);
+        newRoot.rank += 2;
+        sibling.rank--;
+        node.rank -= 2;
+        return newRoot;
+    }
+
+    private Node<T> fixRightRemove(Node<T> node) {
+        Node<T> sibling = node.left;
+        if (sibling.rank - rank(sibling.left) == 1) {
+            Node<T> newRoot = rotateRight(node);
+            newRoot.rank++;
+            node.rank -= node.left == null && node.right == null ? 2 : 1;
+            return newRoot;
+        }
+        node.left = rotateLeft(sibling);
+        Node<T> newRoot = rotateRight(node);
+        newRoot.rank += 2;
+        sibling.rank--;
+        node.rank -= 2;
+        return newRoot;
+    }
+}
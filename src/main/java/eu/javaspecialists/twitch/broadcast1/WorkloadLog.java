@@ -0,0 +1,198 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * The binary format of a recorded workload.  The log starts with a header
+ * of the magic number, the version, the kind of structure and the byte size
+ * of the values.  Then follows one record per operation, a byte for the
+ * operation, followed by an int index for the list operations that take one,
+ * and then the value, for the operations that take one, written with the
+ * FixedWidthCodec of the structure.  So an add() of an Integer takes five
+ * bytes.
+ */
+final class WorkloadLog {
+    static final int MAGIC = 0x574B4C44; // "WKLD"
+    static final int VERSION = 1;
+
+    enum Kind {TREE, LIST}
+
+    enum Operation {
+        ADD(false, true), CONTAINS(false, true), REMOVE(false, true),
+        GET(true, false), REMOVE_AT(true, false), ADD_AT(true, true);
+
+        private static final Operation[] VALUES = values();
+        final boolean hasIndex;
+        final boolean hasValue;
+
+        Operation(boolean hasIndex, boolean hasValue) {
+            this.hasIndex = hasIndex;
+            this.hasValue = hasValue;
+        }
+    }
+
+    private WorkloadLog() {
+    }
+
+    /**
+     * The codecs use aligned layouts, which a segment over a byte[] cannot
+     * give us, so we encode into native memory and copy the bytes.
+     */
+    private static MemorySegment scratchSegment(FixedWidthCodec<?> codec) {
+        return Arena.ofAuto().allocate(codec.byteSize(), Long.BYTES);
+    }
+
+    /**
+     * Appends the records of one structure.  Like the structures, it is not
+     * thread-safe.
+     */
+    static final class Writer<T> implements Closeable {
+        private final DataOutputStream out;
+        private final FixedWidthCodec<T> codec;
+        private final byte[] scratch;
+        private final MemorySegment segment;
+
+        Writer(OutputStream out, Kind kind, FixedWidthCodec<T> codec) {
+            this.out = new DataOutputStream(new BufferedOutputStream(
+                    Objects.requireNonNull(out, "out")));
+            this.codec = Objects.requireNonNull(codec, "codec");
+            this.scratch = new byte[Math.toIntExact(codec.byteSize())];
+            this.segment = scratchSegment(codec);
+            try {
+                this.out.writeInt(MAGIC);
+                this.out.writeByte(VERSION);
+                this.out.writeByte(kind.ordinal());
+                this.out.writeInt(scratch.length);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void write(Operation operation, T value) {
+            write(operation, 0, value);
+        }
+
+        void write(Operation operation, int index) {
+            write(operation, index, null);
+        }
+
+        void write(Operation operation, int index, T value) {
+            try {
+                out.writeByte(operation.ordinal());
+                if (operation.hasIndex) {
+                    out.writeInt(index);
+                }
+                if (operation.hasValue) {
+                    codec.write(segment, 0, value);
+                    MemorySegment.copy(segment, ValueLayout.JAVA_BYTE, 0, scratch, 0, scratch.length);
+                    out.write(scratch);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Not counting the stream that we write the log to.
+         */
+        Footprint footprint() {
+            // out, codec, scratch and segment, the DataOutputStream and its
+            // writeBuffer, and the BufferedOutputStream, whose buffer grows
+            // to 8 KB, and the native memory of the segment
+            long fixed = ObjectLayout.objectSize(4, 0)
+                    + ObjectLayout.objectSize(4, Integer.BYTES + 1) + ObjectLayout.arraySize(8, 1)
+                    + ObjectLayout.objectSize(4, 2 * Integer.BYTES + 1);
+            return new Footprint(fixed, 0, 0, ObjectLayout.arraySize(8192, 1)
+                    + ObjectLayout.arraySize(scratch.length, 1) + segment.byteSize());
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+
+    /**
+     * A whole log, decoded up front, so that replaying it does no I/O and
+     * allocates nothing.  Record i has operation operations[i], and for the
+     * operations that take them, index indexes[i] and value values[i].
+     */
+    record Workload<T>(Kind kind, Operation[] operations, int[] indexes, Object[] values) {
+        int size() {
+            return operations.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        T value(int index) {
+            return (T) values[index];
+        }
+    }
+
+    static <T> Workload<T> read(InputStream in, FixedWidthCodec<T> codec) throws IOException {
+        var data = new DataInputStream(new BufferedInputStream(in));
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a workload log");
+        }
+        int version = data.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported version " + version);
+        }
+        Kind kind = Kind.values()[data.readUnsignedByte()];
+        int valueSize = data.readInt();
+        if (valueSize != codec.byteSize()) {
+            throw new IOException("Values are " + valueSize +
+                    " bytes, but the codec has " + codec.byteSize());
+        }
+        byte[] scratch = new byte[valueSize];
+        var segment = scratchSegment(codec);
+        var operations = new Operation[1024];
+        var indexes = new int[1024];
+        var values = new Object[1024];
+        int size = 0;
+        while (true) {
+            int ordinal = data.read();
+            if (ordinal < 0) {
+                break;
+            }
+            if (ordinal >= Operation.VALUES.length) {
+                throw new IOException("Corrupt record " + size);
+            }
+            if (size == operations.length) {
+                operations = Arrays.copyOf(operations, size * 2);
+                indexes = Arrays.copyOf(indexes, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            Operation operation = Operation.VALUES[ordinal];
+            try {
+                if (operation.hasIndex) {
+                    indexes[size] = data.readInt();
+                }
+                if (operation.hasValue) {
+                    data.readFully(scratch);
+                    MemorySegment.copy(scratch, 0, segment, ValueLayout.JAVA_BYTE, 0, valueSize);
+                    values[size] = codec.read(segment, 0);
+                }
+            } catch (EOFException e) {
+                // the recording process died in the middle of a record
+                break;
+            }
+            operations[size++] = operation;
+        }
+        return new Workload<>(kind, Arrays.copyOf(operations, size),
+                Arrays.copyOf(indexes, size), Arrays.copyOf(values, size));
+    }
+}
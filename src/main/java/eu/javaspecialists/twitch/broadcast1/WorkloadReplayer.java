@@ -0,0 +1,202 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Replays a workload that was recorded with RecordingBinaryTree or
+ * RecordingSimpleList against another implementation, and measures the
+ * throughput, the latency of every operation and the allocation rate.
+ * The whole log is decoded before we start, so that the replay does no
+ * I/O, and the only allocations measured are those of the structure.
+ * <p>
+ * From the command line:
+ * <pre>
+ * java eu.javaspecialists.twitch.broadcast1.WorkloadReplayer \
+ *     log values implementation...
+ * </pre>
+ * where values is int, long, double or string:maxLength, to match the
+ * FixedWidthCodec that recorded the log, and the implementations are class
+ * names with a public no-args constructor, for example AVLBinaryTree or
+ * SimpleArrayList.  Simple names are looked up in this package.  Each
+ * implementation is replayed ROUNDS times, so that the later rounds show
+ * the behaviour after the JIT compiler has warmed up.
+ */
+public final class WorkloadReplayer {
+    static final int ROUNDS = 3;
+
+    /**
+     * @param implementation  the class name of the structure
+     * @param operations      the number of operations replayed
+     * @param elapsedNanos    the time for all of them, including the timing
+     * @param latencies       the latency of each operation
+     * @param allocatedBytes  the bytes allocated by the replaying thread,
+     *                        or -1 if the JVM cannot tell us
+     * @param hits            the contains() that returned true, or get()
+     *                        that returned non-null, which must be the same
+     *                        for all implementations
+     */
+    public record Result(String implementation, long operations, long elapsedNanos,
+                         LatencyHistogram latencies, long allocatedBytes, long hits) {
+        public double operationsPerSecond() {
+            return operations * 1e9 / elapsedNanos;
+        }
+
+        public double allocatedBytesPerSecond() {
+            return allocatedBytes * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %,d operations in %dms, %,.0f ops/s, %,d hits, " +
+                            "allocated %,d bytes, %,.1f MB/s%n    %s", implementation,
+                    operations, elapsedNanos / 1_000_000, operationsPerSecond(), hits,
+                    allocatedBytes, allocatedBytesPerSecond() / 1_000_000, latencies);
+        }
+    }
+
+    private WorkloadReplayer() {
+    }
+
+    public static <T extends Comparable<T>> Result replay(InputStream log, FixedWidthCodec<T> codec,
+                                                          BinaryTree<T> tree) throws IOException {
+        return replay(WorkloadLog.read(log, codec), tree);
+    }
+
+    public static <T> Result replay(InputStream log, FixedWidthCodec<T> codec,
+                                    SimpleList<T> list) throws IOException {
+        return replay(WorkloadLog.read(log, codec), list);
+    }
+
+    static <T extends Comparable<T>> Result replay(WorkloadLog.Workload<T> workload,
+                                                   BinaryTree<T> tree) {
+        checkKind(workload, WorkloadLog.Kind.TREE);
+        var latencies = new LatencyHistogram();
+        var operations = workload.operations();
+        long hits = 0;
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        long time = start;
+        for (int i = 0; i < operations.length; i++) {
+            switch (operations[i]) {
+                case ADD -> tree.add(workload.value(i));
+                case CONTAINS -> hits += tree.contains(workload.value(i)) ? 1 : 0;
+                case REMOVE -> tree.remove(workload.value(i));
+                default -> throw new IllegalStateException("Not a tree operation: " + operations[i]);
+            }
+            long now = System.nanoTime();
+            latencies.record(now - time);
+            time = now;
+        }
+        return result(tree, workload, time - start, latencies, allocated, hits);
+    }
+
+    static <T> Result replay(WorkloadLog.Workload<T> workload, SimpleList<T> list) {
+        checkKind(workload, WorkloadLog.Kind.LIST);
+        var latencies = new LatencyHistogram();
+        var operations = workload.operations();
+        var indexes = workload.indexes();
+        long hits = 0;
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        long time = start;
+        for (int i = 0; i < operations.length; i++) {
+            switch (operations[i]) {
+                case ADD -> list.add(workload.value(i));
+                case GET -> hits += list.get(indexes[i]) == null ? 0 : 1;
+                case REMOVE_AT -> list.removeAt(indexes[i]);
+                case ADD_AT -> list.add(indexes[i], workload.value(i));
+                default -> throw new IllegalStateException("Not a list operation: " + operations[i]);
+            }
+            long now = System.nanoTime();
+            latencies.record(now - time);
+            time = now;
+        }
+        return result(list, workload, time - start, latencies, allocated, hits);
+    }
+
+    private static void checkKind(WorkloadLog.Workload<?> workload, WorkloadLog.Kind kind) {
+        if (workload.kind() != kind) {
+            throw new IllegalArgumentException("Log was recorded from a " + workload.kind());
+        }
+    }
+
+    private static Result result(Object structure, WorkloadLog.Workload<?> workload,
+                                 long elapsedNanos, LatencyHistogram latencies,
+                                 long allocatedBefore, long hits) {
+        long allocated = allocatedBytes();
+        return new Result(structure.getClass().getSimpleName(), workload.size(), elapsedNanos,
+                latencies, allocatedBefore < 0 ? -1 : allocated - allocatedBefore, hits);
+    }
+
+    /**
+     * @return the bytes allocated so far by the current thread, or -1 if we
+     * are not on HotSpot, or it is switched off
+     */
+    private static long allocatedBytes() {
+        try {
+            var bean = ManagementFactory.getPlatformMXBean(com.sun.management.ThreadMXBean.class);
+            return bean.isThreadAllocatedMemoryEnabled() ? bean.getCurrentThreadAllocatedBytes() : -1;
+        } catch (RuntimeException | LinkageError e) {
+            return -1;
+        }
+    }
+
+    static FixedWidthCodec<?> codec(String values) {
+        return switch (values) {
+            case "int" -> FixedWidthCodec.ints();
+            case "long" -> FixedWidthCodec.longs();
+            case "double" -> FixedWidthCodec.doubles();
+            default -> {
+                if (!values.startsWith("string:")) {
+                    throw new IllegalArgumentException("Unknown values: " + values);
+                }
+                yield FixedWidthCodec.strings(Integer.parseInt(values.substring("string:".length())));
+            }
+        };
+    }
+
+    static Supplier<?> implementation(String name) throws ReflectiveOperationException {
+        String className = name.contains(".") ? name : WorkloadReplayer.class.getPackageName() + "." + name;
+        var constructor = Class.forName(className).getConstructor();
+        return () -> {
+            try {
+                return constructor.newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static void main(String... args) throws IOException, ReflectiveOperationException {
+        if (args.length < 3) {
+            System.err.println("Usage: WorkloadReplayer log int|long|double|string:maxLength " +
+                    "implementation...");
+            System.exit(1);
+        }
+        WorkloadLog.Workload workload;
+        try (var in = Files.newInputStream(Path.of(args[0]))) {
+            workload = WorkloadLog.read(in, codec(args[1]));
+        }
+        System.out.printf("%,d operations on a %s%n", workload.size(), workload.kind());
+        for (int i = 2; i < args.length; i++) {
+            var implementation = implementation(args[i]);
+            for (int round = 0; round < ROUNDS; round++) {
+                Object structure = Objects.requireNonNull(implementation.get());
+                Result result = switch (structure) {
+                    case BinaryTree tree -> replay(workload, tree);
+                    case SimpleList list -> replay(workload, list);
+                    default -> throw new IllegalArgumentException(
+                            args[i] + " is neither a BinaryTree nor a SimpleList");
+                };
+                System.out.println(result);
+            }
+        }
+    }
+}
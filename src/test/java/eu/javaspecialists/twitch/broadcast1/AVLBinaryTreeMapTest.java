@@ -0,0 +1,13 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+class AVLBinaryTreeMapTest extends BinaryTreeMapTest {
+    @Override
+    protected <K extends Comparable<K>, V> BinaryTreeMap<K, V> create() {
+        return new AVLBinaryTreeMap<>();
+    }
+
+    @Override
+    protected int expectedMaxDepth(int elements) {
+        return (int) Math.ceil(1.44 * Math.log(elements + 2) / Math.log(2));
+    }
+}
@@ -0,0 +1,160 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import eu.javaspecialists.twitch.broadcast1.AdaptiveBinaryTree.Representation;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveBinaryTreeTest extends BinaryTreeTest {
+    protected BinaryTree<String> create() {
+        return new AdaptiveBinaryTree<>();
+    }
+
+    @Override
+    protected int expectedMaxDepth(int elements) {
+        // the red-black bound, since adding only is write-heavy
+        return (int) Math.ceil(Math.log(elements) / Math.log(2) * 2);
+    }
+
+    private static void completeWindow(AdaptiveBinaryTree<Integer> tree, boolean write) {
+        for (int i = 0; i < AdaptiveBinaryTree.SAMPLE_SIZE; i++) {
+            if (write) {
+                tree.add(0);
+            } else {
+                tree.contains(0);
+            }
+        }
+    }
+
+    @Test
+    void testSwitchesRepresentation() {
+        var tree = new AdaptiveBinaryTree<Integer>();
+        for (int i = 0; i < 100; i++) {
+            tree.add(i);
+        }
+        completeWindow(tree, true);
+        assertEquals(Representation.SORTED_ARRAY, tree.representation());
+
+        for (int i = 100; i < 10_000; i++) {
+            tree.add(i);
+        }
+        assertEquals(Representation.RED_BLACK, tree.representation());
+        assertEquals(10_000, tree.size());
+
+        // the windows do not line up with our loops, so it may take two
+        completeWindow(tree, false);
+        completeWindow(tree, false);
+        assertEquals(Representation.AVL, tree.representation());
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(tree.contains(i));
+        }
+        assertFalse(tree.isMigrating());
+
+        // a balanced mix stays where it is
+        for (int i = 0; i < 5 * AdaptiveBinaryTree.SAMPLE_SIZE; i++) {
+            if (i % 2 == 0) tree.add(i); else tree.contains(i);
+        }
+        assertEquals(Representation.AVL, tree.representation());
+
+        for (int i = 0; i < 10_000; i++) {
+            tree.remove(i);
+        }
+        completeWindow(tree, false);
+        completeWindow(tree, false);
+        assertEquals(Representation.SORTED_ARRAY, tree.representation());
+        assertEquals(0, tree.size());
+        assertTrue(tree.migrations() >= 3, "migrations=" + tree.migrations());
+    }
+
+    @Test
+    void testRandomAgainstTreeSetWhileMigrating() {
+        var random = new Random(42);
+        var tree = new AdaptiveBinaryTree<Integer>();
+        var expected = new TreeSet<Integer>();
+        int migratingChecks = 0;
+        for (int phase = 0; phase < 20; phase++) {
+            // alternate between write-heavy and read-heavy phases, growing and shrinking
+            int writePercent = phase % 2 == 0 ? 90 : 5;
+            int addPercent = phase % 4 < 2 ? 70 : 20;
+            for (int i = 0; i < 10_000; i++) {
+                int value = random.nextInt(2_000);
+                if (random.nextInt(100) < writePercent) {
+                    if (random.nextInt(100) < addPercent) {
+                        tree.add(value);
+                        expected.add(value);
+                    } else {
+                        tree.remove(value);
+                        expected.remove(value);
+                    }
+                } else {
+                    if (tree.isMigrating()) {
+                        migratingChecks++;
+                    }
+                    assertEquals(expected.contains(value), tree.contains(value));
+                }
+                assertEquals(expected.size(), tree.size());
+            }
+        }
+        assertEquals(List.copyOf(expected), toList(tree));
+        assertTrue(tree.migrations() > 2, "migrations=" + tree.migrations());
+        assertTrue(migratingChecks > 0);
+    }
+
+    private static List<Integer> toList(BinaryTree<Integer> tree) {
+        var list = new ArrayList<Integer>();
+        tree.forEach(list::add);
+        return list;
+    }
+
+    private static long runPhases(BinaryTree<Integer> tree) {
+        var random = new Random(42);
+        int range = 400_000;
+        long found = 0;
+        // build-once
+        for (int i = 0; i < 200_000; i++) {
+            tree.add(random.nextInt(range));
+        }
+        // read-mostly
+        for (int i = 0; i < 2_000_000; i++) {
+            if (tree.contains(random.nextInt(range))) found++;
+        }
+        // write-heavy churn
+        for (int i = 0; i < 1_000_000; i++) {
+            if (random.nextBoolean()) {
+                tree.add(random.nextInt(range));
+            } else {
+                tree.remove(random.nextInt(range));
+            }
+        }
+        // read-mostly again
+        for (int i = 0; i < 2_000_000; i++) {
+            if (tree.contains(random.nextInt(range))) found++;
+        }
+        return found;
+    }
+
+    @Test
+    void testPhaseChangingWorkload() {
+        List<Supplier<BinaryTree<Integer>>> trees = List.of(
+                AdaptiveBinaryTree::new, AVLBinaryTree::new, RedBlackBinaryTree::new);
+        long expectedFound = -1;
+        for (int round = 0; round < 2; round++) {
+            for (var supplier : trees) {
+                var tree = supplier.get();
+                long time = System.nanoTime();
+                long found = runPhases(tree);
+                time = System.nanoTime() - time;
+                System.out.printf("%s phase-changing workload: time = %dms%n",
+                        tree.getClass().getSimpleName(), time / 1_000_000);
+                if (expectedFound < 0) expectedFound = found;
+                assertEquals(expectedFound, found);
+            }
+        }
+    }
+}
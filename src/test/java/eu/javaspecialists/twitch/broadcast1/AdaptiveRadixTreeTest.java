@@ -0,0 +1,188 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveRadixTreeTest extends BinaryTreeTest {
+    protected BinaryTree<String> create() {
+        return new AdaptiveRadixTree();
+    }
+
+    @Override
+    protected int expectedMaxDepth(int elements) {
+        // one level per decimal digit that varies, plus the key itself
+        return (int) Math.ceil(Math.log10(elements)) + 1;
+    }
+
+    private static List<String> toList(Iterable<String> iterable) {
+        return StreamSupport.stream(iterable.spliterator(), false).toList();
+    }
+
+    private static String randomString(Random random) {
+        var sb = new StringBuilder();
+        int length = random.nextInt(8);
+        for (int i = 0; i < length; i++) {
+            sb.append(switch (random.nextInt(4)) {
+                case 0 -> (char) random.nextInt(0x80);
+                case 1 -> (char) random.nextInt(0x10000);
+                default -> (char) ('a' + random.nextInt(4));
+            });
+        }
+        return sb.toString();
+    }
+
+    @Test
+    void testEncodingPreservesOrder() {
+        var random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            String a = randomString(random);
+            String b = randomString(random);
+            assertEquals(Integer.signum(a.compareTo(b)),
+                    Integer.signum(Arrays.compareUnsigned(
+                            AdaptiveRadixTree.encode(a), AdaptiveRadixTree.encode(b))),
+                    () -> a + " vs " + b);
+        }
+    }
+
+    @Test
+    void testRandomAgainstTreeSet() {
+        var random = new Random(42);
+        var tree = new AdaptiveRadixTree();
+        var expected = new TreeSet<String>();
+        for (int i = 0; i < 50_000; i++) {
+            String value = randomString(random);
+            if (random.nextInt(3) == 0) {
+                tree.remove(value);
+                expected.remove(value);
+            } else {
+                tree.add(value);
+                expected.add(value);
+            }
+            assertEquals(expected.contains(value), tree.contains(value));
+        }
+        assertEquals(expected.size(), tree.size());
+        assertEquals(List.copyOf(expected), toList(tree));
+        for (String value : List.copyOf(expected)) {
+            tree.remove(value);
+        }
+        assertEquals(0, tree.size());
+        assertEquals(0, tree.maxDepth());
+    }
+
+    @Test
+    void testNodesGrowAndShrink() {
+        var tree = new AdaptiveRadixTree();
+        var values = new ArrayList<String>();
+        for (char c = 0; c < 300; c++) {
+            values.add("prefix" + c);
+            values.add("prefix" + c + "suffix");
+        }
+        Collections.shuffle(values, new Random(42));
+        values.forEach(tree::add);
+        assertEquals(600, tree.size());
+        assertEquals(new TreeSet<>(values).stream().toList(), toList(tree));
+        for (int i = 0; i < values.size(); i++) {
+            tree.remove(values.get(i));
+            if (i % 50 == 0) {
+                var remaining = new TreeSet<>(values.subList(i + 1, values.size()));
+                assertEquals(List.copyOf(remaining), toList(tree));
+                for (String value : remaining) {
+                    assertTrue(tree.contains(value));
+                }
+            }
+        }
+        assertEquals(0, tree.size());
+    }
+
+    @Test
+    void testPrefixScan() {
+        var tree = new AdaptiveRadixTree();
+        List.of("https://example.com/a", "https://example.com/a/b",
+                "https://example.com/ab", "https://example.org/",
+                "https://example.com", "ftp://example.com/", "h").forEach(tree::add);
+        assertEquals(List.of("https://example.com", "https://example.com/a",
+                        "https://example.com/a/b", "https://example.com/ab"),
+                toList(tree.withPrefix("https://example.com")));
+        assertEquals(List.of("https://example.com/a", "https://example.com/a/b",
+                "https://example.com/ab"), toList(tree.withPrefix("https://example.com/a")));
+        assertEquals(List.of("https://example.com/a/b"),
+                toList(tree.withPrefix("https://example.com/a/")));
+        assertEquals(List.of("h", "https://example.com", "https://example.com/a",
+                        "https://example.com/a/b", "https://example.com/ab", "https://example.org/"),
+                toList(tree.withPrefix("h")));
+        assertEquals(List.of(), toList(tree.withPrefix("https://example.net")));
+        assertEquals(List.of(), toList(tree.withPrefix("x")));
+        assertEquals(toList(tree), toList(tree.withPrefix("")));
+    }
+
+    static List<String> urls(int size) {
+        var random = new Random(42);
+        String[] hosts = {"https://www.javaspecialists.eu", "https://www.example.com",
+                "https://api.example.com", "https://cdn.example.org"};
+        String[] paths = {"/archive/issue", "/courses/concurrency/module",
+                "/users/profile", "/products/category/item"};
+        var urls = new TreeSet<String>();
+        while (urls.size() < size) {
+            urls.add(hosts[random.nextInt(hosts.length)] + paths[random.nextInt(paths.length)]
+                    + "/" + random.nextInt(1_000_000) + "?page=" + random.nextInt(10));
+        }
+        var result = new ArrayList<>(urls);
+        Collections.shuffle(result, random);
+        return result;
+    }
+
+    private static long usedMemory() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return Runtime.getRuntime().totalMemory() - Runtime.getRuntime().freeMemory();
+    }
+
+    @Test
+    void testLookupsAndMemoryVersusAVLBinaryTree() {
+        int size = 500_000;
+        var urls = urls(size);
+        var lookups = new ArrayList<String>(urls.size());
+        for (String url : urls) {
+            lookups.add(new String(url)); // so that equals() cannot shortcut on identity
+        }
+        long memory = usedMemory();
+        var art = new AdaptiveRadixTree();
+        urls.forEach(art::add);
+        long artMemory = usedMemory() - memory;
+        memory = usedMemory();
+        var avl = new AVLBinaryTree<String>();
+        urls.forEach(avl::add);
+        long avlMemory = usedMemory() - memory;
+        assertEquals(size, art.size());
+        assertEquals(size, avl.size());
+        assertEquals(toList(avl), toList(art));
+        for (int round = 0; round < 3; round++) {
+            long time = System.nanoTime();
+            for (String url : lookups) {
+                assertTrue(art.contains(url));
+            }
+            time = System.nanoTime() - time;
+            System.out.printf("AdaptiveRadixTree %,d lookups: time = %dms%n",
+                    size, time / 1_000_000);
+            time = System.nanoTime();
+            for (String url : lookups) {
+                assertTrue(avl.contains(url));
+            }
+            time = System.nanoTime() - time;
+            System.out.printf("AVLBinaryTree %,d lookups: time = %dms%n",
+                    size, time / 1_000_000);
+        }
+        System.out.printf("memory without the keys: AdaptiveRadixTree = %,d bytes, " +
+                "AVLBinaryTree = %,d bytes%n", artMemory, avlMemory);
+    }
+}
@@ -0,0 +1,193 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryTreeCursorTest {
+    private static final List<Supplier<AbstractBinaryTree<Integer>>> TREES = List.of(
+            AVLBinaryTree::new, RedBlackBinaryTree::new, SimpleUnbalancedBinaryTree::new);
+
+    @Test
+    void testSeekAndMove() {
+        for (var supplier : TREES) {
+            var tree = supplier.get();
+            var cursor = tree.cursor();
+            assertFalse(cursor.isValid());
+            assertFalse(cursor.seek(5));
+            assertThrows(NoSuchElementException.class, cursor::get);
+            var random = new Random(42);
+            var expected = new TreeSet<Integer>();
+            for (int i = 0; i < 1_000; i++) {
+                int value = random.nextInt(10_000) * 2;
+                tree.add(value);
+                expected.add(value);
+            }
+            cursor = tree.cursor();
+            for (int i = 0; i < 2_000; i++) {
+                int value = random.nextInt(20_010) - 5;
+                assertEquals(expected.contains(value), cursor.seek(value));
+                Integer ceiling = expected.ceiling(value);
+                assertEquals(ceiling != null, cursor.isValid());
+                if (ceiling != null) {
+                    assertEquals(ceiling, cursor.get());
+                    assertEquals(expected.higher(ceiling) != null, cursor.next());
+                    if (cursor.isValid()) {
+                        assertEquals(expected.higher(ceiling), cursor.get());
+                        assertTrue(cursor.previous());
+                        assertEquals(ceiling, cursor.get());
+                    }
+                }
+            }
+
+            // walk the whole tree forwards and backwards
+            cursor.seek(Integer.MIN_VALUE);
+            var forwards = new ArrayList<Integer>();
+            do {
+                forwards.add(cursor.get());
+            } while (cursor.next());
+            assertEquals(List.copyOf(expected), forwards);
+            cursor.seek(expected.last());
+            var backwards = new ArrayList<Integer>();
+            do {
+                backwards.add(cursor.get());
+            } while (cursor.previous());
+            assertEquals(List.copyOf(expected.descendingSet()), backwards);
+        }
+    }
+
+    @Test
+    void testFailFast() {
+        var tree = new AVLBinaryTree<Integer>();
+        tree.add(1);
+        tree.add(2);
+        var cursor = tree.cursor();
+        cursor.seek(1);
+        tree.add(3);
+        assertThrows(ConcurrentModificationException.class, cursor::next);
+
+        var other = tree.cursor();
+        other.seek(1);
+        cursor = tree.cursor();
+        cursor.insert(4);
+        assertThrows(ConcurrentModificationException.class, other::get);
+    }
+
+    @Test
+    void testModifyingThroughTreesWithoutPathRebalancing() {
+        var tree = new RedBlackBinaryTree<Integer>();
+        tree.add(1);
+        var cursor = tree.cursor();
+        cursor.seek(1);
+        cursor.insert(2);
+        assertEquals(2, cursor.get());
+        cursor.insert(1);
+        assertEquals(1, cursor.get());
+        cursor.remove();
+        assertEquals(2, cursor.get());
+        cursor.remove();
+        assertFalse(cursor.isValid());
+        assertEquals(0, tree.size());
+        assertThrows(NoSuchElementException.class, cursor::remove);
+        // add() still rebalances
+        for (int i = 0; i < 10_000; i++) {
+            cursor.insert(i);
+        }
+        assertTrue(tree.maxDepth() <= 2 * Math.log(10_002) / Math.log(2));
+    }
+
+    @Test
+    void testInsertAndRemoveAgainstTreeSet() {
+        for (var supplier : TREES) {
+            checkInsertAndRemoveAgainstTreeSet(supplier.get());
+        }
+    }
+
+    private static void checkInsertAndRemoveAgainstTreeSet(AbstractBinaryTree<Integer> tree) {
+        var random = new Random(42);
+        var expected = new TreeSet<Integer>();
+        var cursor = tree.cursor();
+        assertThrows(NoSuchElementException.class, cursor::remove);
+        for (int i = 0; i < 50_000; i++) {
+            // mostly near the previous position, sometimes far away
+            int value = random.nextInt(20) == 0 ? random.nextInt(10_000)
+                    : Math.floorMod((cursor.isValid() ? cursor.get() : 0)
+                    + random.nextInt(21) - 10, 10_000);
+            if (random.nextInt(3) == 0) {
+                if (cursor.seek(value)) {
+                    cursor.remove();
+                    expected.remove(value);
+                    Integer higher = expected.higher(value);
+                    assertEquals(higher != null, cursor.isValid());
+                    if (higher != null) {
+                        assertEquals(higher, cursor.get());
+                    }
+                }
+            } else {
+                cursor.insert(value);
+                expected.add(value);
+                assertEquals(value, cursor.get());
+            }
+            if (i % 1_000 == 0) {
+                var actual = new ArrayList<Integer>();
+                tree.forEach(actual::add);
+                assertEquals(List.copyOf(expected), actual);
+                if (tree instanceof AVLBinaryTree) {
+                    assertTrue(tree.maxDepth() <= 1.45 * Math.log(expected.size() + 2) / Math.log(2));
+                }
+            }
+        }
+        // removing through the cursor walks through the tree
+        cursor.seek(Integer.MIN_VALUE);
+        while (cursor.isValid()) {
+            assertEquals(expected.pollFirst(), cursor.get());
+            cursor.remove();
+        }
+        assertTrue(expected.isEmpty());
+        assertEquals(0, tree.size());
+    }
+
+    @Test
+    void testNearlySortedIngestVersusAdd() {
+        int size = 2_000_000;
+        var random = new Random(42);
+        // timestamps that arrive slightly out of order
+        var values = new ArrayList<Long>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(i * 10L + random.nextInt(50));
+        }
+        for (int round = 0; round < 3; round++) {
+            var withAdd = new AVLBinaryTree<Long>();
+            var counters = withAdd.enableCounters();
+            long time = System.nanoTime();
+            for (Long value : values) {
+                withAdd.add(value);
+            }
+            time = System.nanoTime() - time;
+            System.out.printf("AVLBinaryTree add() nearly sorted ingest of %,d: " +
+                    "time = %dms, comparisons = %,d%n", size, time / 1_000_000,
+                    counters.comparisons());
+
+            var withCursor = new AVLBinaryTree<Long>();
+            counters = withCursor.enableCounters();
+            var cursor = withCursor.cursor();
+            time = System.nanoTime();
+            for (Long value : values) {
+                cursor.insert(value);
+            }
+            time = System.nanoTime() - time;
+            System.out.printf("AVLBinaryTree cursor insert() nearly sorted ingest of %,d: " +
+                    "time = %dms, comparisons = %,d%n", size, time / 1_000_000,
+                    counters.comparisons());
+            assertEquals(withAdd.maxDepth(), withCursor.maxDepth(), 2);
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+abstract class BinaryTreeMapTest {
+    BinaryTreeMap<String, Integer> map;
+
+    @BeforeEach
+    void init() {
+        map = create();
+    }
+
+    protected abstract <K extends Comparable<K>, V> BinaryTreeMap<K, V> create();
+
+    protected abstract int expectedMaxDepth(int elements);
+
+    @Test
+    void testPutAndGet() {
+        assertNull(map.get("one"));
+        assertNull(map.put("one", 1));
+        assertNull(map.put("two", 2));
+        assertEquals(1, map.put("one", 11));
+        assertEquals(11, map.get("one"));
+        assertEquals(2, map.get("two"));
+        assertEquals(2, map.size());
+        assertTrue(map.containsKey("two"));
+        assertFalse(map.containsKey("three"));
+        assertEquals(3, map.getOrDefault("three", 3));
+        assertThrows(NullPointerException.class, () -> map.put("three", null));
+        assertThrows(NullPointerException.class, () -> map.put(null, 3));
+    }
+
+    @Test
+    void testRemove() {
+        assertNull(map.remove("not there"));
+        for (int i = 0; i < 100; i++) {
+            map.put("test" + i, i);
+        }
+        assertEquals(42, map.remove("test42"));
+        assertNull(map.remove("test42"));
+        assertEquals(99, map.size());
+        for (int i = 0; i < 100; i++) {
+            map.remove("test" + i);
+        }
+        assertTrue(map.isEmpty());
+        assertFalse(map.iterator().hasNext());
+    }
+
+    @Test
+    void testComputeIfAbsent() {
+        int[] calls = new int[1];
+        for (int i = 0; i < 3; i++) {
+            assertEquals(5, map.computeIfAbsent("hello", key -> {
+                calls[0]++;
+                return key.length();
+            }));
+        }
+        assertEquals(1, calls[0]);
+        assertNull(map.computeIfAbsent("absent", key -> null));
+        assertFalse(map.containsKey("absent"));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void testComputeIfAbsentWithMappingFunctionThatModifiesTheMap() {
+        BinaryTreeMap<Integer, Integer> map = create();
+        for (int i = 0; i < 5; i++) {
+            map.put(i * 10, i);
+        }
+        assertThrows(ConcurrentModificationException.class,
+                () -> map.computeIfAbsent(25, key -> {
+                    for (int i = 0; i < 15; i++) {
+                        map.put(100 + i, i);
+                    }
+                    return 42;
+                }));
+        // the changes of the function are all there, intact, but not the key
+        assertEquals(20, map.size());
+        var keys = new ArrayList<Integer>();
+        map.forEach(entry -> keys.add(entry.getKey()));
+        assertEquals(20, keys.size());
+        assertTrue(map.containsKey(114));
+        assertFalse(map.containsKey(25));
+        // a function that only reads is fine
+        assertEquals(42, map.computeIfAbsent(25, key -> map.get(0) + 42));
+        assertEquals(21, map.size());
+    }
+
+    @Test
+    void testMerge() {
+        for (String word : "the cat and the hat and the bat".split(" ")) {
+            map.merge(word, 1, Integer::sum);
+        }
+        assertEquals(3, map.get("the"));
+        assertEquals(2, map.get("and"));
+        assertEquals(1, map.get("cat"));
+        assertNull(map.merge("cat", 1, (a, b) -> null));
+        assertFalse(map.containsKey("cat"));
+        assertEquals(4, map.size());
+    }
+
+    @Test
+    void testNavigation() {
+        assertThrows(NoSuchElementException.class, map::firstKey);
+        assertThrows(NoSuchElementException.class, map::lastKey);
+        assertNull(map.floorKey("m"));
+        for (String key : List.of("d", "b", "f", "h", "a")) {
+            map.put(key, 0);
+        }
+        assertEquals("a", map.firstKey());
+        assertEquals("h", map.lastKey());
+        assertEquals("d", map.floorKey("d"));
+        assertEquals("d", map.floorKey("e"));
+        assertEquals("b", map.lowerKey("d"));
+        assertEquals("f", map.ceilingKey("e"));
+        assertEquals("f", map.higherKey("d"));
+        assertNull(map.lowerKey("a"));
+        assertNull(map.higherKey("h"));
+        assertEquals("h", map.floorKey("z"));
+        assertEquals("a", map.ceilingKey("0"));
+    }
+
+    @Test
+    void testIterationInOrder() {
+        for (String key : List.of("d", "b", "f", "h", "a")) {
+            map.put(key, key.charAt(0) - 'a');
+        }
+        var keys = new ArrayList<String>();
+        for (Map.Entry<String, Integer> entry : map) {
+            keys.add(entry.getKey());
+            assertEquals(entry.getKey().charAt(0) - 'a', entry.getValue());
+            entry.setValue(entry.getValue() * 10);
+        }
+        assertEquals(List.of("a", "b", "d", "f", "h"), keys);
+        assertEquals(30, map.get("d"));
+        var iterator = map.iterator();
+        iterator.next();
+        map.put("c", 2);
+        assertThrows(ConcurrentModificationException.class, iterator::next);
+        iterator = map.iterator();
+        iterator.next();
+        map.put("c", 3);
+        iterator.next();
+    }
+
+    @Test
+    void testRandomOperationsAgainstTreeMap() {
+        BinaryTreeMap<Integer, Integer> tree = create();
+        var expected = new TreeMap<Integer, Integer>();
+        var random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            int key = random.nextInt(5_000);
+            switch (random.nextInt(4)) {
+                case 0 -> assertEquals(expected.put(key, i), tree.put(key, i));
+                case 1 -> assertEquals(expected.remove(key), tree.remove(key));
+                case 2 -> assertEquals(expected.merge(key, 1, Integer::sum),
+                        tree.merge(key, 1, Integer::sum));
+                default -> {
+                    assertEquals(expected.get(key), tree.get(key));
+                    assertEquals(expected.floorKey(key), tree.floorKey(key));
+                    assertEquals(expected.higherKey(key), tree.higherKey(key));
+                }
+            }
+        }
+        assertEquals(expected.size(), tree.size());
+        var entries = new ArrayList<Map.Entry<Integer, Integer>>();
+        tree.forEach(entries::add);
+        assertEquals(new ArrayList<>(expected.entrySet()), entries.stream()
+                .map(e -> Map.entry(e.getKey(), e.getValue())).toList());
+        assertTrue(tree.maxDepth() <= expectedMaxDepth(tree.size()));
+    }
+
+    @Test
+    void testDepth() {
+        int size = 10_000;
+        for (int i = size; i > 0; i--) {
+            map.put("str=%010d".formatted(i), i);
+        }
+        int maxDepth = map.maxDepth();
+        System.out.println("maxDepth = " + maxDepth);
+        assertTrue(expectedMaxDepth(size) >= maxDepth);
+    }
+
+    @Test
+    void testVersusTreeMapAndTreePlusHashMap() {
+        int size = 1_000_000;
+        var random = new Random(42);
+        Integer[] keys = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = random.nextInt();
+        }
+        benchmark("BinaryTreeMap", keys, () -> {
+            BinaryTreeMap<Integer, Integer> tree = create();
+            return new Runnable[]{
+                    () -> {
+                        for (Integer key : keys) tree.put(key, key);
+                    },
+                    () -> {
+                        for (Integer key : keys) tree.merge(key, 1, Integer::sum);
+                    },
+                    () -> {
+                        for (Integer key : keys) tree.get(key);
+                    }};
+        });
+        benchmark("TreeMap", keys, () -> {
+            var tree = new TreeMap<Integer, Integer>();
+            return new Runnable[]{
+                    () -> {
+                        for (Integer key : keys) tree.put(key, key);
+                    },
+                    () -> {
+                        for (Integer key : keys) tree.merge(key, 1, Integer::sum);
+                    },
+                    () -> {
+                        for (Integer key : keys) tree.get(key);
+                    }};
+        });
+        benchmark("tree + HashMap", keys, () -> {
+            var tree = new AVLBinaryTree<Integer>();
+            var values = new HashMap<Integer, Integer>();
+            return new Runnable[]{
+                    () -> {
+                        for (Integer key : keys) {
+                            tree.add(key);
+                            values.put(key, key);
+                        }
+                    },
+                    () -> {
+                        for (Integer key : keys) {
+                            tree.add(key);
+                            values.merge(key, 1, Integer::sum);
+                        }
+                    },
+                    () -> {
+                        for (Integer key : keys) {
+                            if (tree.contains(key)) values.get(key);
+                        }
+                    }};
+        });
+    }
+
+    private void benchmark(String name, Integer[] keys, Supplier<Runnable[]> setup) {
+        Runnable[] phases = setup.get();
+        String[] phaseNames = {"put", "merge", "get"};
+        for (int i = 0; i < phases.length; i++) {
+            long time = System.nanoTime();
+            phases[i].run();
+            time = System.nanoTime() - time;
+            System.out.printf("%s %s %,d: time = %dms%n", getClass().getSimpleName(),
+                    name + " " + phaseNames[i], keys.length, (time / 1_000_000));
+        }
+    }
+}
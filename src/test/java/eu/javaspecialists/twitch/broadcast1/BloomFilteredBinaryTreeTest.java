@@ -0,0 +1,77 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilteredBinaryTreeTest extends BinaryTreeTest {
+    protected BinaryTree<String> create() {
+        return new BloomFilteredBinaryTree<>(new RedBlackBinaryTree<String>());
+    }
+
+    @Override
+    protected int expectedMaxDepth(int elements) {
+        return (int) Math.ceil(Math.log(elements) / Math.log(2) * 2);
+    }
+
+    @Test
+    void testNoFalseNegativesAfterGrowthAndRemovals() {
+        var tree = new BloomFilteredBinaryTree<>(new RedBlackBinaryTree<Integer>());
+        IntStream.range(0, 10_000).forEach(tree::add);
+        IntStream.range(0, 10_000).filter(i -> i % 3 == 0).forEach(tree::remove);
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i % 3 != 0, tree.contains(i));
+        }
+        IntStream.range(0, 10_000).filter(i -> i % 3 == 0).forEach(tree::add);
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(tree.contains(i));
+        }
+    }
+
+    @Test
+    void testFalsePositiveRate() {
+        var tree = new BloomFilteredBinaryTree<>(new RedBlackBinaryTree<Integer>(), 0.01);
+        IntStream.range(0, 100_000).forEach(tree::add);
+        for (int i = 100_000; i < 200_000; i++) {
+            assertFalse(tree.contains(i));
+        }
+        System.out.printf("expected fpp = %.4f, observed fpp = %.4f, memory = %d bytes%n",
+                tree.expectedFalsePositiveRate(), tree.observedFalsePositiveRate(),
+                tree.filterMemoryBytes());
+        assertTrue(tree.expectedFalsePositiveRate() < 0.01);
+        assertTrue(tree.observedFalsePositiveRate() < 0.02);
+        assertEquals(100_000, tree.lookups());
+        assertEquals(100_000, tree.filterRejections() + tree.falsePositives());
+    }
+
+    @Test
+    void testHitMissMix() {
+        int size = 200_000;
+        int lookups = 1_000_000;
+        BinaryTree<Integer> plain = new RedBlackBinaryTree<>();
+        BinaryTree<Integer> filtered =
+                new BloomFilteredBinaryTree<>(new RedBlackBinaryTree<Integer>());
+        for (int i = 0; i < size; i++) {
+            plain.add(i * 2);
+            filtered.add(i * 2);
+        }
+        for (int hitPercentage : new int[]{0, 20, 50, 100}) {
+            for (BinaryTree<Integer> tree : List.of(plain, filtered)) {
+                long time = System.nanoTime();
+                int found = 0;
+                for (int i = 0; i < lookups; i++) {
+                    int key = (int) ((i * 0x9E3779B9L) & 0x7fffffffL) % size * 2;
+                    if (i % 100 >= hitPercentage) key++; // odd keys are absent
+                    if (tree.contains(key)) found++;
+                }
+                time = System.nanoTime() - time;
+                System.out.printf("%s hits=%d%% found=%d time = %dms%n",
+                        tree.getClass().getSimpleName(), hitPercentage,
+                        found, (time / 1_000_000));
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BufferedBinaryTreeTest extends BinaryTreeTest {
+    protected BinaryTree<String> create() {
+        return new BufferedBinaryTree<>();
+    }
+
+    @Override
+    protected int expectedMaxDepth(int elements) {
+        // merging sorts the writes, so this is the AVL bound for any order
+        return (int) Math.ceil(1.44 * Math.log(elements + 2) / Math.log(2));
+    }
+
+    private static List<Integer> toList(BinaryTree<Integer> tree) {
+        var list = new ArrayList<Integer>();
+        tree.forEach(list::add);
+        return list;
+    }
+
+    @Test
+    void testRandomAgainstTreeSet() {
+        for (int capacity : new int[]{1, 8, 64}) {
+            var random = new Random(42);
+            var base = new RedBlackBinaryTree<Integer>();
+            var tree = new BufferedBinaryTree<>(base, capacity);
+            var expected = new TreeSet<Integer>();
+            for (int i = 0; i < 50_000; i++) {
+                int value = random.nextInt(2_000);
+                switch (random.nextInt(3)) {
+                    case 0 -> {
+                        tree.remove(value);
+                        expected.remove(value);
+                    }
+                    case 1 -> {
+                        tree.add(value);
+                        expected.add(value);
+                    }
+                    default -> assertEquals(expected.contains(value), tree.contains(value));
+                }
+                assertTrue(tree.buffered() <= 2 * capacity);
+                if (i % 5_000 == 0) {
+                    assertEquals(expected.size(), tree.size());
+                    assertEquals(List.copyOf(expected), toList(tree));
+                }
+            }
+            tree.flush();
+            assertEquals(0, tree.buffered());
+            assertEquals(List.copyOf(expected), toList(base));
+        }
+    }
+
+    @Test
+    void testTombstonesHideTheBaseTree() {
+        var base = new AVLBinaryTree<Integer>();
+        for (int i = 0; i < 10; i++) {
+            base.add(i);
+        }
+        var tree = new BufferedBinaryTree<>(base, 100);
+        tree.remove(3);
+        tree.remove(3);
+        tree.remove(42);
+        tree.add(12);
+        tree.add(5);
+        assertEquals(4, tree.buffered());
+        assertFalse(tree.contains(3));
+        assertTrue(base.contains(3));
+        assertEquals(List.of(0, 1, 2, 4, 5, 6, 7, 8, 9, 12), toList(tree));
+        tree.add(3);
+        assertEquals(4, tree.buffered());
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 12), toList(tree));
+        tree.flush();
+        assertEquals(toList(tree), toList(base));
+        assertEquals(11, tree.size());
+    }
+
+    @Test
+    void testSizeDoesNotMerge() {
+        var random = new Random(42);
+        var base = new AVLBinaryTree<Integer>();
+        for (int i = 0; i < 1_000; i += 2) {
+            base.add(i);
+        }
+        var tree = new BufferedBinaryTree<>(base, 16, 256);
+        var expected = new TreeSet<Integer>(toList(base));
+        for (int i = 0; i < 20_000; i++) {
+            int value = random.nextInt(1_000);
+            if (random.nextBoolean()) {
+                tree.add(value);
+                expected.add(value);
+            } else {
+                tree.remove(value);
+                expected.remove(value);
+            }
+            if (random.nextInt(4) == 0) {
+                tree.contains(random.nextInt(1_000));
+            }
+            if (random.nextInt(10) == 0) {
+                int buffered = tree.buffered();
+                assertEquals(expected.size(), tree.size());
+                assertEquals(buffered, tree.buffered());
+            }
+        }
+        assertEquals(expected.size(), tree.size());
+        assertEquals(List.copyOf(expected), toList(tree));
+    }
+
+    private static long[] burstyAddLatencies(BinaryTree<Integer> tree) {
+        var random = new Random(42);
+        int bursts = 200;
+        int burstSize = 5_000;
+        long[] latencies = new long[bursts * burstSize];
+        int index = 0;
+        for (int burst = 0; burst < bursts; burst++) {
+            for (int i = 0; i < burstSize; i++) {
+                int value = random.nextInt(10_000_000);
+                long time = System.nanoTime();
+                tree.add(value);
+                latencies[index++] = System.nanoTime() - time;
+            }
+            // the quiet period between bursts, reading and removing a little
+            for (int i = 0; i < burstSize; i++) {
+                int value = random.nextInt(10_000_000);
+                if (tree.contains(value)) {
+                    tree.remove(value);
+                }
+            }
+        }
+        Arrays.sort(latencies);
+        return latencies;
+    }
+
+    @Test
+    void testBurstyInsertLatency() {
+        List<Supplier<BinaryTree<Integer>>> trees = List.of(
+                BufferedBinaryTree::new, AVLBinaryTree::new, RedBlackBinaryTree::new);
+        for (int round = 0; round < 2; round++) {
+            for (var supplier : trees) {
+                var tree = supplier.get();
+                long[] latencies = burstyAddLatencies(tree);
+                System.out.printf("%s bursty add() latency: p50 = %dns, p99 = %dns, " +
+                                "p99.9 = %dns, max = %dus%n", tree.getClass().getSimpleName(),
+                        latencies[latencies.length / 2],
+                        latencies[(int) (latencies.length * 0.99)],
+                        latencies[(int) (latencies.length * 0.999)],
+                        latencies[latencies.length - 1] / 1_000);
+            }
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircularArrayListTest extends SimpleListTest {
+    @Override
+    protected SimpleList<String> create() {
+        return new CircularArrayList<>();
+    }
+
+    @Test
+    void testWrapAroundAndGrowth() {
+        var list = new CircularArrayList<Integer>(4);
+        var expected = new ArrayList<Integer>();
+        var random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            switch (random.nextInt(6)) {
+                case 0 -> {
+                    list.addFirst(i);
+                    expected.add(0, i);
+                }
+                case 1 -> {
+                    list.add(i);
+                    expected.add(i);
+                }
+                case 2 -> {
+                    int index = random.nextInt(expected.size() + 1);
+                    list.add(index, i);
+                    expected.add(index, i);
+                }
+                case 3 -> {
+                    if (!expected.isEmpty()) {
+                        assertEquals(expected.remove(0), list.removeFirst());
+                    }
+                }
+                case 4 -> {
+                    if (!expected.isEmpty()) {
+                        assertEquals(expected.remove(expected.size() - 1), list.removeLast());
+                    }
+                }
+                default -> {
+                    if (!expected.isEmpty()) {
+                        int index = random.nextInt(expected.size());
+                        list.removeAt(index);
+                        expected.remove(index);
+                    }
+                }
+            }
+        }
+        assertEquals(expected.size(), list.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), list.get(i));
+        }
+        list.removeIf(i -> i % 2 == 0);
+        expected.removeIf(i -> i % 2 == 0);
+        int i = 0;
+        for (Integer element : list) {
+            assertEquals(expected.get(i++), element);
+        }
+        assertEquals(expected.size(), i);
+    }
+
+    @Test
+    void testQueueWorkloadAgainstSimpleArrayList() {
+        List<Supplier<SimpleList<Integer>>> suppliers = List.of(
+                SimpleArrayList::new, CircularArrayList::new);
+        for (int backlog : new int[]{1_000, 100_000}) {
+            for (var supplier : suppliers) {
+                SimpleList<Integer> queue = supplier.get();
+                for (int i = 0; i < backlog; i++) {
+                    queue.add(i);
+                }
+                long time = System.nanoTime();
+                long sum = 0;
+                for (int i = 0; i < 100_000; i++) {
+                    queue.add(i);
+                    sum += queue.removeFirst();
+                }
+                time = System.nanoTime() - time;
+                System.out.printf("%s backlog=%d: time = %dms (%d)%n",
+                        queue.getClass().getSimpleName(), backlog,
+                        (time / 1_000_000), sum);
+                assertEquals(backlog, queue.size());
+            }
+        }
+        var deque = new ArrayDeque<Integer>();
+        var list = new CircularArrayList<Integer>();
+        for (int i = 0; i < 1_000; i++) {
+            deque.add(i);
+            list.add(i);
+        }
+        for (int i = 0; i < 1_000; i++) {
+            assertEquals(deque.removeFirst(), list.removeFirst());
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentSegmentedListTest {
+    @Test
+    void testSingleThreaded() {
+        var list = new ConcurrentSegmentedList<String>();
+        assertThrows(IndexOutOfBoundsException.class, () -> list.get(0));
+        assertThrows(NullPointerException.class, () -> list.add(null));
+        for (int i = 0; i < 100_000; i++) {
+            list.add("test" + i);
+        }
+        assertEquals(100_000, list.size());
+        for (int i = 0; i < 100_000; i++) {
+            assertEquals("test" + i, list.get(i));
+        }
+        var it = list.iterator();
+        for (int i = 0; i < 100_000; i++) {
+            assertEquals("test" + i, it.next());
+        }
+        assertThrows(NoSuchElementException.class, it::next);
+        assertThrows(UnsupportedOperationException.class, () -> list.removeAt(0));
+        assertThrows(UnsupportedOperationException.class, () -> list.add(0, "x"));
+        assertThrows(UnsupportedOperationException.class, it::remove);
+    }
+
+    @Test
+    void testWeaklyConsistentIteration() {
+        var list = new ConcurrentSegmentedList<Integer>();
+        list.add(1);
+        var it = list.iterator();
+        assertEquals(1, it.next());
+        assertFalse(it.hasNext());
+        list.add(2);
+        assertTrue(it.hasNext());
+        assertEquals(2, it.next());
+    }
+
+    @Test
+    void testStreamWhileAdding() throws InterruptedException {
+        var list = new ConcurrentSegmentedList<Integer>();
+        for (int i = 0; i < 1_000; i++) {
+            list.add(i);
+        }
+        // a sized stream would allocate 1000 slots and then get 2000 elements
+        Object[] array = list.stream().map(i -> {
+            list.add(i);
+            return i;
+        }).toArray();
+        assertEquals(1_000, array.length);
+        assertEquals(999, array[999]);
+        assertEquals(2_000, list.size());
+
+        var running = new AtomicBoolean(true);
+        var producer = new Thread(() -> {
+            for (int i = 0; running.get() && i < 1_000_000; i++) {
+                list.add(i);
+            }
+        });
+        producer.start();
+        try {
+            for (int round = 0; round < 20; round++) {
+                int before = list.size();
+                Object[] snapshot = list.parallelStream().toArray();
+                assertTrue(snapshot.length >= before);
+                assertTrue(snapshot.length <= list.size());
+                for (int i = 0; i < 1_000; i++) {
+                    assertEquals(i, snapshot[i]);
+                }
+                assertEquals(snapshot.length, list.stream().limit(snapshot.length).count());
+            }
+        } finally {
+            running.set(false);
+            producer.join();
+        }
+    }
+
+    @Test
+    void testConcurrentProducersLoseNothing() throws InterruptedException {
+        int producers = 8;
+        int perProducer = 200_000;
+        var list = new ConcurrentSegmentedList<Integer>();
+        var running = new AtomicBoolean(true);
+        var failure = new AtomicReference<Throwable>();
+        var start = new CountDownLatch(1);
+        var threads = new ArrayList<Thread>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perProducer; i++) {
+                        list.add(base + i);
+                    }
+                } catch (Throwable t) {
+                    failure.set(t);
+                }
+            }));
+        }
+        // a reader checks that every published index is readable
+        var reader = Thread.ofPlatform().start(() -> {
+            try {
+                while (running.get()) {
+                    int size = list.size();
+                    if (size > 0) {
+                        assertNotNull(list.get(size - 1));
+                    }
+                    int count = 0;
+                    for (Integer element : list) {
+                        assertNotNull(element);
+                        if (++count > 1_000) break;
+                    }
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        running.set(false);
+        reader.join();
+        assertNull(failure.get());
+        assertEquals(producers * perProducer, list.size());
+        var seen = new BitSet(producers * perProducer);
+        for (Integer element : list) {
+            assertFalse(seen.get(element), "duplicate " + element);
+            seen.set(element);
+        }
+        assertEquals(producers * perProducer, seen.cardinality());
+    }
+
+    @Test
+    void testProducerScaling() throws InterruptedException {
+        int total = 4_000_000;
+        Integer element = 42;
+        for (int producers = 1; producers <= 64; producers *= 2) {
+            var list = new ConcurrentSegmentedList<Integer>();
+            int perProducer = total / producers;
+            var start = new CountDownLatch(1);
+            var threads = new ArrayList<Thread>();
+            for (int p = 0; p < producers; p++) {
+                threads.add(Thread.ofPlatform().start(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < perProducer; i++) {
+                        list.add(element);
+                    }
+                }));
+            }
+            long time = System.nanoTime();
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            time = System.nanoTime() - time;
+            assertEquals(perProducer * producers, list.size());
+            System.out.printf("producers = %d: time = %dms%n",
+                    producers, (time / 1_000_000));
+        }
+    }
+}
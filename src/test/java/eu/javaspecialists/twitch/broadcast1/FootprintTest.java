@@ -0,0 +1,234 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FootprintTest {
+    private static final int SIZE = 200_000;
+    // the measured heap delta may differ from the estimate by this fraction
+    private static final double TOLERANCE = 0.05;
+
+    private static long usedHeap() {
+        var runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+        }
+        return used;
+    }
+
+    /**
+     * Builds the structure and compares its estimate with how much the used
+     * heap grew after a full collection.
+     */
+    private static <S> void check(String name, Supplier<S> supplier,
+                                  Function<S, Footprint> footprint) {
+        long before = usedHeap();
+        S structure = supplier.get();
+        long measured = usedHeap() - before;
+        Footprint estimate = footprint.apply(structure);
+        Reference.reachabilityFence(structure);
+        System.out.printf("%s of %,d: estimated = %,d bytes, measured = %,d bytes, " +
+                        "%.1f bytes per element, %s%n", name, SIZE, estimate.totalBytes(),
+                measured, (double) estimate.totalBytes() / SIZE, estimate);
+        assertEquals(measured, estimate.totalBytes(), TOLERANCE * measured, name);
+    }
+
+    private static List<Integer> shuffledValues() {
+        var values = new ArrayList<Integer>(SIZE);
+        for (int i = 0; i < SIZE; i++) {
+            values.add(i);
+        }
+        Collections.shuffle(values, new Random(42));
+        return values;
+    }
+
+    private static <L extends SimpleList<Integer>> Supplier<L> filled(
+            Supplier<L> supplier, List<Integer> values) {
+        return () -> {
+            L list = supplier.get();
+            values.forEach(list::add);
+            return list;
+        };
+    }
+
+    private static <B extends BinaryTree<Integer>> Supplier<B> filledTree(
+            Supplier<B> supplier, List<Integer> values) {
+        return () -> {
+            B tree = supplier.get();
+            values.forEach(tree::add);
+            return tree;
+        };
+    }
+
+    @Test
+    void testListsAgainstHeapDelta() {
+        // the elements already exist, so that we only measure the lists
+        var values = shuffledValues();
+        check("SimpleArrayList", filled(SimpleArrayList::new, values), SimpleList::footprint);
+        check("CircularArrayList", filled(CircularArrayList::new, values), SimpleList::footprint);
+        check("SimpleLinkedList", filled(SimpleLinkedList::new, values), SimpleList::footprint);
+        check("UnrolledLinkedList", filled(UnrolledLinkedList::new, values), SimpleList::footprint);
+        check("UnrolledLinkedList indexed", () -> {
+            var list = new UnrolledLinkedList<Integer>(64, true);
+            values.forEach(list::add);
+            list.get(SIZE / 2);
+            return list;
+        }, SimpleList::footprint);
+        check("IntSimpleArrayList", () -> {
+            var list = new IntSimpleArrayList();
+            for (int i = 0; i < SIZE; i++) {
+                list.add(i);
+            }
+            return list;
+        }, IntSimpleList::footprint);
+        check("LongSimpleArrayList", () -> {
+            var list = new LongSimpleArrayList();
+            for (int i = 0; i < SIZE; i++) {
+                list.add(i);
+            }
+            return list;
+        }, LongSimpleList::footprint);
+    }
+
+    @Test
+    void testTreesAgainstHeapDelta() {
+        var values = shuffledValues();
+        check("AVLBinaryTree", filledTree(AVLBinaryTree::new, values), BinaryTree::footprint);
+        check("RedBlackBinaryTree", filledTree(RedBlackBinaryTree::new, values), BinaryTree::footprint);
+        check("WAVLBinaryTree", filledTree(WAVLBinaryTree::new, values), BinaryTree::footprint);
+        check("SimpleUnbalancedBinaryTree", filledTree(SimpleUnbalancedBinaryTree::new, values),
+                BinaryTree::footprint);
+        var sorted = List.copyOf(new TreeSet<>(values));
+        check("SortedArrayBinaryTree", filledTree(SortedArrayBinaryTree::new, sorted),
+                BinaryTree::footprint);
+    }
+
+    @Test
+    void testOtherListsAgainstHeapDelta() {
+        var values = shuffledValues();
+        check("PersistentVector", filled(PersistentVector::new, values), SimpleList::footprint);
+        check("PersistentVector used as a queue", () -> {
+            var list = new PersistentVector<Integer>();
+            values.forEach(list::add);
+            for (int i = 0; i < SIZE / 2; i++) {
+                list.removeFirst();
+            }
+            return list;
+        }, SimpleList::footprint);
+        check("ConcurrentSegmentedList", filled(ConcurrentSegmentedList::new, values),
+                SimpleList::footprint);
+        check("RecordingSimpleList", () -> {
+            var list = new RecordingSimpleList<>(new SimpleArrayList<Integer>(),
+                    FixedWidthCodec.ints(), OutputStream.nullOutputStream());
+            values.forEach(list::add);
+            return list;
+        }, SimpleList::footprint);
+    }
+
+    @Test
+    void testWrappersAgainstHeapDelta() {
+        var values = shuffledValues();
+        check("BloomFilteredBinaryTree", filledTree(
+                () -> new BloomFilteredBinaryTree<Integer>(new AVLBinaryTree<>()), values), BinaryTree::footprint);
+        check("BufferedBinaryTree", filledTree(BufferedBinaryTree::new, values), BinaryTree::footprint);
+        check("ShardedBinaryTree", filledTree(() -> new ShardedBinaryTree<Integer>(16), values),
+                BinaryTree::footprint);
+        check("AdaptiveBinaryTree", filledTree(AdaptiveBinaryTree::new, values), BinaryTree::footprint);
+        check("MultisetBinaryTree", filledTree(MultisetBinaryTree::new, values), BinaryTree::footprint);
+        check("RecordingBinaryTree", filledTree(() -> new RecordingBinaryTree<Integer>(
+                        new RedBlackBinaryTree<>(), FixedWidthCodec.ints(), OutputStream.nullOutputStream()),
+                values), BinaryTree::footprint);
+        var intervals = new ArrayList<IntervalTree.Interval<Integer>>(SIZE);
+        values.forEach(value -> intervals.add(new IntervalTree.Interval<>(value, value + 10)));
+        check("IntervalTree", () -> {
+            var tree = new IntervalTree<Integer>();
+            intervals.forEach(tree::add);
+            return tree;
+        }, BinaryTree::footprint);
+    }
+
+    /**
+     * We claimed that the ART takes about 30% more heap than the nodes of an
+     * AVLBinaryTree of the same URLs.
+     */
+    @Test
+    void testAdaptiveRadixTreeVersusAVLBinaryTree() {
+        var urls = AdaptiveRadixTreeTest.urls(SIZE);
+        check("AdaptiveRadixTree", () -> {
+            var tree = new AdaptiveRadixTree();
+            urls.forEach(tree::add);
+            return tree;
+        }, BinaryTree::footprint);
+        var art = new AdaptiveRadixTree();
+        urls.forEach(art::add);
+        var avl = new AVLBinaryTree<String>();
+        urls.forEach(avl::add);
+        double ratio = (double) art.estimatedRetainedBytes() / avl.estimatedRetainedBytes();
+        System.out.printf("AdaptiveRadixTree takes %.2f times the heap of AVLBinaryTree, %s%n",
+                ratio, art.footprint());
+        assertEquals(1.3, ratio, 0.1);
+    }
+
+    @Test
+    void testOffHeapSimpleList() throws Exception {
+        var list = new OffHeapSimpleList<>(FixedWidthCodec.longs(), 1024);
+        try (list) {
+            for (long i = 0; i < 5_000; i++) {
+                list.add(i);
+            }
+            var footprint = list.footprint();
+            // five chunks of 1024 longs, outside of the heap
+            assertEquals(5, footprint.nodes());
+            assertEquals(5 * 1024 * Long.BYTES, footprint.arrayBytes());
+        }
+        assertEquals(0, list.footprint().arrayBytes());
+    }
+
+    @Test
+    void testBreakdown() {
+        var tree = new AVLBinaryTree<Integer>();
+        assertEquals(0, tree.footprint().nodes());
+        for (int i = 0; i < 10; i++) {
+            tree.add(i);
+        }
+        var footprint = tree.footprint();
+        assertEquals(10, footprint.nodes());
+        assertEquals(0, footprint.bytesPerNode() % ObjectLayout.OBJECT_ALIGNMENT);
+        assertEquals(footprint.fixedBytes() + 10 * footprint.bytesPerNode(),
+                tree.estimatedRetainedBytes());
+
+        var list = new SimpleArrayList<Integer>();
+        assertEquals(0, list.footprint().nodes());
+        assertTrue(list.footprint().arrayBytes() >= ObjectLayout.ARRAY_HEADER_SIZE);
+
+        // wrappers add their own parts to those of the structure that they wrap
+        var sharded = new ShardedBinaryTree<Integer>(4);
+        for (int i = 0; i < 10_000; i++) {
+            sharded.add(i);
+        }
+        assertEquals(4, sharded.shards());
+        assertEquals(10_000, sharded.footprint().nodes());
+        assertEquals(AbstractBinaryTreeMap.NODE_SIZE, sharded.footprint().bytesPerNode());
+        var buffered = new BufferedBinaryTree<>(tree, 16);
+        assertEquals(tree.footprint().nodes(), buffered.footprint().nodes());
+        assertTrue(buffered.footprint().arrayBytes() > 0);
+
+        // nodes of different sizes still add up
+        var mixed = new Footprint(10, 3, 24, 100).plus(new Footprint(5, 2, 32, 0));
+        assertEquals(5, mixed.nodes());
+        assertEquals(10 + 3 * 24 + 100 + 5 + 2 * 32, mixed.totalBytes());
+    }
+}
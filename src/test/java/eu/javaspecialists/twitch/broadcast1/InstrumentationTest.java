@@ -0,0 +1,286 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InstrumentationTest {
+    @Test
+    void testTreeCounters() {
+        var tree = new AVLBinaryTree<Integer>();
+        tree.add(1);
+        var counters = tree.enableCounters();
+        assertSame(counters, tree.enableCounters());
+        tree.add(2);
+        tree.add(3);
+        assertTrue(tree.contains(2));
+        assertFalse(tree.contains(4));
+        tree.remove(2);
+        assertEquals(2, counters.adds());
+        assertEquals(1, counters.removes());
+        assertEquals(2, counters.lookups());
+        assertTrue(counters.comparisons() >= 6, counters.toString());
+        counters.reset();
+        assertEquals(0, counters.comparisons());
+    }
+
+    @Test
+    void testListCounters() {
+        var list = new SimpleArrayList<String>();
+        var counters = list.enableCounters();
+        list.add("one");
+        list.add(0, "zero");
+        list.get(1);
+        list.removeAt(0);
+        assertEquals("adds=2, removes=1, lookups=1, comparisons=0", counters.toString());
+    }
+
+    @Test
+    void testFlightRecorderEvents(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("events.jfr");
+        try (var recording = new Recording()) {
+            recording.enable("eu.javaspecialists.twitch.Rebalance");
+            recording.enable("eu.javaspecialists.twitch.ArrayResize");
+            recording.enable("eu.javaspecialists.twitch.LongIteration")
+                    .withThreshold(Duration.ZERO);
+            recording.start();
+            var avl = new AVLBinaryTree<Integer>();
+            var redBlack = new RedBlackBinaryTree<Integer>();
+            for (int i = 0; i < 100; i++) {
+                avl.add(i);
+                redBlack.add(i);
+            }
+            for (int i = 0; i < 100; i++) {
+                redBlack.remove(i);
+            }
+            var list = new SimpleArrayList<Integer>(1);
+            for (int i = 0; i < 100; i++) {
+                list.add(i);
+            }
+            for (Integer i : list) {
+            }
+            for (Integer i : avl) {
+            }
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        var rebalances = events.stream()
+                .filter(e -> e.getEventType().getName().endsWith("Rebalance")).toList();
+        assertTrue(rebalances.stream().anyMatch(e -> e.getString("treeClass")
+                .endsWith("AVLBinaryTree") && e.getInt("rotations") > 0));
+        assertTrue(rebalances.stream().anyMatch(e -> e.getString("treeClass")
+                .endsWith("RedBlackBinaryTree") && e.getInt("redMoves") > 0));
+        var resizes = events.stream()
+                .filter(e -> e.getEventType().getName().endsWith("ArrayResize")).toList();
+        assertEquals(7, resizes.size());
+        assertEquals(64L * ObjectLayout.REFERENCE_SIZE, resizes.get(6).getLong("copiedBytes"));
+        var iterations = events.stream()
+                .filter(e -> e.getEventType().getName().endsWith("LongIteration")).toList();
+        assertEquals(2, iterations.size());
+        assertEquals(100, iterations.get(0).getLong("elements"));
+    }
+
+    /**
+     * Compares AVLBinaryTree with the instrumentation disabled against
+     * BaselineAVLTree, the same algorithm without any instrumentation, and
+     * against AVLBinaryTree with the counters enabled.  This does not measure
+     * how small the overhead of the disabled instrumentation is.  Timings on
+     * a shared machine are too noisy for that, so we only print the numbers
+     * and fail on gross regressions: disabled more than 25% slower than the
+     * baseline, or more than 10% slower than counting.
+     */
+    @Test
+    void testOverheadWithInstrumentationDisabled() {
+        int size = 200_000;
+        int[] values = new Random(42).ints(size).toArray();
+        long baseline = Long.MAX_VALUE;
+        long disabled = Long.MAX_VALUE;
+        long counting = Long.MAX_VALUE;
+        for (int run = 0; run < 7; run++) {
+            baseline = Math.min(baseline, InstrumentationTest.<BaselineAVLTree<Integer>>time(
+                    values, BaselineAVLTree::new, BaselineAVLTree::add, BaselineAVLTree::contains));
+            disabled = Math.min(disabled, InstrumentationTest.<AVLBinaryTree<Integer>>time(
+                    values, AVLBinaryTree::new, AVLBinaryTree::add, AVLBinaryTree::contains));
+            counting = Math.min(counting, InstrumentationTest.<AVLBinaryTree<Integer>>time(values, () -> {
+                var tree = new AVLBinaryTree<Integer>();
+                tree.enableCounters();
+                return tree;
+            }, AVLBinaryTree::add, AVLBinaryTree::contains));
+        }
+        System.out.printf("AVLBinaryTree add+contains %,d: baseline = %dms, " +
+                        "disabled = %dms (%+.1f%%), counting = %dms (%+.1f%%)%n",
+                size, baseline / 1_000_000,
+                disabled / 1_000_000, 100.0 * (disabled - baseline) / baseline,
+                counting / 1_000_000, 100.0 * (counting - baseline) / baseline);
+        assertTrue(disabled < baseline * 1.25);
+        assertTrue(disabled < counting * 1.1);
+    }
+
+    /**
+     * BaselineAVLTree is a copy, so check that it still builds the same tree
+     * as AVLBinaryTree, otherwise the overhead test compares different
+     * algorithms.
+     */
+    @Test
+    void testBaselineBuildsTheSameTree() {
+        int[] values = new Random(42).ints(10_000, 0, 5_000).toArray();
+        var baseline = new BaselineAVLTree<Integer>();
+        var tree = new AVLBinaryTree<Integer>();
+        for (int value : values) {
+            baseline.add(value);
+            tree.add(value);
+        }
+        assertSameShape(baseline.root, tree.root());
+    }
+
+    private static void assertSameShape(AbstractBinaryTree.Node<Integer> expected,
+                                        AbstractBinaryTree.Node<Integer> actual) {
+        if (expected == null || actual == null) {
+            assertSame(expected, actual);
+            return;
+        }
+        assertEquals(expected.value(), actual.value());
+        assertSameShape(expected.left(), actual.left());
+        assertSameShape(expected.right(), actual.right());
+    }
+
+    private static <S> long time(int[] values, Supplier<S> factory,
+                                 BiConsumer<S, Integer> add,
+                                 BiPredicate<S, Integer> contains) {
+        long time = System.nanoTime();
+        var tree = factory.get();
+        for (int value : values) {
+            add.accept(tree, value);
+        }
+        for (int value : values) {
+            assertTrue(contains.test(tree, value));
+        }
+        return System.nanoTime() - time;
+    }
+
+    /**
+     * The add() and contains() of AVLBinaryTree and AbstractBinaryTree, with
+     * the same nodes, rotations and iterative lookup, but without the
+     * comparison counting, the counters and the RebalanceEvent.  Keep it in
+     * step with AVLBinaryTree; testBaselineBuildsTheSameTree() checks that.
+     */
+    private static final class BaselineAVLTree<T extends Comparable<T>> {
+        private Node<T> root;
+        private int modCount;
+
+        private static final class Node<E extends Comparable<E>>
+                implements AbstractBinaryTree.Node<E> {
+            private final E value;
+            private int height = 1;
+            private Node<E> left;
+            private Node<E> right;
+
+            Node(E value) {
+                this.value = value;
+            }
+
+            @Override
+            public Node<E> left() {
+                return left;
+            }
+
+            @Override
+            public Node<E> right() {
+                return right;
+            }
+
+            @Override
+            public E value() {
+                return value;
+            }
+        }
+
+        void add(T value) {
+            root = add(root, value);
+            modCount++;
+        }
+
+        boolean contains(T value) {
+            AbstractBinaryTree.Node<T> current = root;
+            while (current != null) {
+                int cmp = value.compareTo(current.value());
+                if (cmp == 0) {
+                    return true;
+                }
+                current = cmp < 0 ? current.left() : current.right();
+            }
+            return false;
+        }
+
+        private static int height(Node<?> node) {
+            return node == null ? 0 : node.height;
+        }
+
+        private Node<T> rotateRight(Node<T> node) {
+            return rotate(node, n -> n.left, n -> n.right, (n, c) -> n.right = c, (n, c) -> n.left = c);
+        }
+
+        private Node<T> rotateLeft(Node<T> node) {
+            return rotate(node, n -> n.right, n -> n.left, (n, c) -> n.left = c, (n, c) -> n.right = c);
+        }
+
+        private Node<T> rotate(Node<T> node, UnaryOperator<Node<T>> newRootGetter,
+                               UnaryOperator<Node<T>> newSubtreeGetter,
+                               BiConsumer<Node<T>, Node<T>> newRootSetter,
+                               BiConsumer<Node<T>, Node<T>> nodeSetter) {
+            Node<T> newRoot = newRootGetter.apply(node);
+            Node<T> subtree = newSubtreeGetter.apply(newRoot);
+            newRootSetter.accept(newRoot, node);
+            nodeSetter.accept(node, subtree);
+            node.height = Math.max(height(node.left), height(node.right)) + 1;
+            newRoot.height = Math.max(height(newRoot.left), height(newRoot.right)) + 1;
+            return newRoot;
+        }
+
+        private Node<T> add(Node<T> node, T value) {
+            if (node == null) {
+                return new Node<>(value);
+            }
+            int cmp = value.compareTo(node.value);
+            if (cmp < 0) {
+                node.left = add(node.left, value);
+            } else if (cmp > 0) {
+                node.right = add(node.right, value);
+            } else {
+                return node;
+            }
+            node.height = 1 + Math.max(height(node.left), height(node.right));
+            int balance = height(node.left) - height(node.right);
+            if (balance > 1 && value.compareTo(node.left.value) < 0) {
+                return rotateRight(node);
+            }
+            if (balance < -1 && value.compareTo(node.right.value) > 0) {
+                return rotateLeft(node);
+            }
+            if (balance > 1 && value.compareTo(node.left.value) > 0) {
+                node.left = rotateLeft(node.left);
+                return rotateRight(node);
+            }
+            if (balance < -1 && value.compareTo(node.right.value) < 0) {
+                node.right = rotateRight(node.right);
+                return rotateLeft(node);
+            }
+            return node;
+        }
+    }
+}
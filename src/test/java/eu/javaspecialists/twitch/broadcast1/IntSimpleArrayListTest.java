@@ -0,0 +1,119 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntSimpleArrayListTest {
+    IntSimpleArrayList list;
+
+    @BeforeEach
+    void init() {
+        list = new IntSimpleArrayList();
+    }
+
+    @Test
+    void testAddAndGet() {
+        assertThrows(IndexOutOfBoundsException.class, () -> list.getInt(0));
+        for (int i = 0; i < 100; i++) {
+            list.add(i * 1000);
+        }
+        assertEquals(100, list.size());
+        assertEquals(99_000, list.getInt(99));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.getInt(100));
+    }
+
+    @Test
+    void testRemoveAt() {
+        assertThrows(IndexOutOfBoundsException.class, () -> list.removeAt(0));
+        for (int i = 0; i < 10; i++) {
+            list.add(i);
+        }
+        list.removeAt(0);
+        list.removeAt(8);
+        assertEquals(8, list.size());
+        assertEquals(1, list.getInt(0));
+        assertEquals(8, list.getInt(7));
+    }
+
+    @Test
+    void testIteratorAndForEach() {
+        for (int i = 0; i < 10; i++) {
+            list.add(i);
+        }
+        var it = list.iterator();
+        int expected = 0;
+        while (it.hasNext()) {
+            int value = it.nextInt();
+            assertEquals(expected++, value);
+            if (value % 2 == 0) it.remove();
+        }
+        assertThrows(NoSuchElementException.class, it::nextInt);
+        assertEquals(5, list.size());
+        int[] sum = {0};
+        list.forEach((int value) -> sum[0] += value);
+        assertEquals(1 + 3 + 5 + 7 + 9, sum[0]);
+        assertThrows(ConcurrentModificationException.class,
+                () -> list.forEach((int value) -> list.add(value)));
+        var it2 = list.iterator();
+        assertThrows(IllegalStateException.class, it2::remove);
+        list.add(42);
+        assertThrows(ConcurrentModificationException.class, it2::nextInt);
+    }
+
+    @Test
+    void testTrimToSize() {
+        list.ensureCapacity(100);
+        list.add(1);
+        assertEquals(100, list.capacity());
+        list.trimToSize();
+        assertEquals(1, list.capacity());
+    }
+
+    @Test
+    void testMemoryAndThroughputAgainstBoxed() {
+        int size = 2_000_000;
+        var boxed = new SimpleArrayList<Integer>();
+        long before = usedMemory();
+        for (int i = 0; i < size; i++) {
+            boxed.add(i * 31);
+        }
+        long boxedBytes = usedMemory() - before;
+        var primitive = new IntSimpleArrayList();
+        before = usedMemory();
+        for (int i = 0; i < size; i++) {
+            primitive.add(i * 31);
+        }
+        long primitiveBytes = usedMemory() - before;
+        System.out.printf("memory: boxed = %d bytes/element, primitive = %d bytes/element%n",
+                boxedBytes / size, primitiveBytes / size);
+
+        for (int run = 0; run < 3; run++) {
+            long time = System.nanoTime();
+            long boxedSum = 0;
+            for (int i = 0; i < size; i++) {
+                boxedSum += boxed.get(i);
+            }
+            long boxedTime = System.nanoTime() - time;
+            time = System.nanoTime();
+            long primitiveSum = 0;
+            for (int i = 0; i < size; i++) {
+                primitiveSum += primitive.getInt(i);
+            }
+            long primitiveTime = System.nanoTime() - time;
+            assertEquals(boxedSum, primitiveSum);
+            System.out.printf("sum: boxed time = %dms, primitive time = %dms%n",
+                    boxedTime / 1_000_000, primitiveTime / 1_000_000);
+        }
+    }
+
+    private static long usedMemory() {
+        for (int i = 0; i < 3; i++) System.gc();
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
@@ -0,0 +1,99 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import eu.javaspecialists.twitch.broadcast1.IntervalTree.Interval;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntervalTreeTest {
+    @Test
+    void testOverlapAndStabbing() {
+        var tree = new IntervalTree<Integer>();
+        tree.add(15, 20);
+        tree.add(10, 30);
+        tree.add(17, 19);
+        tree.add(5, 20);
+        tree.add(12, 15);
+        tree.add(30, 40);
+        tree.add(30, 40);
+        assertEquals(6, tree.size());
+        assertEquals(List.of(new Interval<>(5, 20), new Interval<>(10, 30),
+                new Interval<>(12, 15), new Interval<>(15, 20)), tree.overlapping(14, 16));
+        assertEquals(List.of(new Interval<>(10, 30), new Interval<>(30, 40)), tree.stabbing(30));
+        assertEquals(List.of(), tree.stabbing(41));
+        assertEquals(List.of(), tree.overlapping(0, 4));
+        tree.remove(new Interval<>(10, 30));
+        assertEquals(List.of(new Interval<>(30, 40)), tree.stabbing(30));
+        assertFalse(tree.contains(new Interval<>(10, 30)));
+        assertThrows(IllegalArgumentException.class, () -> tree.add(2, 1));
+    }
+
+    @Test
+    void testRandomAgainstBruteForce() {
+        var random = new Random(42);
+        var tree = new IntervalTree<Integer>();
+        var all = new ArrayList<Interval<Integer>>();
+        for (int i = 0; i < 20_000; i++) {
+            int start = random.nextInt(100_000);
+            var interval = new Interval<>(start, start + random.nextInt(1_000));
+            if (random.nextInt(4) == 0 && !all.isEmpty()) {
+                var removed = all.remove(random.nextInt(all.size()));
+                tree.remove(removed);
+            } else if (!tree.contains(interval)) {
+                tree.add(interval);
+                all.add(interval);
+            }
+            if (i % 100 == 0) {
+                int from = random.nextInt(100_000);
+                int to = from + random.nextInt(500);
+                var expected = all.stream()
+                        .filter(iv -> iv.overlaps(from, to)).sorted().toList();
+                assertEquals(expected, tree.overlapping(from, to));
+            }
+        }
+        assertEquals(all.size(), tree.size());
+    }
+
+    @Test
+    void testQueriesVersusScanningRedBlackBinaryTree() {
+        int size = 1_000_000;
+        int queries = 1_000;
+        var random = new Random(42);
+        var tree = new IntervalTree<Integer>();
+        var scanned = new RedBlackBinaryTree<Interval<Integer>>();
+        for (int i = 0; i < size; i++) {
+            int start = random.nextInt(Integer.MAX_VALUE - 100_000);
+            var interval = new Interval<>(start, start + random.nextInt(100_000));
+            tree.add(interval);
+            scanned.add(interval);
+        }
+        int[] points = random.ints(queries, 0, Integer.MAX_VALUE).toArray();
+        long found = 0;
+        long time = System.nanoTime();
+        for (int point : points) {
+            found += tree.stabbing(point).size();
+        }
+        time = System.nanoTime() - time;
+        System.out.printf("IntervalTree %,d stabbing queries over %,d intervals: " +
+                "time = %dms, found = %d%n", queries, size, time / 1_000_000, found);
+        long scannedFound = 0;
+        time = System.nanoTime();
+        for (int i = 0; i < queries / 100; i++) {
+            for (var interval : scanned) {
+                if (interval.overlaps(points[i], points[i])) scannedFound++;
+            }
+        }
+        time = System.nanoTime() - time;
+        System.out.printf("RedBlackBinaryTree scan %,d queries: time = %dms%n",
+                queries / 100, time / 1_000_000);
+        long expectedFound = 0;
+        for (int i = 0; i < queries / 100; i++) {
+            expectedFound += tree.stabbing(points[i]).size();
+        }
+        assertEquals(expectedFound, scannedFound);
+    }
+}
@@ -0,0 +1,76 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongSimpleArrayListTest {
+    LongSimpleArrayList list;
+
+    @BeforeEach
+    void init() {
+        list = new LongSimpleArrayList();
+    }
+
+    @Test
+    void testAddAndGet() {
+        assertThrows(IndexOutOfBoundsException.class, () -> list.getLong(0));
+        for (int i = 0; i < 100; i++) {
+            list.add(i * 1_000_000_000L);
+        }
+        assertEquals(100, list.size());
+        assertEquals(99_000_000_000L, list.getLong(99));
+        assertThrows(IndexOutOfBoundsException.class, () -> list.getLong(100));
+    }
+
+    @Test
+    void testRemoveAt() {
+        assertThrows(IndexOutOfBoundsException.class, () -> list.removeAt(0));
+        for (int i = 0; i < 10; i++) {
+            list.add(i);
+        }
+        list.removeAt(0);
+        list.removeAt(8);
+        assertEquals(8, list.size());
+        assertEquals(1, list.getLong(0));
+        assertEquals(8, list.getLong(7));
+    }
+
+    @Test
+    void testIteratorAndForEach() {
+        for (int i = 0; i < 10; i++) {
+            list.add(i);
+        }
+        var it = list.iterator();
+        int expected = 0;
+        while (it.hasNext()) {
+            long value = it.nextLong();
+            assertEquals(expected++, value);
+            if (value % 2 == 0) it.remove();
+        }
+        assertThrows(NoSuchElementException.class, it::nextLong);
+        assertEquals(5, list.size());
+        long[] sum = {0};
+        list.forEach((long value) -> sum[0] += value);
+        assertEquals(1 + 3 + 5 + 7 + 9, sum[0]);
+        assertThrows(ConcurrentModificationException.class,
+                () -> list.forEach((long value) -> list.add(value)));
+        var it2 = list.iterator();
+        assertThrows(IllegalStateException.class, it2::remove);
+        list.add(42);
+        assertThrows(ConcurrentModificationException.class, it2::nextLong);
+    }
+
+    @Test
+    void testTrimToSize() {
+        list.ensureCapacity(100);
+        list.add(1);
+        assertEquals(100, list.capacity());
+        list.trimToSize();
+        assertEquals(1, list.capacity());
+    }
+}
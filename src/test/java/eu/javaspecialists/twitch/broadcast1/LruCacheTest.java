@@ -0,0 +1,130 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LruCacheTest {
+    @Test
+    void testEvictsLeastRecentlyUsed() {
+        var cache = new LruCache<String, Integer>(3);
+        cache.put("one", 1);
+        cache.put("two", 2);
+        cache.put("three", 3);
+        assertEquals(1, cache.get("one"));
+        cache.put("four", 4);
+        assertNull(cache.get("two"));
+        assertEquals(3, cache.size());
+        assertEquals(1, cache.evictionCount());
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+        assertEquals(0.5, cache.hitRate());
+        assertEquals(3, cache.put("three", 33));
+        assertEquals(33, cache.remove("three"));
+        assertNull(cache.remove("three"));
+        assertEquals(2, cache.size());
+        assertThrows(NullPointerException.class, () -> cache.put("five", null));
+    }
+
+    @Test
+    void testWeigher() {
+        var cache = new LruCache<String, String>(10, (key, value) -> value.length(), false);
+        cache.put("a", "12345");
+        cache.put("b", "1234");
+        assertEquals(9, cache.weightedSize());
+        cache.put("c", "12");
+        assertNull(cache.get("a"));
+        assertEquals(6, cache.weightedSize());
+        cache.put("b", "123456789");
+        assertNull(cache.get("c"));
+        assertEquals(9, cache.weightedSize());
+        // an entry that can never fit is evicted on its own
+        cache.put("huge", "12345678901");
+        assertNull(cache.get("huge"));
+        assertEquals("123456789", cache.get("b"));
+        assertEquals(9, cache.weightedSize());
+        cache.put("b", "12345678901");
+        assertNull(cache.get("b"));
+        assertEquals(0, cache.weightedSize());
+    }
+
+    @Test
+    void testLoadingGet() {
+        var cache = new LruCache<Integer, String>(100, (key, value) -> 1, true);
+        int[] loads = new int[1];
+        for (int i = 0; i < 3; i++) {
+            assertEquals("42", cache.get(42, key -> {
+                loads[0]++;
+                return key.toString();
+            }));
+        }
+        assertEquals(1, loads[0]);
+        assertEquals(2, cache.hitCount());
+        assertEquals(1, cache.missCount());
+    }
+
+    @Test
+    void testTinyLfuResistsScans() {
+        int size = 1_000;
+        var lru = new LruCache<Integer, Integer>(size);
+        var tinyLfu = new LruCache<Integer, Integer>(size, (key, value) -> 1, true);
+        for (var cache : Arrays.asList(lru, tinyLfu)) {
+            // a hot working set, then a long scan, then the hot set again
+            for (int round = 0; round < 5; round++) {
+                for (int i = 0; i < size / 2; i++) cache.get(i, key -> key);
+            }
+            for (int i = 1_000_000; i < 1_010_000; i++) cache.get(i, key -> key);
+            long hits = cache.hitCount();
+            for (int i = 0; i < size / 2; i++) cache.get(i, key -> key);
+            System.out.printf("hot set hits after scan: %d of %d%n",
+                    cache.hitCount() - hits, size / 2);
+            assertTrue(cache.size() <= size);
+        }
+        assertEquals(0, lru.hitCount() - 2_000);
+        assertTrue(tinyLfu.hitCount() - 2_000 > 400);
+    }
+
+    @Test
+    void testZipfianHitRateAndThroughput() {
+        int keys = 100_000;
+        int accesses = 2_000_000;
+        int[] trace = zipfTrace(keys, accesses, 0.99, new Random(42));
+        for (int size : new int[]{100, 1_000, 10_000}) {
+            for (boolean tinyLfu : new boolean[]{false, true}) {
+                var cache = new LruCache<Integer, Integer>(size, (key, value) -> 1, tinyLfu);
+                long time = System.nanoTime();
+                for (int key : trace) {
+                    cache.get(key, k -> k);
+                }
+                time = System.nanoTime() - time;
+                System.out.printf("%s size %,d: hit rate = %.1f%%, time = %dms, " +
+                                "evictions = %,d%n", tinyLfu ? "W-TinyLFU" : "LRU", size,
+                        100 * cache.hitRate(), time / 1_000_000, cache.evictionCount());
+                assertEquals(accesses, cache.hitCount() + cache.missCount());
+                assertTrue(cache.size() <= size);
+            }
+        }
+    }
+
+    /**
+     * Samples keys where the probability of key k is proportional to
+     * 1/(k+1)^skew, by binary searching the cumulative distribution.
+     */
+    private static int[] zipfTrace(int keys, int accesses, double skew, Random random) {
+        double[] cumulative = new double[keys];
+        double sum = 0;
+        for (int k = 0; k < keys; k++) {
+            sum += 1 / Math.pow(k + 1, skew);
+            cumulative[k] = sum;
+        }
+        int[] trace = new int[accesses];
+        for (int i = 0; i < accesses; i++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            trace[i] = index >= 0 ? index : -index - 1;
+        }
+        return trace;
+    }
+}
@@ -0,0 +1,133 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultisetBinaryTreeTest extends BinaryTreeTest {
+    protected BinaryTree<String> create() {
+        return new MultisetBinaryTree<>();
+    }
+
+    @Override
+    protected int expectedMaxDepth(int elements) {
+        return (int) Math.ceil(1.44 * Math.log(elements + 2) / Math.log(2));
+    }
+
+    @Test
+    void testCountsAndRepeats() {
+        var multiset = new MultisetBinaryTree<String>();
+        for (String word : "the cat and the hat and the bat".split(" ")) {
+            multiset.add(word);
+        }
+        assertEquals(3, multiset.count("the"));
+        assertEquals(0, multiset.count("dog"));
+        assertEquals(8, multiset.size());
+        assertEquals(5, multiset.distinctSize());
+        var all = new ArrayList<String>();
+        multiset.forEach(all::add);
+        assertEquals(List.of("and", "and", "bat", "cat", "hat", "the", "the", "the"), all);
+        var distinct = new ArrayList<String>();
+        multiset.distinct().forEach(distinct::add);
+        assertEquals(List.of("and", "bat", "cat", "hat", "the"), distinct);
+        multiset.remove("the");
+        assertEquals(2, multiset.count("the"));
+        multiset.remove("cat");
+        assertFalse(multiset.contains("cat"));
+        multiset.add("zebra", 4);
+        assertEquals(10, multiset.size());
+        assertThrows(IllegalArgumentException.class, () -> multiset.add("zebra", 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> multiset.add("zebra", Integer.MAX_VALUE));
+        assertEquals(4, multiset.count("zebra"));
+    }
+
+    @Test
+    void testOrderStatisticsRespectMultiplicity() {
+        var multiset = new MultisetBinaryTree<Integer>();
+        multiset.add(10, 3);
+        multiset.add(20);
+        multiset.add(5, 2);
+        // 5 5 10 10 10 20
+        assertEquals(5, multiset.select(0));
+        assertEquals(5, multiset.select(1));
+        assertEquals(10, multiset.select(2));
+        assertEquals(10, multiset.select(4));
+        assertEquals(20, multiset.select(5));
+        assertThrows(IndexOutOfBoundsException.class, () -> multiset.select(6));
+        assertEquals(0, multiset.rank(5));
+        assertEquals(2, multiset.rank(10));
+        assertEquals(5, multiset.rank(11));
+        assertEquals(6, multiset.rank(21));
+    }
+
+    @Test
+    void testRandomAgainstTreeMapOfCounts() {
+        var multiset = new MultisetBinaryTree<Integer>();
+        var expected = new TreeMap<Integer, Integer>();
+        var random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            int value = random.nextInt(1_000);
+            if (random.nextInt(3) == 0) {
+                multiset.remove(value);
+                expected.computeIfPresent(value, (k, count) -> count == 1 ? null : count - 1);
+            } else {
+                multiset.add(value);
+                expected.merge(value, 1, Integer::sum);
+            }
+        }
+        long total = expected.values().stream().mapToLong(Integer::longValue).sum();
+        assertEquals(total, multiset.totalCount());
+        assertEquals(expected.size(), multiset.distinctSize());
+        long rank = 0;
+        for (var entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), multiset.count(entry.getKey()));
+            assertEquals(rank, multiset.rank(entry.getKey()));
+            assertEquals(entry.getKey(), multiset.select(rank));
+            rank += entry.getValue();
+        }
+    }
+
+    private static final class Counter {
+        int count;
+    }
+
+    @Test
+    void testVersusWrapperCounters() {
+        int words = 5_000_000;
+        var random = new Random(42);
+        String[] vocabulary = new String[10_000];
+        for (int i = 0; i < vocabulary.length; i++) {
+            vocabulary[i] = "word" + i;
+        }
+        String[] text = new String[words];
+        for (int i = 0; i < words; i++) {
+            text[i] = vocabulary[(int) (vocabulary.length * Math.pow(random.nextDouble(), 3))];
+        }
+        for (int run = 0; run < 3; run++) {
+            long time = System.nanoTime();
+            var multiset = new MultisetBinaryTree<String>();
+            for (String word : text) {
+                multiset.add(word);
+            }
+            long multisetTime = System.nanoTime() - time;
+
+            time = System.nanoTime();
+            var wrapped = new AVLBinaryTreeMap<String, Counter>();
+            for (String word : text) {
+                wrapped.computeIfAbsent(word, w -> new Counter()).count++;
+            }
+            long wrappedTime = System.nanoTime() - time;
+            System.out.printf("count %,d words: multiset time = %dms, " +
+                            "wrapper counters time = %dms%n", words,
+                    multisetTime / 1_000_000, wrappedTime / 1_000_000);
+            assertEquals(wrapped.get("word0").count, multiset.count("word0"));
+            assertEquals(words, multiset.size());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.foreign.MemoryLayout;
+import java.lang.foreign.MemoryLayout.PathElement;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.StructLayout;
+import java.lang.foreign.ValueLayout;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapSimpleListTest extends SimpleListTest {
+    private final List<OffHeapSimpleList<?>> opened = new ArrayList<>();
+
+    @Override
+    protected SimpleList<String> create() {
+        var list = new OffHeapSimpleList<>(FixedWidthCodec.strings(16), 256);
+        opened.add(list);
+        return list;
+    }
+
+    @AfterEach
+    void closeAll() throws IOException {
+        for (var list : opened) {
+            list.close();
+        }
+    }
+
+    record Point(int x, int y) {
+    }
+
+    /**
+     * A user-defined codec for a struct of two ints, with the offsets of
+     * the fields taken from its StructLayout.
+     */
+    private static final FixedWidthCodec<Point> POINTS = new FixedWidthCodec<>() {
+        private static final StructLayout LAYOUT = MemoryLayout.structLayout(
+                ValueLayout.JAVA_INT.withName("x"), ValueLayout.JAVA_INT.withName("y"));
+        private static final long X = LAYOUT.byteOffset(PathElement.groupElement("x"));
+        private static final long Y = LAYOUT.byteOffset(PathElement.groupElement("y"));
+
+        @Override
+        public long byteSize() {
+            return LAYOUT.byteSize();
+        }
+
+        @Override
+        public void write(MemorySegment segment, long offset, Point value) {
+            segment.set(ValueLayout.JAVA_INT, offset + X, value.x());
+            segment.set(ValueLayout.JAVA_INT, offset + Y, value.y());
+        }
+
+        @Override
+        public Point read(MemorySegment segment, long offset) {
+            return new Point(segment.get(ValueLayout.JAVA_INT, offset + X),
+                    segment.get(ValueLayout.JAVA_INT, offset + Y));
+        }
+    };
+
+    @Test
+    void testStructCodecAcrossChunks() throws IOException {
+        try (var points = new OffHeapSimpleList<>(POINTS, 16)) {
+            for (int i = 0; i < 100; i++) {
+                points.add(new Point(i, -i));
+            }
+            assertEquals(7 * 16 * 8, points.memoryBytes());
+            points.add(5, new Point(1000, 1000));
+            points.removeRange(10, 50);
+            points.set(0, new Point(42, 42));
+            assertEquals(61, points.size());
+            assertEquals(new Point(42, 42), points.get(0));
+            assertEquals(new Point(1000, 1000), points.get(5));
+            assertEquals(new Point(5, -5), points.get(6));
+            assertEquals(new Point(8, -8), points.get(9));
+            assertEquals(new Point(49, -49), points.get(10));
+            assertEquals(new Point(99, -99), points.get(60));
+        }
+    }
+
+    @Test
+    void testCloseFreesMemory() throws IOException {
+        var longs = new OffHeapSimpleList<>(FixedWidthCodec.longs());
+        longs.add(42L);
+        longs.close();
+        longs.close();
+        assertThrows(IllegalStateException.class, () -> longs.get(0));
+        assertThrows(IllegalStateException.class, () -> longs.add(43L));
+        assertThrows(NullPointerException.class, () -> simpleList.add(null));
+        assertThrows(IllegalArgumentException.class, () -> simpleList.add("much too long for sixteen"));
+    }
+
+    @Test
+    void testMappedFileSurvivesReopen(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("longs.dat");
+        try (var longs = OffHeapSimpleList.mapped(file, FixedWidthCodec.longs(), 1024)) {
+            for (long i = 0; i < 5_000; i++) {
+                longs.add(i * i);
+            }
+            longs.removeAt(0);
+        }
+        assertEquals(4_999 * Long.BYTES, Files.size(file));
+        try (var longs = OffHeapSimpleList.mapped(file, FixedWidthCodec.longs(), 1024)) {
+            assertEquals(4_999, longs.size());
+            assertEquals(1L, longs.get(0));
+            assertEquals(4_999L * 4_999, longs.get(4_998));
+            longs.add(-1L);
+        }
+        assertEquals(5_000 * Long.BYTES, Files.size(file));
+    }
+
+    @Test
+    void testGcPausesVersusSimpleArrayList() throws IOException {
+        int size = 10_000_000;
+        var onHeap = new SimpleArrayList<Long>(size);
+        for (long i = 0; i < size; i++) {
+            onHeap.add(i);
+        }
+        System.out.printf("SimpleArrayList<Long> of %,d: gc time = %dms%n",
+                size, fullGcTime());
+        onHeap = null;
+        fullGcTime();
+        try (var offHeap = new OffHeapSimpleList<>(FixedWidthCodec.longs())) {
+            for (long i = 0; i < size; i++) {
+                offHeap.add(i);
+            }
+            System.out.printf("OffHeapSimpleList<Long> of %,d: gc time = %dms, " +
+                            "off-heap = %dMB%n", size, fullGcTime(),
+                    offHeap.memoryBytes() >> 20);
+            assertEquals(size - 1, offHeap.get(size - 1));
+        }
+    }
+
+    /**
+     * Runs a few full collections and returns the time the collectors report
+     * having spent in them.
+     */
+    private static long fullGcTime() {
+        long before = totalCollectionTime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return totalCollectionTime() - before;
+    }
+
+    private static long totalCollectionTime() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+}
@@ -0,0 +1,264 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistentVectorTest extends SimpleListTest {
+    @Override
+    protected SimpleList<String> create() {
+        return new PersistentVector<>();
+    }
+
+    @Test
+    void testRandomEditsAgainstArrayList() {
+        var vector = new PersistentVector<Integer>();
+        var expected = new ArrayList<Integer>();
+        var snapshots = new ArrayList<PersistentVector<Integer>>();
+        var snapshotContents = new ArrayList<List<Integer>>();
+        var random = new Random(42);
+        for (int i = 0; i < 50_000; i++) {
+            int op = random.nextInt(100);
+            if (op < 60) {
+                vector.add(i);
+                expected.add(i);
+            } else if (op < 65) {
+                vector.addFirst(i);
+                expected.add(0, i);
+            } else if (op < 70 && !expected.isEmpty()) {
+                assertEquals(expected.remove(0), vector.removeFirst());
+            } else if (op < 80 && !expected.isEmpty()) {
+                assertEquals(expected.remove(expected.size() - 1), vector.removeLast());
+            } else if (op < 82 && !expected.isEmpty()) {
+                int index = random.nextInt(expected.size());
+                vector.removeAt(index);
+                expected.remove(index);
+            } else if (op < 84) {
+                int index = random.nextInt(expected.size() + 1);
+                vector.add(index, i);
+                expected.add(index, i);
+            } else if (op < 94 && !expected.isEmpty()) {
+                int index = random.nextInt(expected.size());
+                vector.set(index, -i);
+                expected.set(index, -i);
+            } else if (op == 99) {
+                snapshots.add(vector.snapshot());
+                snapshotContents.add(new ArrayList<>(expected));
+            }
+        }
+        assertContents(expected, vector);
+        for (int i = 0; i < snapshots.size(); i++) {
+            assertContents(snapshotContents.get(i), snapshots.get(i));
+        }
+    }
+
+    @Test
+    void testSnapshotsAreIndependent() {
+        var vector = new PersistentVector<Integer>();
+        for (int i = 0; i < 10_000; i++) {
+            vector.add(i);
+        }
+        var snapshot = vector.snapshot();
+        for (int i = 0; i < 10_000; i++) {
+            vector.set(i, -i);
+        }
+        vector.add(10_000);
+        snapshot.removeLast();
+        snapshot.removeFirst();
+        assertEquals(10_001, vector.size());
+        assertEquals(9_998, snapshot.size());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(-i, vector.get(i));
+        }
+        for (int i = 0; i < 9_998; i++) {
+            assertEquals(i + 1, snapshot.get(i));
+        }
+    }
+
+    @Test
+    void testSliceAndConcat() {
+        var vector = new PersistentVector<Integer>();
+        for (int i = 0; i < 5_000; i++) {
+            vector.add(i);
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> vector.slice(10, 5));
+        assertThrows(IndexOutOfBoundsException.class, () -> vector.slice(0, 5_001));
+        assertEquals(0, vector.slice(7, 7).size());
+        for (int[] range : new int[][]{{0, 5_000}, {1_000, 1_033}, {31, 1_057}, {4_999, 5_000}}) {
+            var slice = vector.slice(range[0], range[1]);
+            assertEquals(range[1] - range[0], slice.size());
+            for (int i = 0; i < slice.size(); i++) {
+                assertEquals(range[0] + i, slice.get(i));
+            }
+            slice.add(-1);
+            assertEquals(-1, slice.get(slice.size() - 1));
+        }
+        var slice = vector.slice(100, 1_100);
+        for (int i = 0; i < 2_000; i++) {
+            slice.add(-i);
+        }
+        assertEquals(3_000, slice.size());
+        assertEquals(1_099, slice.get(999));
+        assertEquals(-1_999, slice.get(2_999));
+        var concat = slice.concat(vector);
+        assertEquals(8_000, concat.size());
+        assertEquals(4_999, concat.get(7_999));
+        assertEquals(3_000, slice.size());
+        for (int i = 0; i < 5_000; i++) {
+            assertEquals(i, vector.get(i));
+        }
+    }
+
+    @Test
+    void testQueueEditsAgainstArrayList() {
+        var vector = new PersistentVector<Integer>();
+        var expected = new ArrayList<Integer>();
+        var snapshots = new ArrayList<PersistentVector<Integer>>();
+        var snapshotContents = new ArrayList<List<Integer>>();
+        var random = new Random(42);
+        for (int i = 0; i < 300_000; i++) {
+            // the queue grows to a few thousand, then drains, then grows again
+            int target = (i / 30_000) % 2 == 0 ? 3_000 : 50;
+            int op = random.nextInt(100);
+            if (op < 45 || expected.isEmpty()) {
+                vector.add(i);
+                expected.add(i);
+            } else if (op < 90 || expected.size() > target) {
+                assertEquals(expected.remove(0), vector.removeFirst());
+            } else if (op < 93) {
+                vector.addFirst(i);
+                expected.add(0, i);
+            } else if (op < 95) {
+                int to = random.nextInt(expected.size() + 1);
+                int from = random.nextInt(to + 1);
+                vector.removeRange(from, to);
+                expected.subList(from, to).clear();
+            } else if (op < 97) {
+                int index = random.nextInt(expected.size());
+                vector.set(index, -i);
+                expected.set(index, -i);
+            } else if (op < 98) {
+                int to = random.nextInt(expected.size() + 1);
+                int from = random.nextInt(to + 1);
+                var slice = vector.slice(from, to);
+                assertEquals(to - from, slice.size());
+                if (from < to) {
+                    // trimming the slice must not touch the nodes it shares
+                    assertEquals(expected.get(from), slice.removeFirst());
+                }
+            } else if (op == 99 && snapshots.size() < 50) {
+                snapshots.add(vector.snapshot());
+                snapshotContents.add(new ArrayList<>(expected));
+            }
+        }
+        assertContents(expected, vector);
+        for (int i = 0; i < snapshots.size(); i++) {
+            assertContents(snapshotContents.get(i), snapshots.get(i));
+        }
+    }
+
+    @Test
+    void testQueueDoesNotRetainRemovedElements() {
+        var vector = new PersistentVector<Object>();
+        for (int i = 0; i < 100; i++) {
+            vector.add(new Object());
+        }
+        // the snapshot keeps its elements, and the nodes it shares with the vector
+        var snapshot = vector.snapshot();
+        var first = snapshot.get(0);
+        var removed = new ArrayList<WeakReference<Object>>();
+        for (int i = 0; i < 200_000; i++) {
+            vector.add(new Object());
+            Object element = vector.removeFirst();
+            if (i >= 100 && i % 1_000 == 0) {
+                removed.add(new WeakReference<>(element));
+            }
+        }
+        for (int i = 0; i < 10 && removed.stream().anyMatch(ref -> ref.get() != null); i++) {
+            System.gc();
+        }
+        for (var ref : removed) {
+            assertNull(ref.get());
+        }
+        // and the vector itself must still be reachable during the gc
+        assertEquals(100, vector.size());
+        assertEquals(100, snapshot.size());
+        assertSame(first, snapshot.get(0));
+    }
+
+    private static void assertContents(List<Integer> expected, SimpleList<Integer> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), actual.get(i));
+        }
+        int i = 0;
+        for (Integer element : actual) {
+            assertEquals(expected.get(i++), element);
+        }
+    }
+
+    @Test
+    void testSnapshotMemoryAndThroughput() {
+        int size = 1_000_000;
+        int snapshots = 100;
+        var arrayList = new SimpleArrayList<Integer>();
+        var vector = new PersistentVector<Integer>();
+        Integer element = 42;
+        long time = System.nanoTime();
+        for (int i = 0; i < size; i++) arrayList.add(element);
+        System.out.printf("SimpleArrayList add: time = %dms%n",
+                (System.nanoTime() - time) / 1_000_000);
+        time = System.nanoTime();
+        for (int i = 0; i < size; i++) vector.add(element);
+        System.out.printf("PersistentVector add: time = %dms%n",
+                (System.nanoTime() - time) / 1_000_000);
+
+        long sum = 0;
+        time = System.nanoTime();
+        for (int i = 0; i < size; i++) sum += arrayList.get(i);
+        System.out.printf("SimpleArrayList get: time = %dms%n",
+                (System.nanoTime() - time) / 1_000_000);
+        time = System.nanoTime();
+        for (int i = 0; i < size; i++) sum -= vector.get(i);
+        System.out.printf("PersistentVector get: time = %dms%n",
+                (System.nanoTime() - time) / 1_000_000);
+        assertEquals(0, sum);
+
+        var retained = new ArrayList<SimpleList<Integer>>();
+        long before = usedMemory();
+        time = System.nanoTime();
+        for (int i = 0; i < snapshots; i++) {
+            var copy = new SimpleArrayList<Integer>(size);
+            copy.addAll(arrayList);
+            retained.add(copy);
+            arrayList.removeAt(i);
+            arrayList.add(i);
+        }
+        time = System.nanoTime() - time;
+        System.out.printf("SimpleArrayList %d copies: time = %dms, memory = %dMB%n",
+                snapshots, time / 1_000_000, (usedMemory() - before) >> 20);
+        retained.clear();
+        before = usedMemory();
+        time = System.nanoTime();
+        for (int i = 0; i < snapshots; i++) {
+            retained.add(vector.snapshot());
+            vector.set(i, i);
+            vector.add(i);
+        }
+        time = System.nanoTime() - time;
+        System.out.printf("PersistentVector %d snapshots: time = %dms, memory = %dMB%n",
+                snapshots, time / 1_000_000, (usedMemory() - before) >> 20);
+        assertEquals(size, retained.get(0).size());
+    }
+
+    private static long usedMemory() {
+        for (int i = 0; i < 3; i++) System.gc();
+        Runtime rt = Runtime.getRuntime();
+        return rt.totalMemory() - rt.freeMemory();
+    }
+}
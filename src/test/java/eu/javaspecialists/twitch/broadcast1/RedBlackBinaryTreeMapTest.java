@@ -0,0 +1,13 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+class RedBlackBinaryTreeMapTest extends BinaryTreeMapTest {
+    @Override
+    protected <K extends Comparable<K>, V> BinaryTreeMap<K, V> create() {
+        return new RedBlackBinaryTreeMap<>();
+    }
+
+    @Override
+    protected int expectedMaxDepth(int elements) {
+        return (int) Math.ceil(Math.log(elements + 1) / Math.log(2) * 2);
+    }
+}
@@ -0,0 +1,248 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShardedBinaryTreeTest {
+    private static List<Integer> toList(BinaryTree<Integer> tree) {
+        var list = new ArrayList<Integer>();
+        tree.forEach(list::add);
+        return list;
+    }
+
+    @Test
+    void testSingleThreadedAgainstTreeSet() {
+        var random = new Random(42);
+        var tree = new ShardedBinaryTree<Integer>(8);
+        var expected = new TreeSet<Integer>();
+        assertEquals(List.of(), toList(tree));
+        for (int i = 0; i < 100_000; i++) {
+            // the keys drift upwards, so that the shards become skewed
+            int value = i + random.nextInt(20_000);
+            if (random.nextInt(4) == 0) {
+                tree.remove(value);
+                expected.remove(value);
+            } else {
+                tree.add(value);
+                expected.add(value);
+            }
+            assertEquals(expected.contains(value), tree.contains(value));
+        }
+        assertEquals(expected.size(), tree.size());
+        assertEquals(8, tree.shards());
+        assertEquals(List.copyOf(expected), toList(tree));
+        int[] sizes = tree.shardSizes();
+        int fairShare = expected.size() / 8;
+        for (int size : sizes) {
+            assertTrue(size <= 2 * fairShare + 1, () -> "skewed: " + Arrays.toString(sizes));
+        }
+        assertTrue(tree.maxDepth() <= 2 * Math.log(2 * fairShare + 1) / Math.log(2));
+    }
+
+    @Test
+    void testSplitsOnlyReplaceTheAffectedShards() {
+        var tree = new ShardedBinaryTree<Integer>(8);
+        for (int i = 0; i <= ShardedBinaryTree.MIN_REBALANCE_SIZE; i++) {
+            tree.add(i);
+        }
+        assertEquals(8, tree.shards());
+        int splits = 0;
+        for (int i = ShardedBinaryTree.MIN_REBALANCE_SIZE + 1; i < 100_000; i++) {
+            int[] before = tree.shardSizes();
+            tree.add(i);
+            int[] after = tree.shardSizes();
+            assertEquals(8, after.length);
+            // all the shards but the last keep their size, unless we split it
+            // and merged a pair, which removes three old sizes at most
+            var unchanged = new ArrayList<Integer>();
+            Arrays.stream(before).forEach(unchanged::add);
+            int replaced = 0;
+            for (int size : after) {
+                if (!unchanged.remove((Integer) size)) {
+                    replaced++;
+                }
+            }
+            if (replaced > 1) {
+                splits++;
+                assertTrue(unchanged.size() <= 3, () -> Arrays.toString(before) +
+                        " -> " + Arrays.toString(after));
+            }
+        }
+        assertTrue(splits > 0);
+        assertEquals(IntStream.range(0, 100_000).boxed().toList(), toList(tree));
+    }
+
+    @Test
+    void testBulkOperations() {
+        var tree = new ShardedBinaryTree<Integer>(4);
+        tree.addAll(IntStream.range(0, 20_000).boxed().toList());
+        assertEquals(20_000, tree.size());
+        assertEquals(4, tree.shards());
+        tree.addAll(IntStream.range(10_000, 30_000).boxed().toList());
+        assertEquals(30_000, tree.size());
+        tree.removeAll(IntStream.range(0, 30_000).filter(i -> i % 2 == 0).boxed().toList());
+        assertEquals(15_000, tree.size());
+        assertEquals(IntStream.range(0, 30_000).filter(i -> i % 2 == 1).boxed().toList(),
+                toList(tree));
+        assertThrows(NullPointerException.class, () -> tree.addAll(Arrays.asList(1, null)));
+    }
+
+    @Test
+    void testConcurrentWritersLoseNothing() throws InterruptedException {
+        var tree = new ShardedBinaryTree<Integer>(16);
+        int threads = 8;
+        int perThread = 50_000;
+        var running = new AtomicBoolean(true);
+        var sorted = new AtomicBoolean(true);
+        var reader = Thread.ofPlatform().start(() -> {
+            while (running.get()) {
+                // weakly consistent, but always sorted
+                Integer previous = null;
+                for (Integer value : tree) {
+                    if (previous != null && previous >= value) {
+                        sorted.set(false);
+                    }
+                    previous = value;
+                }
+            }
+        });
+        var writers = new ArrayList<Thread>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            writers.add(Thread.ofPlatform().start(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    int value = i * threads + offset;
+                    tree.add(value);
+                    if (i % 3 == 0) {
+                        tree.remove(value);
+                    }
+                }
+            }));
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        running.set(false);
+        reader.join();
+        assertTrue(sorted.get());
+        var expected = IntStream.range(0, threads * perThread)
+                .filter(value -> (value / threads) % 3 != 0).boxed().toList();
+        assertEquals(expected.size(), tree.size());
+        assertEquals(expected, toList(tree));
+    }
+
+    private static long runThreads(int threads, int totalOperations, BinaryTree<Integer> tree)
+            throws InterruptedException {
+        int perThread = totalOperations / threads;
+        var start = new CountDownLatch(1);
+        var workers = new ArrayList<Thread>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                var random = ThreadLocalRandom.current();
+                for (int i = 0; i < perThread; i++) {
+                    int value = random.nextInt(1_000_000);
+                    if (random.nextBoolean()) {
+                        tree.add(value);
+                    } else {
+                        tree.remove(value);
+                    }
+                }
+            }));
+        }
+        long time = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        return System.nanoTime() - time;
+    }
+
+    /**
+     * A RedBlackBinaryTree behind a single lock, which is what we had.
+     */
+    private static final class LockedTree implements BinaryTree<Integer> {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final RedBlackBinaryTree<Integer> tree = new RedBlackBinaryTree<>();
+
+        @Override
+        public void add(Integer value) {
+            lock.lock();
+            try {
+                tree.add(value);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public boolean contains(Integer value) {
+            lock.lock();
+            try {
+                return tree.contains(value);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void remove(Integer value) {
+            lock.lock();
+            try {
+                tree.remove(value);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public int maxDepth() {
+            return tree.maxDepth();
+        }
+
+        @Override
+        public Footprint footprint() {
+            // lock and tree, ignoring the internals of the lock
+            return tree.footprint().plus(new Footprint(ObjectLayout.objectSize(2, 0), 0, 0, 0));
+        }
+
+        @Override
+        public Iterator<Integer> iterator() {
+            return tree.iterator();
+        }
+    }
+
+    @Test
+    void testThreadScaling() throws InterruptedException {
+        int totalOperations = 1_000_000;
+        System.out.println("availableProcessors = " + Runtime.getRuntime().availableProcessors());
+        for (int threads = 1; threads <= 64; threads *= 2) {
+            var sharded = new ShardedBinaryTree<Integer>(64);
+            sharded.addAll(IntStream.range(0, 500_000).map(i -> i * 2).boxed().toList());
+            long shardedTime = runThreads(threads, totalOperations, sharded);
+            var locked = new LockedTree();
+            IntStream.range(0, 500_000).forEach(i -> locked.add(i * 2));
+            long lockedTime = runThreads(threads, totalOperations, locked);
+            System.out.printf("threads = %d: ShardedBinaryTree time = %dms, " +
+                            "locked RedBlackBinaryTree time = %dms%n", threads,
+                    shardedTime / 1_000_000, lockedTime / 1_000_000);
+        }
+    }
+}
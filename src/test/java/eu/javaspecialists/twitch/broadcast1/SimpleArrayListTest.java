@@ -1,8 +1,173 @@
 package eu.javaspecialists.twitch.broadcast1;
 
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.Spliterator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
 class SimpleArrayListTest extends SimpleListTest {
     @Override
     protected SimpleList<String> create() {
         return new SimpleArrayList<>();
     }
-}
\ No newline at end of file
+
+    @Test
+    void testInitialCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new SimpleArrayList<>(-1));
+        var list = new SimpleArrayList<String>(0);
+        assertEquals(0, list.capacity());
+        list.add("one");
+        list.add("two");
+        assertEquals(2, list.size());
+        assertEquals("two", list.get(1));
+        assertEquals(1000, new SimpleArrayList<String>(1000).capacity());
+    }
+
+    @Test
+    void testEnsureCapacityAndTrimToSize() {
+        var list = new SimpleArrayList<String>();
+        list.ensureCapacity(5);
+        assertEquals(10, list.capacity());
+        list.ensureCapacity(1_000);
+        assertEquals(1_000, list.capacity());
+        for (int i = 0; i < 100; i++) {
+            list.add("test" + i);
+        }
+        assertEquals(1_000, list.capacity());
+        list.trimToSize();
+        assertEquals(100, list.capacity());
+        assertEquals("test99", list.get(99));
+        while (list.size() > 0) list.removeAt(0);
+        list.trimToSize();
+        assertEquals(0, list.capacity());
+        list.add("again");
+        assertEquals("again", list.get(0));
+    }
+
+    @Test
+    void testGrowthPolicies() {
+        assertEquals(20, GrowthPolicy.doubling().nextCapacity(10));
+        assertEquals(15, GrowthPolicy.oneAndAHalf().nextCapacity(10));
+        assertEquals(110, GrowthPolicy.fixedIncrement(100).nextCapacity(10));
+        assertEquals(1024, GrowthPolicy.chunked(1024).nextCapacity(10));
+        assertEquals(2048, GrowthPolicy.chunked(1024).nextCapacity(1024));
+        assertThrows(IllegalArgumentException.class, () -> GrowthPolicy.fixedIncrement(0));
+        assertThrows(IllegalArgumentException.class, () -> GrowthPolicy.chunked(0));
+
+        var list = new SimpleArrayList<String>(10, GrowthPolicy.oneAndAHalf());
+        for (int i = 0; i < 11; i++) list.add("x");
+        assertEquals(15, list.capacity());
+        var fixed = new SimpleArrayList<String>(0, GrowthPolicy.fixedIncrement(3));
+        for (int i = 0; i < 4; i++) fixed.add("x");
+        assertEquals(6, fixed.capacity());
+    }
+
+    @Test
+    void testGrowthOverflow() {
+        // doubling Integer.MAX_VALUE / 2 + 1 would overflow an int
+        assertEquals(1L << 31, GrowthPolicy.doubling().nextCapacity(1 << 30));
+        var list = new SimpleArrayList<String>(0);
+        assertThrows(OutOfMemoryError.class, () -> list.ensureCapacity(Integer.MAX_VALUE));
+        assertEquals(0, list.capacity());
+    }
+
+    @Test
+    void testFillThroughputAndRetainedCapacity() {
+        int elements = 3_000_000;
+        var policies = Map.of(
+                "doubling", GrowthPolicy.doubling(),
+                "oneAndAHalf", GrowthPolicy.oneAndAHalf(),
+                "chunked(64k)", GrowthPolicy.chunked(65536),
+                "fixedIncrement(1M)", GrowthPolicy.fixedIncrement(1 << 20));
+        policies.forEach((name, policy) -> {
+            long time = System.nanoTime();
+            var list = new SimpleArrayList<String>(10, policy);
+            for (int i = 0; i < elements; i++) {
+                list.add("x");
+            }
+            time = System.nanoTime() - time;
+            System.out.printf("%s: time = %dms, capacity = %d, wasted = %d%%%n",
+                    name, (time / 1_000_000), list.capacity(),
+                    100L * (list.capacity() - list.size()) / list.capacity());
+        });
+        var presized = new SimpleArrayList<String>(elements);
+        long time = System.nanoTime();
+        for (int i = 0; i < elements; i++) {
+            presized.add("x");
+        }
+        time = System.nanoTime() - time;
+        System.out.printf("presized: time = %dms, capacity = %d%n",
+                (time / 1_000_000), presized.capacity());
+        assertEquals(elements, presized.capacity());
+    }
+
+    @Test
+    void testSpliteratorSplitsByIndex() {
+        var list = new SimpleArrayList<Integer>();
+        for (int i = 0; i < 1_000; i++) {
+            list.add(i);
+        }
+        var spliterator = list.spliterator();
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SUBSIZED));
+        var prefix = spliterator.trySplit();
+        assertEquals(500, prefix.estimateSize());
+        assertEquals(500, spliterator.estimateSize());
+        int[] first = new int[1];
+        assertTrue(spliterator.tryAdvance(i -> first[0] = i));
+        assertEquals(500, first[0]);
+    }
+
+    @Test
+    void testParallelSumSpeedup() {
+        int size = 5_000_000;
+        var list = new SimpleArrayList<Integer>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(i);
+        }
+        long expected = (long) size * (size - 1) / 2;
+        for (int run = 0; run < 3; run++) {
+            long time = System.nanoTime();
+            assertEquals(expected, list.stream().mapToLong(Integer::longValue).sum());
+            long sequential = System.nanoTime() - time;
+            time = System.nanoTime();
+            assertEquals(expected, list.parallelStream().mapToLong(Integer::longValue).sum());
+            long parallel = System.nanoTime() - time;
+            time = System.nanoTime();
+            assertEquals(expected, list.parallelStream()
+                    .reduce(0L, (sum, i) -> sum + i, Long::sum));
+            long reduce = System.nanoTime() - time;
+            System.out.printf("sum: sequential = %dms, parallel = %dms, " +
+                            "parallel reduce = %dms, cores = %d%n",
+                    sequential / 1_000_000, parallel / 1_000_000, reduce / 1_000_000,
+                    Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    @Test
+    void testSequentialVersusParallelSort() {
+        var random = new Random(42);
+        for (int size : new int[]{1_000_000, 5_000_000}) {
+            Integer[] values = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = random.nextInt();
+            }
+            for (boolean parallel : new boolean[]{false, true}) {
+                var list = new SimpleArrayList<Integer>(size);
+                list.addAll(Arrays.asList(values));
+                long time = System.nanoTime();
+                list.sort(null, parallel);
+                time = System.nanoTime() - time;
+                System.out.printf("sort %,d %s: time = %dms%n", size,
+                        parallel ? "parallel" : "sequential", (time / 1_000_000));
+                for (int i = 1; i < size; i++) {
+                    assertTrue(list.get(i - 1) <= list.get(i));
+                }
+                assertEquals(values[0], list.get(list.binarySearch(values[0], null)));
+            }
+        }
+    }
+}
@@ -1,8 +1,73 @@
 package eu.javaspecialists.twitch.broadcast1;
 
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
 class SimpleLinkedListTest extends SimpleListTest {
     @Override
     protected SimpleList<String> create() {
         return new SimpleLinkedList<>();
     }
-}
\ No newline at end of file
+
+    @Test
+    void testNodeHandles() {
+        var list = new SimpleLinkedList<String>();
+        var one = list.linkLast("one");
+        var two = list.linkLast("two");
+        var three = list.linkLast("three");
+        list.moveToLast(one);
+        assertEquals(List.of("two", "three", "one"), list.stream().toList());
+        list.moveToLast(one);
+        list.moveToLast(three);
+        assertEquals(List.of("two", "one", "three"), list.stream().toList());
+        assertSame(two, list.firstNode());
+        assertEquals("one", list.removeNode(one));
+        assertEquals(List.of("two", "three"), list.stream().toList());
+        list.add("four");
+        assertEquals("four", list.get(2));
+        assertEquals(3, list.size());
+    }
+
+    @Test
+    void testSortWithThrowingComparator() {
+        var random = new Random(42);
+        var expected = new ArrayList<String>();
+        for (int i = 0; i < 1_000; i++) {
+            expected.add(Integer.toString(random.nextInt(1_000_000)));
+        }
+        // the first comparison, one in the first pass, and ones in later passes
+        for (int failAt : new int[]{1, 150, 5_000, 8_000}) {
+            var list = new SimpleLinkedList<String>();
+            expected.forEach(list::add);
+            int[] calls = {0};
+            Comparator<String> failing = (a, b) -> {
+                if (++calls[0] == failAt) throw new IllegalStateException("comparator failed");
+                return a.compareTo(b);
+            };
+            assertThrows(IllegalStateException.class, () -> list.sort(failing));
+            // still all the elements, in some order, linked both ways
+            assertEquals(expected.size(), list.size());
+            var elements = new ArrayList<>(list.stream().toList());
+            // get() walks back from the last node for the upper half
+            for (int i = 0; i < elements.size(); i++) {
+                assertEquals(elements.get(i), list.get(i));
+            }
+            elements.sort(null);
+            var sorted = new ArrayList<>(expected);
+            sorted.sort(null);
+            assertEquals(sorted, elements);
+            list.add("last");
+            assertEquals("last", list.get(list.size() - 1));
+            list.sort(null);
+            sorted.add("last");
+            sorted.sort(null);
+            assertEquals(sorted, list.stream().toList());
+        }
+    }
+}
@@ -3,8 +3,15 @@ package eu.javaspecialists.twitch.broadcast1;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+import java.util.Spliterator;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -59,6 +66,45 @@ abstract class SimpleListTest {
         assertEquals(0, simpleList.size());
     }
 
+    @Test
+    void testAddAtIndex() {
+        assertThrows(IndexOutOfBoundsException.class, () -> simpleList.add(1, "x"));
+        assertThrows(IndexOutOfBoundsException.class, () -> simpleList.add(-1, "x"));
+        simpleList.add(0, "c");
+        simpleList.add(0, "a");
+        simpleList.add(1, "b");
+        simpleList.add(3, "e");
+        simpleList.add(3, "d");
+        assertEquals(5, simpleList.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(String.valueOf((char) ('a' + i)), simpleList.get(i));
+        }
+        for (int i = 0; i < 100; i++) {
+            simpleList.add(simpleList.size() / 2, "middle" + i);
+        }
+        assertEquals(105, simpleList.size());
+        assertEquals("a", simpleList.get(0));
+        assertEquals("e", simpleList.get(104));
+    }
+
+    @Test
+    void testDequeOperations() {
+        assertThrows(NoSuchElementException.class, simpleList::removeFirst);
+        assertThrows(NoSuchElementException.class, simpleList::removeLast);
+        for (int i = 0; i < 50; i++) {
+            simpleList.addFirst("front" + i);
+            simpleList.add("back" + i);
+        }
+        assertEquals(100, simpleList.size());
+        assertEquals("front49", simpleList.get(0));
+        assertEquals("back49", simpleList.get(99));
+        for (int i = 49; i >= 0; i--) {
+            assertEquals("front" + i, simpleList.removeFirst());
+            assertEquals("back" + i, simpleList.removeLast());
+        }
+        assertEquals(0, simpleList.size());
+    }
+
     @Test
     void testIterator() {
         simpleList.add("Test string");
@@ -103,6 +149,199 @@ abstract class SimpleListTest {
         assertThrows(IllegalStateException.class, iterator2::remove);
     }
 
+    @Test
+    void testAddAll() {
+        simpleList.add("first");
+        simpleList.addAll(List.of("a", "b", "c"));
+        SimpleList<String> other = create();
+        other.add("d");
+        other.add("e");
+        simpleList.addAll(other);
+        simpleList.addAll(simpleList);
+        assertEquals(12, simpleList.size());
+        assertEquals("first", simpleList.get(0));
+        assertEquals("e", simpleList.get(5));
+        assertEquals("first", simpleList.get(6));
+        assertEquals("e", simpleList.get(11));
+    }
+
+    @Test
+    void testRemoveIf() {
+        for (int i = 0; i < 100; i++) {
+            simpleList.add("test" + i);
+        }
+        assertFalse(simpleList.removeIf(s -> s.startsWith("nope")));
+        assertTrue(simpleList.removeIf(s -> s.endsWith("1") || s.endsWith("3")));
+        assertEquals(80, simpleList.size());
+        for (String s : simpleList) {
+            assertFalse(s.endsWith("1") || s.endsWith("3"));
+        }
+        assertEquals("test0", simpleList.get(0));
+        assertEquals("test2", simpleList.get(1));
+        assertEquals("test99", simpleList.get(79));
+        assertTrue(simpleList.removeIf(s -> true));
+        assertEquals(0, simpleList.size());
+        simpleList.add("after");
+        assertEquals("after", simpleList.get(0));
+    }
+
+    @Test
+    void testRemoveIfFailFast() {
+        simpleList.add("one");
+        simpleList.add("two");
+        var iterator = simpleList.iterator();
+        simpleList.removeIf(s -> s.equals("one"));
+        assertThrows(ConcurrentModificationException.class, iterator::next);
+        assertThrows(ConcurrentModificationException.class,
+                () -> simpleList.removeIf(s -> {
+                    simpleList.add("three");
+                    return false;
+                }));
+    }
+
+    @Test
+    void testRemoveRange() {
+        for (int i = 0; i < 10; i++) {
+            simpleList.add("test" + i);
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> simpleList.removeRange(-1, 2));
+        assertThrows(IndexOutOfBoundsException.class, () -> simpleList.removeRange(3, 2));
+        assertThrows(IndexOutOfBoundsException.class, () -> simpleList.removeRange(5, 11));
+        simpleList.removeRange(4, 4);
+        assertEquals(10, simpleList.size());
+        simpleList.removeRange(2, 5);
+        assertEquals(7, simpleList.size());
+        assertEquals("test1", simpleList.get(1));
+        assertEquals("test5", simpleList.get(2));
+        simpleList.removeRange(5, 7);
+        assertEquals(5, simpleList.size());
+        assertEquals("test7", simpleList.get(4));
+        simpleList.removeRange(0, 5);
+        assertEquals(0, simpleList.size());
+    }
+
+    @Test
+    void testRetainAll() {
+        for (int i = 0; i < 10; i++) {
+            simpleList.add("test" + i);
+        }
+        assertTrue(simpleList.retainAll(Set.of("test3", "test7", "other")));
+        assertEquals(2, simpleList.size());
+        assertEquals("test3", simpleList.get(0));
+        assertEquals("test7", simpleList.get(1));
+        assertFalse(simpleList.retainAll(Set.of("test3", "test7")));
+    }
+
+    @Test
+    void testHalfRemovalRemoveIfVersusIteratorRemove() {
+        int size = 100_000;
+        for (int i = 0; i < size; i++) {
+            simpleList.add("str-" + i);
+        }
+        long time = System.nanoTime();
+        for (var it = simpleList.iterator(); it.hasNext(); ) {
+            if (it.next().hashCode() % 2 == 0) it.remove();
+        }
+        time = System.nanoTime() - time;
+        System.out.printf("iterator remove of %d: time = %dms%n", size, (time / 1_000_000));
+
+        SimpleList<String> list = create();
+        for (int i = 0; i < size; i++) {
+            list.add("str-" + i);
+        }
+        time = System.nanoTime();
+        list.removeIf(s -> s.hashCode() % 2 == 0);
+        time = System.nanoTime() - time;
+        System.out.printf("removeIf of %d: time = %dms%n", size, (time / 1_000_000));
+        assertEquals(simpleList.size(), list.size());
+        for (int i = 0; i < list.size(); i++) {
+            assertEquals(simpleList.get(i), list.get(i));
+        }
+    }
+
+    @Test
+    void testStreams() {
+        for (int i = 0; i < 10_000; i++) {
+            simpleList.add("test" + i);
+        }
+        assertEquals(10_000, simpleList.stream().count());
+        assertEquals("test9999", simpleList.stream().skip(9_999).findFirst().orElseThrow());
+        List<String> sequential = simpleList.stream().map(String::toUpperCase).toList();
+        List<String> parallel = simpleList.parallelStream().map(String::toUpperCase).toList();
+        assertEquals(sequential, parallel);
+        assertEquals("TEST0", parallel.get(0));
+        assertEquals(simpleList.stream().mapToInt(String::length).sum(),
+                simpleList.parallelStream().mapToInt(String::length).sum());
+        assertTrue(simpleList.spliterator().hasCharacteristics(Spliterator.SIZED));
+        assertEquals(10_000, simpleList.spliterator().getExactSizeIfKnown());
+    }
+
+    @Test
+    void testSpliteratorFailFast() {
+        simpleList.add("one");
+        simpleList.add("two");
+        simpleList.add("three");
+        var spliterator = simpleList.spliterator();
+        simpleList.add("four");
+        assertThrows(ConcurrentModificationException.class,
+                () -> spliterator.forEachRemaining(s -> simpleList.removeAt(0)));
+    }
+
+    @Test
+    void testSort() {
+        simpleList.sort(null);
+        assertEquals(0, simpleList.size());
+        for (String s : List.of("pear", "fig", "apple", "kiwi", "banana", "date")) {
+            simpleList.add(s);
+        }
+        simpleList.sort(null);
+        assertEquals(List.of("apple", "banana", "date", "fig", "kiwi", "pear"),
+                simpleList.stream().toList());
+        // stable: words of equal length stay in alphabetical order
+        simpleList.sort(Comparator.comparingInt(String::length));
+        assertEquals(List.of("fig", "date", "kiwi", "pear", "apple", "banana"),
+                simpleList.stream().toList());
+        simpleList.sort(Comparator.reverseOrder());
+        assertEquals(List.of("pear", "kiwi", "fig", "date", "banana", "apple"),
+                simpleList.stream().toList());
+    }
+
+    @Test
+    void testSortLarge() {
+        var random = new Random(42);
+        var expected = new ArrayList<String>();
+        for (int i = 0; i < 100_000; i++) {
+            String s = Integer.toString(random.nextInt(1_000_000));
+            simpleList.add(s);
+            expected.add(s);
+        }
+        simpleList.sort(null);
+        expected.sort(null);
+        assertEquals(expected, simpleList.stream().toList());
+        var iterator = simpleList.iterator();
+        iterator.next();
+        iterator.remove();
+        simpleList.add("0");
+        assertEquals("0", simpleList.get(simpleList.size() - 1));
+    }
+
+    @Test
+    void testBinarySearch() {
+        assertEquals(-1, simpleList.binarySearch("any", null));
+        for (String s : List.of("b", "d", "f", "h")) {
+            simpleList.add(s);
+        }
+        assertEquals(0, simpleList.binarySearch("b", null));
+        assertEquals(3, simpleList.binarySearch("h", null));
+        assertEquals(2, simpleList.binarySearch("f", null));
+        assertEquals(-1, simpleList.binarySearch("a", null));
+        assertEquals(-3, simpleList.binarySearch("e", null));
+        assertEquals(-5, simpleList.binarySearch("z", null));
+        simpleList.sort(Comparator.reverseOrder());
+        assertEquals(3, simpleList.binarySearch("b", Comparator.reverseOrder()));
+        assertEquals(-2, simpleList.binarySearch("g", Comparator.reverseOrder()));
+    }
+
     @Test
     void testFifoQueue() {
         long time = System.nanoTime();
@@ -0,0 +1,12 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+class SortedArrayBinaryTreeTest extends BinaryTreeTest {
+    protected BinaryTree<String> create() {
+        return new SortedArrayBinaryTree<>();
+    }
+
+    @Override
+    protected int expectedMaxDepth(int elements) {
+        return (int) Math.ceil(Math.log(elements + 1) / Math.log(2));
+    }
+}
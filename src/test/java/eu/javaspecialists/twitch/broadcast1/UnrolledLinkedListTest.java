@@ -0,0 +1,114 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UnrolledLinkedListTest extends SimpleListTest {
+    @Override
+    protected SimpleList<String> create() {
+        return new UnrolledLinkedList<>();
+    }
+
+    @Test
+    void testRandomEditsAgainstArrayList() {
+        for (boolean indexed : new boolean[]{false, true}) {
+            var list = new UnrolledLinkedList<Integer>(8, indexed);
+            var expected = new ArrayList<Integer>();
+            var random = new Random(42);
+            for (int i = 0; i < 5_000; i++) {
+                int op = random.nextInt(10);
+                if (op < 4) {
+                    list.add(i);
+                    expected.add(i);
+                } else if (op < 7) {
+                    int index = random.nextInt(expected.size() + 1);
+                    list.add(index, i);
+                    expected.add(index, i);
+                } else if (!expected.isEmpty()) {
+                    int index = random.nextInt(expected.size());
+                    list.removeAt(index);
+                    expected.remove(index);
+                }
+                if (i % 1000 == 0) {
+                    assertContents(expected, list);
+                }
+            }
+            assertContents(expected, list);
+            Iterator<Integer> it = list.iterator();
+            while (it.hasNext()) {
+                if (it.next() % 3 != 0) it.remove();
+            }
+            expected.removeIf(i -> i % 3 != 0);
+            assertContents(expected, list);
+        }
+    }
+
+    private static void assertContents(List<Integer> expected, SimpleList<Integer> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), actual.get(i));
+        }
+        int i = 0;
+        for (Integer element : actual) {
+            assertEquals(expected.get(i++), element);
+        }
+    }
+
+    @Test
+    void testAgainstArrayListAndLinkedList() {
+        int size = 50_000;
+        List<Supplier<SimpleList<Integer>>> suppliers = List.of(
+                SimpleArrayList::new, SimpleLinkedList::new,
+                UnrolledLinkedList::new, () -> new UnrolledLinkedList<>(64, true));
+        for (var supplier : suppliers) {
+            SimpleList<Integer> list = supplier.get();
+            for (int i = 0; i < size; i++) {
+                list.add(i);
+            }
+            String name = list.getClass().getSimpleName();
+
+            long time = System.nanoTime();
+            long sum = 0;
+            for (int i = 0; i < 5_000; i++) {
+                sum += list.get((int) ((i * 0x9E3779B9L) & 0x7fffffffL) % size);
+            }
+            time = System.nanoTime() - time;
+            System.out.printf("%s indexed get: time = %dms (%d)%n",
+                    name, (time / 1_000_000), sum);
+
+            time = System.nanoTime();
+            sum = 0;
+            for (int j = 0; j < 10; j++) {
+                for (Integer element : list) {
+                    sum += element;
+                }
+            }
+            time = System.nanoTime() - time;
+            System.out.printf("%s iteration: time = %dms (%d)%n",
+                    name, (time / 1_000_000), sum);
+
+            time = System.nanoTime();
+            for (int i = 0; i < 5_000; i++) {
+                list.removeAt(list.size() / 2);
+            }
+            time = System.nanoTime() - time;
+            System.out.printf("%s middle remove: time = %dms%n",
+                    name, (time / 1_000_000));
+
+            time = System.nanoTime();
+            for (int i = 0; i < 5_000; i++) {
+                list.add(list.size() / 2, i);
+            }
+            time = System.nanoTime() - time;
+            System.out.printf("%s middle insert: time = %dms%n",
+                    name, (time / 1_000_000));
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WAVLBinaryTreeTest extends BinaryTreeTest {
+    protected BinaryTree<String> create() {
+        return new WAVLBinaryTree<>();
+    }
+
+    @Override
+    protected int expectedMaxDepth(int elements) {
+        // without deletes, a WAVL tree is an AVL tree
+        return (int) Math.ceil(Math.log(elements) / Math.log(2));
+    }
+
+    @Test
+    void testRandomAgainstTreeSet() {
+        var random = new Random(42);
+        var tree = new WAVLBinaryTree<Integer>();
+        var counters = tree.enableCounters();
+        var expected = new TreeSet<Integer>();
+        for (int i = 0; i < 200_000; i++) {
+            int value = random.nextInt(5_000);
+            if (random.nextBoolean()) {
+                long rotations = counters.rotations();
+                tree.remove(value);
+                expected.remove(value);
+                assertTrue(counters.rotations() - rotations <= 2);
+            } else {
+                tree.add(value);
+                expected.add(value);
+            }
+            assertEquals(expected.contains(value), tree.contains(value));
+            if (i % 10_000 == 0) {
+                var actual = new ArrayList<Integer>();
+                tree.forEach(actual::add);
+                assertEquals(List.copyOf(expected), actual);
+                assertTrue(tree.maxDepth() <= 2 * Math.log(expected.size() + 1) / Math.log(2) + 1);
+            }
+        }
+        // removing everything in order is the classic worst case for AVL
+        for (Integer value : List.copyOf(expected)) {
+            long rotations = counters.rotations();
+            tree.remove(value);
+            assertTrue(counters.rotations() - rotations <= 2);
+        }
+        assertEquals(0, tree.size());
+        assertFalse(tree.iterator().hasNext());
+    }
+
+    @Test
+    void testRemovingAbsentValueDoesNotModify() {
+        var tree = new WAVLBinaryTree<Integer>();
+        tree.add(1);
+        tree.add(2);
+        var iterator = tree.iterator();
+        tree.remove(3);
+        tree.add(2);
+        assertEquals(1, iterator.next());
+        tree.remove(2);
+        assertThrows(ConcurrentModificationException.class, iterator::next);
+    }
+
+    @Test
+    void testDeleteHeavyChurn() {
+        List<Supplier<AbstractBinaryTree<Integer>>> trees = List.of(
+                WAVLBinaryTree::new, AVLBinaryTree::new, RedBlackBinaryTree::new);
+        int size = 200_000;
+        int operations = 2_000_000;
+        for (int round = 0; round < 3; round++) {
+            for (var supplier : trees) {
+                var tree = supplier.get();
+                var random = new Random(42);
+                for (int i = 0; i < size; i++) {
+                    tree.add(random.nextInt(4 * size));
+                }
+                var counters = tree.enableCounters();
+                long time = System.nanoTime();
+                // two removes for every add, half of them of absent values
+                for (int i = 0; i < operations; i++) {
+                    int value = random.nextInt(4 * size);
+                    if (i % 3 == 0) {
+                        tree.add(value);
+                    } else {
+                        tree.remove(value);
+                    }
+                }
+                time = System.nanoTime() - time;
+                System.out.printf("%s delete-heavy churn: time = %dms, " +
+                                "comparisons = %,d, rotations = %,d, maxDepth = %d%n",
+                        tree.getClass().getSimpleName(), time / 1_000_000,
+                        counters.comparisons(), counters.rotations(), tree.maxDepth());
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package eu.javaspecialists.twitch.broadcast1;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WorkloadReplayerTest {
+    private static final int HEADER_SIZE = 10;
+
+    private static <T> List<T> toList(Iterable<T> iterable) {
+        var list = new ArrayList<T>();
+        iterable.forEach(list::add);
+        return list;
+    }
+
+    /**
+     * A skewed workload, mostly lookups of recently added keys.
+     */
+    private static int recordTreeWorkload(BinaryTree<Integer> tree, int operations) {
+        var random = new Random(42);
+        int hits = 0;
+        for (int i = 0; i < operations; i++) {
+            int value = i / 2 - (int) Math.abs(random.nextGaussian() * 1_000);
+            switch (random.nextInt(10)) {
+                case 0, 1, 2 -> tree.add(value);
+                case 3 -> tree.remove(value);
+                default -> hits += tree.contains(value) ? 1 : 0;
+            }
+        }
+        return hits;
+    }
+
+    @Test
+    void testTreeRecordAndReplay() throws IOException {
+        int operations = 200_000;
+        var bytes = new ByteArrayOutputStream();
+        var recorded = new AVLBinaryTree<Integer>();
+        int hits;
+        try (var tree = new RecordingBinaryTree<>(recorded, FixedWidthCodec.ints(), bytes)) {
+            hits = recordTreeWorkload(tree, operations);
+            assertEquals(toList(recorded), toList(tree));
+        }
+        // a byte for the operation and four for the int
+        assertEquals(HEADER_SIZE + 5L * operations, bytes.size());
+
+        List<Supplier<BinaryTree<Integer>>> trees = List.of(AVLBinaryTree::new,
+                RedBlackBinaryTree::new, WAVLBinaryTree::new, BufferedBinaryTree::new);
+        for (var supplier : trees) {
+            var tree = supplier.get();
+            var result = WorkloadReplayer.replay(new ByteArrayInputStream(bytes.toByteArray()),
+                    FixedWidthCodec.ints(), tree);
+            System.out.println(result);
+            assertEquals(operations, result.operations());
+            assertEquals(operations, result.latencies().count());
+            assertEquals(hits, result.hits());
+            assertEquals(toList(recorded), toList(tree));
+        }
+    }
+
+    @Test
+    void testListRecordAndReplay() throws IOException {
+        var random = new Random(42);
+        var bytes = new ByteArrayOutputStream();
+        var recorded = new SimpleArrayList<String>();
+        try (var list = new RecordingSimpleList<>(recorded, FixedWidthCodec.strings(8), bytes)) {
+            for (int i = 0; i < 50_000; i++) {
+                int size = list.size();
+                switch (size == 0 ? 0 : random.nextInt(4)) {
+                    case 0 -> list.add("e" + i);
+                    case 1 -> list.add(random.nextInt(size + 1), "i" + i);
+                    case 2 -> list.get(random.nextInt(size));
+                    default -> list.removeAt(random.nextInt(size));
+                }
+            }
+            list.addFirst("first");
+            assertEquals("first", list.removeFirst());
+            // removal through the iterator would not be recorded
+            var iterator = list.iterator();
+            iterator.next();
+            assertThrows(UnsupportedOperationException.class, iterator::remove);
+        }
+
+        List<Supplier<SimpleList<String>>> lists = List.of(SimpleLinkedList::new,
+                CircularArrayList::new, UnrolledLinkedList::new);
+        for (var supplier : lists) {
+            var list = supplier.get();
+            var result = WorkloadReplayer.replay(new ByteArrayInputStream(bytes.toByteArray()),
+                    FixedWidthCodec.strings(8), list);
+            System.out.println(result);
+            assertEquals(toList(recorded), toList(list));
+        }
+
+        // a list log cannot be replayed against a tree
+        assertThrows(IllegalArgumentException.class, () -> WorkloadReplayer.replay(
+                new ByteArrayInputStream(bytes.toByteArray()), FixedWidthCodec.strings(8),
+                new AVLBinaryTree<>()));
+        // nor read with a codec of a different width
+        assertThrows(IOException.class, () -> WorkloadReplayer.replay(
+                new ByteArrayInputStream(bytes.toByteArray()), FixedWidthCodec.strings(4),
+                new SimpleArrayList<>()));
+    }
+
+    @Test
+    void testRemoveIfIsRecorded() throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        var recorded = new SimpleLinkedList<Integer>();
+        try (var list = new RecordingSimpleList<>(recorded, FixedWidthCodec.ints(), bytes)) {
+            for (int i = 0; i < 1_000; i++) {
+                list.add(i);
+            }
+            assertTrue(list.removeIf(i -> i % 3 == 0));
+            assertFalse(list.removeIf(i -> i < 0));
+            assertTrue(list.retainAll(List.of(1, 2, 4, 5, 998)));
+            list.add(1_000);
+        }
+        assertEquals(List.of(1, 2, 4, 5, 998, 1_000), toList(recorded));
+
+        List<Supplier<SimpleList<Integer>>> lists = List.of(SimpleArrayList::new,
+                CircularArrayList::new, UnrolledLinkedList::new);
+        for (var supplier : lists) {
+            var list = supplier.get();
+            WorkloadReplayer.replay(new ByteArrayInputStream(bytes.toByteArray()),
+                    FixedWidthCodec.ints(), list);
+            assertEquals(toList(recorded), toList(list));
+        }
+    }
+
+    @Test
+    void testTruncatedLog() throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        try (var tree = new RecordingBinaryTree<>(new AVLBinaryTree<>(), FixedWidthCodec.longs(), bytes)) {
+            tree.add(1L);
+            tree.add(2L);
+            tree.contains(1L);
+        }
+        byte[] log = bytes.toByteArray();
+        // the recording process died in the middle of the last record
+        var workload = WorkloadLog.read(new ByteArrayInputStream(
+                Arrays.copyOf(log, log.length - 3)), FixedWidthCodec.longs());
+        assertEquals(2, workload.size());
+        assertEquals(List.of(1L, 2L), Arrays.asList(workload.values()));
+
+        log[0] = 'X';
+        assertThrows(IOException.class, () -> WorkloadLog.read(
+                new ByteArrayInputStream(log), FixedWidthCodec.longs()));
+    }
+
+    @Test
+    void testHistogramPrecision() {
+        for (long value = 0; value < 10_000_000; value += 1 + value / 100) {
+            int index = LatencyHistogram.bucketIndex(value);
+            long highest = LatencyHistogram.highestValueIn(index);
+            assertTrue(highest >= value);
+            assertTrue(highest - value <= value / 64);
+            assertEquals(index, LatencyHistogram.bucketIndex(highest));
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValueIn(
+                LatencyHistogram.bucketIndex(Long.MAX_VALUE)));
+
+        var histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1_000_000; i++) {
+            histogram.record(i);
+        }
+        histogram.record(-5);
+        assertEquals(1_000_001, histogram.count());
+        assertEquals(1_000_000, histogram.max());
+        assertEquals(1_000_000, histogram.percentile(100));
+        assertEquals(500_000, histogram.percentile(50), 500_000 / 64.0);
+        assertEquals(990_000, histogram.percentile(99), 990_000 / 64.0);
+        assertEquals(0, histogram.percentile(0));
+
+        var other = new LatencyHistogram();
+        other.record(2_000_000);
+        histogram.add(other);
+        assertEquals(2_000_000, histogram.max());
+        assertEquals(1_000_002, histogram.count());
+    }
+
+    @Test
+    void testCommandLine(@TempDir Path dir) throws Exception {
+        Path log = dir.resolve("trace.wkld");
+        try (var tree = new RecordingBinaryTree<>(new AVLBinaryTree<>(), FixedWidthCodec.ints(),
+                Files.newOutputStream(log))) {
+            recordTreeWorkload(tree, 1_000_000);
+        }
+        WorkloadReplayer.main(log.toString(), "int", "AVLBinaryTree", "RedBlackBinaryTree",
+                "eu.javaspecialists.twitch.broadcast1.WAVLBinaryTree");
+        assertThrows(ClassNotFoundException.class,
+                () -> WorkloadReplayer.main(log.toString(), "int", "NoSuchTree"));
+        assertThrows(IllegalArgumentException.class,
+                () -> WorkloadReplayer.main(log.toString(), "float", "AVLBinaryTree"));
+    }
+}